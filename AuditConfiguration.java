@@ -0,0 +1,28 @@
+// src/main/java/com/app/audit/AuditConfiguration.java
+
+package com.app.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class AuditConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditConfiguration.class);
+
+    // closed on shutdown, which writes out whatever is still in the ring
+    @Bean(destroyMethod = "close")
+    public AuditJournal auditJournal(@Value("${audit.journal.dir:data/audit}") String dir,
+                                     @Value("${audit.journal.ring-size:65536}") int ringSize,
+                                     @Value("${audit.journal.segment-bytes:67108864}") long segmentBytes,
+                                     @Value("${audit.journal.max-segments:0}") int maxSegments) throws IOException {
+        return new AuditJournal(Paths.get(dir), ringSize, segmentBytes, maxSegments,
+                ex -> log.error("Could not write audit events to {}", dir, ex));
+    }
+}
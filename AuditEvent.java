@@ -0,0 +1,72 @@
+// src/main/java/com/app/audit/AuditEvent.java
+
+package com.app.audit;
+
+/**
+ * One journaled mutation, as read back by {@link AuditJournal#replay}.
+ *
+ * Events are deliberately flat: an entity id, a quantity, an amount in minor
+ * units and one text field, whose meaning depends on the type (see {@link Type}).
+ */
+public final class AuditEvent {
+
+    /** Event types. Codes are written to disk; never renumber them. */
+    public enum Type {
+        // entityId = medicine id, quantity = stock on hand, amount = unit price, text = name
+        MEDICINE_ADDED(1), MEDICINE_UPDATED(2),
+        // entityId = medicine id, text = name
+        MEDICINE_DELETED(3),
+        // entityId = medicine id (0 for services), quantity, amount = unit price, text = item name
+        BILL_LINE_ADDED(10), BILL_LINE_REMOVED(11),
+        // quantity = number of lines dropped
+        BILL_CLEARED(12),
+        // desktop: quantity = line count, amount = total, text = invoice number
+        INVOICE_ISSUED(13),
+        // desktop: an issued bill changed and was issued again under its number; fields as INVOICE_ISSUED
+        INVOICE_REVISED(14),
+        // server: entityId = invoice id, amount = total, text = payment status
+        INVOICE_GENERATED(20), INVOICE_STATUS_CHANGED(21);
+
+        final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        static Type ofCode(byte code) {
+            for (Type t : values()) if (t.code == code) return t;
+            throw new IllegalArgumentException("Unknown audit event type " + code);
+        }
+    }
+
+    private final long seq;
+    private final long timestamp;
+    private final Type type;
+    private final long entityId;
+    private final int quantity;
+    private final long amountMinor;
+    private final String text;
+
+    AuditEvent(long seq, long timestamp, Type type, long entityId, int quantity, long amountMinor, String text) {
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.entityId = entityId;
+        this.quantity = quantity;
+        this.amountMinor = amountMinor;
+        this.text = text;
+    }
+
+    public long getSeq() { return seq; }
+    public long getTimestamp() { return timestamp; } // epoch millis
+    public Type getType() { return type; }
+    public long getEntityId() { return entityId; }
+    public int getQuantity() { return quantity; }
+    public long getAmountMinor() { return amountMinor; }
+    public String getText() { return text; }
+
+    @Override
+    public String toString() {
+        return "#" + seq + " " + type + " id=" + entityId + " qty=" + quantity + " amount=" + amountMinor + " " + text;
+    }
+}
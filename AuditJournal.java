@@ -0,0 +1,381 @@
+// src/main/java/com/app/audit/AuditJournal.java
+
+package com.app.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind journal of audit events.
+ *
+ * {@link #record} copies the event into a preallocated slot of a lock-free ring
+ * buffer and returns; callers never touch the disk. Producers claim slots with
+ * a compare-and-set on the sequence counter and publish them with a release
+ * store, so any number of threads can record at once; {@link #close} seals the
+ * counter so that no claim can slip in after the writer's last batch. A single
+ * writer thread drains published slots in order, encodes them into one buffer
+ * and appends each batch with one write and one fsync. If the ring is full (the
+ * disk is far behind) producers wait for room rather than drop events.
+ *
+ * On disk the journal is a directory of segments, audit-&lt;firstSeq&gt;.seg:
+ * <pre>
+ *   header   magic:int version:int firstSeq:long
+ *   record   len:int crc32:int payload
+ *   payload  seq:long timestamp:long type:byte entityId:long quantity:int amountMinor:long textLen:short text:utf8
+ * </pre>
+ * A segment is closed and a new one started once it passes the size limit; with
+ * a segment limit set, the oldest segments are deleted. A torn record at the end
+ * of the last segment (a crash mid-write) is cut off on open. {@link #replay}
+ * reads everything back in order.
+ */
+public final class AuditJournal implements Closeable {
+
+    private static final int MAGIC = 0x41554454; // "AUDT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int FIXED_PAYLOAD = 8 + 8 + 1 + 8 + 4 + 8 + 2;
+    private static final int MAX_TEXT_BYTES = 1024;
+    private static final int MAX_BATCH = 4096;
+    private static final int READ_BUFFER_BYTES = 256 * 1024; // replay; far more than one record
+    private static final long IDLE_PARK_NANOS = 500_000;
+    private static final long SEALED = Long.MIN_VALUE;
+
+    // ring slots, struct-of-arrays; published[i] holds the sequence last written to slot i
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final long[] entityIds;
+    private final int[] quantities;
+    private final long[] amounts;
+    private final String[] texts;
+    private final AtomicLongArray published;
+    // next sequence to hand out; close() sets SEALED, after which nothing more can be claimed
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed; // every sequence below this has been written (or dropped) and may be reused
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(256 * 1024);
+    private final CRC32 crc = new CRC32();
+    private FileChannel segment;
+    private final Thread writer;
+    private volatile boolean closed;
+    private final Consumer<IOException> errorHandler;
+
+    private final LongAdder stalls = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * Open (or create) the journal in dir and start its writer.
+     *
+     * @param ringSize     events buffered in memory; rounded up to a power of two
+     * @param segmentBytes roll to a new segment file past this size
+     * @param maxSegments  segments kept on disk, oldest deleted first; 0 keeps all
+     * @param errorHandler called on the writer thread when a batch cannot be written
+     */
+    public AuditJournal(Path dir, int ringSize, long segmentBytes, int maxSegments,
+                        Consumer<IOException> errorHandler) throws IOException {
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+        int size = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.types = new byte[size];
+        this.entityIds = new long[size];
+        this.quantities = new int[size];
+        this.amounts = new long[size];
+        this.texts = new String[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) published.set(i, -1);
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+
+        Files.createDirectories(dir);
+        long next = openLastSegment();
+        claimed.set(next);
+        consumed = next;
+
+        writer = new Thread(this::writeLoop, "audit-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue an event; returns its sequence number. Never blocks on I/O. Text longer
+     * than 1 KB (UTF-8) is cut when written.
+     */
+    public long record(AuditEvent.Type type, long entityId, int quantity, long amountMinor, String text) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if ((seq & SEALED) != 0) throw new IllegalStateException("Audit journal is closed");
+        } while (!claimed.compareAndSet(seq, seq + 1));
+        if (seq - consumed > mask) awaitRoom(seq);
+        int i = (int) (seq & mask);
+        timestamps[i] = System.currentTimeMillis();
+        types[i] = type.code;
+        entityIds[i] = entityId;
+        quantities[i] = quantity;
+        amounts[i] = amountMinor;
+        texts[i] = text;
+        published.lazySet(i, seq); // release: the slot's fields are visible to the writer before the sequence
+        return seq;
+    }
+
+    // the writer is a whole ring behind; back off until our slot has been drained
+    private void awaitRoom(long seq) {
+        stalls.increment();
+        while (seq - consumed > mask) {
+            if (!writer.isAlive()) throw new IllegalStateException("Audit journal writer has stopped");
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    /** Events recorded but not yet written. */
+    public long backlog() {
+        return (claimed.get() & ~SEALED) - consumed;
+    }
+
+    /** Events that reached the file; a batch lost to an I/O error is not counted. */
+    public long writtenCount() {
+        return written.get();
+    }
+
+    /** Times a producer had to wait because the ring was full. */
+    public long stallCount() {
+        return stalls.sum();
+    }
+
+    /**
+     * Write everything recorded so far, then stop the writer. Sealing the claim counter
+     * first means no record() can take a sequence after the writer has decided it is done.
+     */
+    @Override
+    public void close() throws IOException {
+        if ((claimed.getAndUpdate(c -> c | SEALED) & SEALED) != 0) return;
+        closed = true; // after the seal, so the writer sees the final count
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    /* -------------------- Writer thread -------------------- */
+    private void writeLoop() {
+        long next = consumed;
+        while (true) {
+            int n = 0;
+            long batchStart = -1;
+            boolean lost = false;
+            try {
+                batchStart = segment.position();
+                while (n < MAX_BATCH) {
+                    long seq = next + n;
+                    int i = (int) (seq & mask);
+                    if (published.get(i) != seq) break;
+                    encode(seq, i);
+                    n++;
+                }
+                if (n > 0) {
+                    flush();
+                    segment.force(false);
+                }
+            } catch (IOException e) {
+                // the batch is lost; cut any part of it that reached the file so later batches stay readable
+                errorHandler.accept(e);
+                lost = true;
+                buf.clear();
+                try {
+                    if (batchStart >= 0) segment.truncate(batchStart).position(batchStart);
+                } catch (IOException ignored) {
+                    // reported above
+                }
+            }
+            if (n > 0) {
+                next += n;
+                consumed = next;
+                if (!lost) written.addAndGet(n);
+                try {
+                    if (segment.position() >= segmentBytes) rotate(next);
+                } catch (IOException e) {
+                    errorHandler.accept(e);
+                }
+            } else if (closed && (claimed.get() & ~SEALED) == next) {
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void encode(long seq, int i) throws IOException {
+        String text = texts[i];
+        byte[] t = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int textLen = Math.min(t.length, MAX_TEXT_BYTES);
+        int len = FIXED_PAYLOAD + textLen;
+        if (buf.remaining() < 8 + len) flush();
+
+        int start = buf.position();
+        buf.position(start + 8);
+        buf.putLong(seq).putLong(timestamps[i]).put(types[i]).putLong(entityIds[i])
+                .putInt(quantities[i]).putLong(amounts[i]).putShort((short) textLen).put(t, 0, textLen);
+        crc.reset();
+        crc.update(buf.duplicate().position(start + 8).limit(start + 8 + len));
+        buf.putInt(start, len).putInt(start + 4, (int) crc.getValue());
+        texts[i] = null; // don't keep the string alive in the ring
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) segment.write(buf);
+        buf.clear();
+    }
+
+    private void rotate(long firstSeq) throws IOException {
+        segment.force(true);
+        segment.close();
+        segment = newSegment(firstSeq);
+        if (maxSegments > 0) {
+            List<Path> all = segments(dir);
+            for (int k = 0; k < all.size() - maxSegments; k++) Files.deleteIfExists(all.get(k));
+        }
+    }
+
+    private FileChannel newSegment(long firstSeq) throws IOException {
+        FileChannel ch = FileChannel.open(dir.resolve(String.format("audit-%019d.seg", firstSeq)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(firstSeq);
+        header.flip();
+        while (header.hasRemaining()) ch.write(header);
+        return ch;
+    }
+
+    // continue the newest segment after its last intact record; returns the next sequence number
+    private long openLastSegment() throws IOException {
+        List<Path> all = segments(dir);
+        if (all.isEmpty()) {
+            segment = newSegment(0);
+            return 0;
+        }
+        Path last = all.get(all.size() - 1);
+        long[] next = {0};
+        long good = scan(last, e -> next[0] = e.getSeq() + 1);
+        if (good < 0) throw new IOException("Not an audit segment: " + last);
+        if (good == 0) {
+            segment = newSegment(firstSeqOf(last));
+            return firstSeqOf(last);
+        }
+        if (next[0] == 0) next[0] = firstSeqOf(last);
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        segment.truncate(good);
+        segment.position(good);
+        return next[0];
+    }
+
+    /* -------------------- Replay -------------------- */
+
+    /** Read every intact event in the journal directory, oldest first. */
+    public static void replay(Path dir, Consumer<AuditEvent> visitor) throws IOException {
+        replay(dir, 0, visitor);
+    }
+
+    /** Read the intact events with seq >= fromSeq, oldest first. */
+    public static void replay(Path dir, long fromSeq, Consumer<AuditEvent> visitor) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        List<Path> all = segments(dir);
+        for (int k = 0; k < all.size(); k++) {
+            // skip segments that end before fromSeq
+            if (k + 1 < all.size() && firstSeqOf(all.get(k + 1)) <= fromSeq) continue;
+            if (scan(all.get(k), e -> { if (e.getSeq() >= fromSeq) visitor.accept(e); }) < 0) {
+                throw new IOException("Not an audit segment: " + all.get(k));
+            }
+        }
+    }
+
+    // visit the intact records of one segment; returns the offset just past the last one,
+    // 0 for a segment without a header yet, -1 for a file that is not a segment.
+    // Read through a heap buffer rather than mapped: a mapping lives until it is garbage
+    // collected, and Windows refuses to truncate (openLastSegment) or delete (pruning) a
+    // file that is still mapped.
+    private static long scan(Path file, Consumer<AuditEvent> visitor) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES).flip();
+            if (!fill(ch, in, HEADER_BYTES)) return 0; // created but header never written
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) return -1;
+            in.getLong(); // firstSeq, also in the file name
+            CRC32 crc = new CRC32();
+            long pos = HEADER_BYTES;
+            while (fill(ch, in, 8)) {
+                int at = in.position();
+                int len = in.getInt(at);
+                if (len < FIXED_PAYLOAD || len > FIXED_PAYLOAD + MAX_TEXT_BYTES || !fill(ch, in, 8 + len)) break;
+                at = in.position(); // fill may have compacted
+                ByteBuffer p = in.slice(at + 8, len);
+                crc.reset();
+                crc.update(p.duplicate());
+                if ((int) crc.getValue() != in.getInt(at + 4)) break;
+                long seq = p.getLong();
+                long ts = p.getLong();
+                AuditEvent.Type type = AuditEvent.Type.ofCode(p.get());
+                long id = p.getLong();
+                int qty = p.getInt();
+                long amount = p.getLong();
+                byte[] text = new byte[p.getShort() & 0xFFFF];
+                p.get(text);
+                visitor.accept(new AuditEvent(seq, ts, type, id, qty, amount, new String(text, StandardCharsets.UTF_8)));
+                in.position(at + 8 + len);
+                pos += 8 + len;
+            }
+            return pos;
+        }
+    }
+
+    // make at least n bytes readable in the buffer (kept in read mode); false if the file ends first
+    private static boolean fill(FileChannel ch, ByteBuffer in, int n) throws IOException {
+        if (in.remaining() >= n) return true;
+        in.compact();
+        try {
+            while (in.position() < n) {
+                if (ch.read(in) < 0) return false;
+            }
+            return true;
+        } finally {
+            in.flip();
+        }
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("audit-".length(), name.length() - ".seg".length()));
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "audit-*.seg")) {
+            ds.forEach(out::add);
+        }
+        Collections.sort(out); // zero-padded first sequence, so name order is journal order
+        return out;
+    }
+}
@@ -0,0 +1,172 @@
+import javafx.application.Platform;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs I/O and heavy computation off the FX thread and hands results back to it.
+ *
+ * Work runs on virtual threads when the JVM has them (Java 21+) and on a cached
+ * pool of daemon threads otherwise. Callbacks, progress and the {@link Monitor}
+ * are always invoked on the FX thread; progress updates are coalesced so a task
+ * reporting in a tight loop schedules at most one pending FX update. A cancelled
+ * task is interrupted and none of its callbacks run.
+ */
+public class BackgroundTasks {
+
+    /** A unit of background work. */
+    public interface Work<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /** Progress reporting from inside {@link Work#run}; safe to call from any thread, as often as you like. */
+    public interface Progress {
+        void update(double fraction, String message);
+
+        boolean isCancelled();
+    }
+
+    /** Observes tasks that were submitted with a title (e.g. to drive a status bar). Called on the FX thread. */
+    public interface Monitor {
+        void started(Handle task, String title);
+
+        void progress(Handle task, double fraction, String message);
+
+        void finished(Handle task);
+    }
+
+    private final ExecutorService executor = newExecutor();
+    private volatile Monitor monitor;
+
+    public void setMonitor(Monitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Run work in the background. onSuccess/onFailure run on the FX thread unless the task
+     * was cancelled. A null title keeps the task out of the monitor (quiet background work).
+     */
+    public <T> Handle submit(String title, Work<T> work, Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+        Handle h = new Handle(title);
+        Monitor m = title == null ? null : monitor;
+        if (m != null) m.started(h, title);
+        h.future = executor.submit(() -> {
+            try {
+                T result = work.run(h);
+                h.finish(() -> { if (onSuccess != null) onSuccess.accept(result); });
+            } catch (Throwable t) {
+                h.finish(() -> {
+                    if (!(t instanceof CancellationException || t instanceof InterruptedException) && onFailure != null) {
+                        onFailure.accept(t);
+                    }
+                });
+            }
+        });
+        return h;
+    }
+
+    /** Stop accepting work and interrupt what is running. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException notOnThisJvm) {
+            return Executors.newCachedThreadPool(r -> daemon(r, "background-task"));
+        }
+    }
+
+    /** A new, unstarted daemon thread, so it never keeps the app from exiting. For thread factories: r -> daemon(r, name). */
+    static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Keeps only the newest of a stream of tasks, e.g. one per keystroke: submitting
+     * cancels the previous task, so only the latest result reaches the UI.
+     */
+    public class Latest {
+        private Handle current;
+
+        public <T> Handle submit(Work<T> work, Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+            if (current != null) current.cancel();
+            current = BackgroundTasks.this.submit(null, work, onSuccess, onFailure);
+            return current;
+        }
+    }
+
+    /** A submitted task; also its {@link Progress} sink. */
+    public final class Handle implements Progress {
+        private final String title;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicReference<Object[]> pendingProgress = new AtomicReference<>();
+        private volatile Future<?> future;
+        private boolean closed; // callbacks/monitor done; FX thread only
+        private Runnable onClosed;
+
+        private Handle(String title) {
+            this.title = title;
+        }
+
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+            Platform.runLater(() -> close());
+        }
+
+        /**
+         * Run on the FX thread once the task has succeeded, failed or been cancelled,
+         * e.g. to re-enable the button that started it. Register from the FX thread.
+         */
+        public Handle whenClosed(Runnable action) {
+            if (closed) action.run();
+            else onClosed = action;
+            return this;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        @Override
+        public void update(double fraction, String message) {
+            if (title == null || isCancelled()) return;
+            // only the first update since the last FX pass schedules a runLater; later ones overwrite it
+            if (pendingProgress.getAndSet(new Object[]{fraction, message}) == null) {
+                Platform.runLater(() -> {
+                    Object[] p = pendingProgress.getAndSet(null);
+                    Monitor m = monitor;
+                    if (p != null && m != null && !isCancelled()) m.progress(this, (Double) p[0], (String) p[1]);
+                });
+            }
+        }
+
+        private void finish(Runnable callback) {
+            Platform.runLater(() -> {
+                if (isCancelled() || !close()) return;
+                callback.run();
+            });
+        }
+
+        // tell the monitor exactly once, whichever of completion and cancellation comes first
+        private boolean close() {
+            if (closed) return false;
+            closed = true;
+            Monitor m = title == null ? null : monitor;
+            if (m != null) m.finished(this);
+            if (onClosed != null) onClosed.run();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+// src/main/java/com/app/service/BatchInvoiceResult.java
+
+package com.app.service;
+
+import com.app.model.Invoice;
+
+// Outcome of one invoice in a batch request; index is its position in the request body.
+// A failure carries a stable errorCode for clients to act on and a message for people;
+// neither exposes database or exception details.
+public class BatchInvoiceResult {
+
+    // the invoice itself is wrong (bad line, unknown price, invalid plan); error says what
+    public static final String INVALID_INVOICE = "INVALID_INVOICE";
+    // it refers to something missing or clashes with stored data (e.g. an unknown patient)
+    public static final String CONFLICT = "CONFLICT";
+    // anything else; the same invoice may succeed if retried
+    public static final String FAILED = "FAILED";
+
+    private final int index;
+    private final boolean success;
+    private final Invoice invoice;
+    private final String errorCode;
+    private final String error;
+
+    private BatchInvoiceResult(int index, boolean success, Invoice invoice, String errorCode, String error) {
+        this.index = index;
+        this.success = success;
+        this.invoice = invoice;
+        this.errorCode = errorCode;
+        this.error = error;
+    }
+
+    public static BatchInvoiceResult created(int index, Invoice invoice) {
+        return new BatchInvoiceResult(index, true, invoice, null, null);
+    }
+
+    public static BatchInvoiceResult failed(int index, String errorCode, String error) {
+        return new BatchInvoiceResult(index, false, null, errorCode, error);
+    }
+
+    public int getIndex() { return index; }
+    public boolean isSuccess() { return success; }
+    public Invoice getInvoice() { return invoice; }
+    public String getErrorCode() { return errorCode; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,69 @@
+import com.app.model.Money;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.math.RoundingMode;
+
+/**
+ * Running bill totals in minor units (cents) of {@link Money#BILLING_CURRENCY}.
+ *
+ * The subtotal is adjusted by the added and removed lines of each list change,
+ * so a change costs O(changed lines) instead of a pass over the whole cart. Tax
+ * is derived from the subtotal with half-up rounding to the cent. Totals are
+ * plain longs, so keeping them current allocates nothing.
+ */
+public class BillTotals {
+
+    private final long taxBasisPoints;
+
+    private final ReadOnlyLongWrapper subtotal = new ReadOnlyLongWrapper(this, "subtotal");
+    private final ReadOnlyLongWrapper tax = new ReadOnlyLongWrapper(this, "tax");
+    private final ReadOnlyLongWrapper total = new ReadOnlyLongWrapper(this, "total");
+
+    /** @param taxBasisPoints e.g. 500 for 5% */
+    public BillTotals(long taxBasisPoints) {
+        this.taxBasisPoints = taxBasisPoints;
+    }
+
+    /** Start from the list's current lines and follow its changes. */
+    public void bind(ObservableList<PatientPharmacyApp.BillItem> items) {
+        long sum = 0;
+        for (PatientPharmacyApp.BillItem b : items) sum += lineCents(b);
+        set(sum);
+        items.addListener((ListChangeListener<PatientPharmacyApp.BillItem>) c -> {
+            long s = subtotal.get();
+            while (c.next()) {
+                if (c.wasPermutated()) continue;
+                for (PatientPharmacyApp.BillItem b : c.getRemoved()) s = Math.subtractExact(s, lineCents(b));
+                for (PatientPharmacyApp.BillItem b : c.getAddedSubList()) s = Math.addExact(s, lineCents(b));
+            }
+            set(s);
+        });
+    }
+
+    public ReadOnlyLongProperty subtotalProperty() { return subtotal.getReadOnlyProperty(); }
+    public ReadOnlyLongProperty taxProperty() { return tax.getReadOnlyProperty(); }
+    public ReadOnlyLongProperty totalProperty() { return total.getReadOnlyProperty(); }
+
+    public long getSubtotal() { return subtotal.get(); }
+    public long getTax() { return tax.get(); }
+    public long getTotal() { return total.get(); }
+
+    public static long lineCents(PatientPharmacyApp.BillItem b) {
+        return b.getTotalMinor();
+    }
+
+    /** Format cents as a plain decimal amount, e.g. 1234 -> "12.34". */
+    public static String format(long cents) {
+        return Money.format(cents, Money.BILLING_CURRENCY);
+    }
+
+    private void set(long newSubtotal) {
+        long t = Money.percentOf(newSubtotal, taxBasisPoints, RoundingMode.HALF_UP);
+        subtotal.set(newSubtotal);
+        tax.set(t);
+        total.set(Math.addExact(newSubtotal, t));
+    }
+}
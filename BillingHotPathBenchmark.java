@@ -0,0 +1,99 @@
+// src/jmh/java/com/app/bench/BillingHotPathBenchmark.java
+
+package com.app.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * JMH benchmarks for the desktop app's billing and inventory hot paths: cart totals,
+ * invoice text, CSV and PDF export and inventory name search. The operations come from
+ * BillingHotPathFixture (unnamed package, like the app); *Scan benchmarks are the
+ * old algorithms, kept as baselines. Built by jmh/pom.xml into jmh/target/benchmarks.jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillingHotPathBenchmark {
+
+    @Param({"10", "500", "5000"})
+    public int cartSize;
+
+    @Param({"1000", "80000"})
+    public int inventorySize;
+
+    private Path csv;
+    private Supplier<Object> cartTotalsIncremental;
+    private Supplier<Object> cartTotalsScan;
+    private Supplier<Object> buildInvoice;
+    private Supplier<Object> exportCsv;
+    private Supplier<Object> renderPdf;
+    private Supplier<Object> searchIndexed;
+    private Supplier<Object> searchScan;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        csv = Files.createTempFile("invoice-bench", ".csv");
+        Map<String, Supplier<Object>> ops = (Map<String, Supplier<Object>>) Class.forName("BillingHotPathFixture")
+                .getMethod("operations", int.class, int.class, Path.class)
+                .invoke(null, cartSize, inventorySize, csv);
+        cartTotalsIncremental = ops.get("cartTotalsIncremental");
+        cartTotalsScan = ops.get("cartTotalsScan");
+        buildInvoice = ops.get("buildInvoice");
+        exportCsv = ops.get("exportCsv");
+        renderPdf = ops.get("renderPdf");
+        searchIndexed = ops.get("searchIndexed");
+        searchScan = ops.get("searchScan");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(csv.resolveSibling(csv.getFileName() + ".pdf"));
+    }
+
+    @Benchmark
+    public Object cartTotalsIncremental() {
+        return cartTotalsIncremental.get();
+    }
+
+    @Benchmark
+    public Object cartTotalsScan() {
+        return cartTotalsScan.get();
+    }
+
+    @Benchmark
+    public Object buildInvoice() {
+        return buildInvoice.get();
+    }
+
+    @Benchmark
+    public Object exportCsv() {
+        return exportCsv.get();
+    }
+
+    @Benchmark
+    public Object renderPdf() {
+        return renderPdf.get();
+    }
+
+    @Benchmark
+    public Object searchIndexed() {
+        return searchIndexed.get();
+    }
+
+    @Benchmark
+    public Object searchScan() {
+        return searchScan.get();
+    }
+}
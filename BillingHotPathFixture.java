@@ -0,0 +1,106 @@
+// src/jmh/java/BillingHotPathFixture.java
+
+import com.app.model.Money;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Test data and hot-path operations of the desktop app for com.app.bench.BillingHotPathBenchmark.
+ *
+ * PatientPharmacyApp and its helpers live in the unnamed package, which JMH benchmarks
+ * (and any named package) cannot reference; the benchmark loads this class reflectively
+ * once and then calls the returned operations directly.
+ */
+public final class BillingHotPathFixture {
+
+    private static final String[] STEMS = {"Paracetamol", "Amoxicillin", "Cetrizine", "Ibuprofen", "Metformin",
+            "Omeprazole", "Atorvastatin", "Azithromycin", "Losartan", "Salbutamol"};
+    private static final String[] FORMS = {"Tablet", "Capsule", "Syrup", "Injection", "Cream"};
+
+    private BillingHotPathFixture() {
+    }
+
+    /** Operations by benchmark name. The *Scan ones are the pre-optimisation algorithms, kept as baselines. */
+    public static Map<String, Supplier<Object>> operations(int cartSize, int inventorySize, Path csv) {
+        Random rnd = new Random(42);
+        List<PatientPharmacyApp.Medicine> inventory = new ArrayList<>(inventorySize);
+        for (int i = 0; i < inventorySize; i++) {
+            inventory.add(new PatientPharmacyApp.Medicine(medicineName(i), Money.ofMinor(5 + rnd.nextInt(5000), Money.BILLING_CURRENCY), rnd.nextInt(500)));
+        }
+        InventoryIndex index = new InventoryIndex();
+        index.bind(FXCollections.observableArrayList(inventory));
+        String[] queries = new String[64];
+        for (int i = 0; i < queries.length; i++) {
+            String name = inventory.get(rnd.nextInt(inventorySize)).getName().toLowerCase();
+            int from = rnd.nextInt(Math.max(1, name.length() - 4));
+            queries[i] = name.substring(from, Math.min(name.length(), from + 4));
+        }
+        int[] next = new int[1];
+        Supplier<String> query = () -> queries[next[0]++ & (queries.length - 1)];
+
+        ObservableList<PatientPharmacyApp.BillItem> cart = FXCollections.observableArrayList();
+        for (int i = 0; i < cartSize; i++) {
+            PatientPharmacyApp.Medicine m = inventory.get(rnd.nextInt(inventorySize));
+            cart.add(new PatientPharmacyApp.BillItem(m.getName(), 1 + rnd.nextInt(5), m.getPrice()));
+        }
+        BillTotals totals = new BillTotals(500);
+        totals.bind(cart);
+        PatientPharmacyApp.BillItem extraLine = new PatientPharmacyApp.BillItem("Consultation", 1, Money.parse("25.00", Money.BILLING_CURRENCY));
+        InvoiceSnapshot invoice = InvoiceSnapshot.capture("INV-BENCH-0001", "Jane Doe", "P-1001", "Dr. Rao", cart, totals);
+
+        Map<String, Supplier<Object>> ops = new LinkedHashMap<>();
+        ops.put("cartTotalsIncremental", () -> {
+            cart.add(extraLine);
+            cart.remove(cart.size() - 1);
+            return totals.getTotal();
+        });
+        // what recalcTotals did on every change: re-sum the cart in doubles, format three labels
+        ops.put("cartTotalsScan", () -> {
+            double subtotal = cart.stream().mapToDouble(b -> b.getQuantity() * (b.getUnitPrice().getMinorUnits() / 100.0)).sum();
+            double tax = subtotal * 0.05;
+            return String.format("%.2f", subtotal) + String.format("%.2f", tax) + String.format("%.2f", subtotal + tax);
+        });
+        ops.put("buildInvoice", () -> PatientPharmacyApp.buildInvoice(invoice));
+        ops.put("exportCsv", () -> {
+            try {
+                InvoiceExporter.exportInvoice(invoice, csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return csv;
+        });
+        Path pdf = csv.resolveSibling(csv.getFileName() + ".pdf");
+        ops.put("renderPdf", () -> {
+            try {
+                InvoiceRenderer.render(invoice, InvoiceRenderer.Format.PDF, pdf);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return pdf;
+        });
+        ops.put("searchIndexed", () -> index.search(query.get(), 8));
+        // the old "Suggest from Inventory" loop: lower-case every name, first contains() wins
+        ops.put("searchScan", () -> {
+            String q = query.get();
+            for (PatientPharmacyApp.Medicine m : inventory) {
+                if (m.getName().toLowerCase().contains(q)) return m;
+            }
+            return null;
+        });
+        return ops;
+    }
+
+    static String medicineName(int i) {
+        return STEMS[i % STEMS.length] + " " + (5 * (1 + i % 200)) + "mg " + FORMS[(i / 7) % FORMS.length] + " #" + i;
+    }
+}
@@ -2,38 +2,245 @@
 
 package com.app.service;
 
+import com.app.audit.AuditEvent;
+import com.app.audit.AuditJournal;
+import com.app.cache.ExpiringLruCache;
+import com.app.metrics.BillingMetrics;
+import com.app.metrics.BillingMetrics.Stage;
 import com.app.model.Invoice;
+import com.app.model.Money;
+import com.app.model.Patient;
 import com.app.repository.InvoiceRepository;
+import com.app.repository.InvoiceSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @Service
 public class BillingService {
 
+    private static final Logger log = LoggerFactory.getLogger(BillingService.class);
+
+    // invoices per saveAll call; matches hibernate.jdbc.batch_size
+    static final int BATCH_SIZE = 50;
+
     private final InvoiceRepository invoiceRepository;
+    private final InsurancePolicyEngine insurancePolicyEngine;
+    private final LineCostEngine lineCostEngine;
+    private final AuditJournal auditJournal;
+    private final BillingMetrics metrics;
+    // read-through cache for findInvoice, refreshed by updatePaymentStatus; new invoices are only invalidated
+    private final ExpiringLruCache<Long, Invoice> invoiceCache;
 
-    public BillingService(InvoiceRepository invoiceRepository) {
+    public BillingService(InvoiceRepository invoiceRepository, InsurancePolicyEngine insurancePolicyEngine,
+                          LineCostEngine lineCostEngine, AuditJournal auditJournal,
+                          BillingMetrics metrics,
+                          @Value("${billing.invoice.cache.max-size:100000}") int invoiceCacheSize,
+                          @Value("${billing.invoice.cache.ttl-seconds:300}") long invoiceCacheTtlSeconds) {
         this.invoiceRepository = invoiceRepository;
+        this.insurancePolicyEngine = insurancePolicyEngine;
+        this.lineCostEngine = lineCostEngine;
+        this.auditJournal = auditJournal;
+        this.metrics = metrics;
+        this.invoiceCache = new ExpiringLruCache<>(invoiceCacheSize, invoiceCacheTtlSeconds, TimeUnit.SECONDS);
     }
 
     // Core Business Logic
     public Invoice generateFinalBill(Invoice newInvoice) {
+        long start = System.nanoTime();
+        priceInvoice(newInvoice);
+
+        // 4. Save to database
+        long saveStart = System.nanoTime();
+        Invoice saved = invoiceRepository.save(newInvoice);
+        metrics.record(Stage.REPO_SAVE, saveStart);
+        audit(AuditEvent.Type.INVOICE_GENERATED, uncache(saved));
+        metrics.record(Stage.GENERATE, start);
+        return saved;
+    }
+
+    public Optional<Invoice> findInvoice(Long id) {
+        return Optional.ofNullable(invoiceCache.get(id, this::load));
+    }
+
+    // cache misses only; hits never reach the repository
+    private Invoice load(Long id) {
+        long start = System.nanoTime();
+        Optional<Invoice> found = invoiceRepository.findWithPatientAndLinesById(id);
+        metrics.record(Stage.REPO_FIND_BY_ID, start);
+        return found.orElse(null);
+    }
+
+    // Invoice history, newest first, optionally for one patient. cursor is the previous
+    // page's nextCursor (null for the first page); a malformed cursor is an IllegalArgumentException.
+    public KeysetPage<InvoiceSummary> listInvoices(Long patientId, String cursor, int size) {
+        size = KeysetPage.clampSize(size);
+        long beforeId = cursor == null ? Long.MAX_VALUE : Long.parseLong(cursor);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<InvoiceSummary> rows = patientId == null
+                ? invoiceRepository.findSummariesBefore(beforeId, page)
+                : invoiceRepository.findSummariesByPatientBefore(patientId, beforeId, page);
+        return KeysetPage.of(rows, size, row -> String.valueOf(row.getId()));
+    }
+
+    // Change the payment status (e.g. PENDING -> PAID); empty if the invoice doesn't exist.
+    // One transaction, so the invoice loaded with its patient and lines stays managed and is
+    // the instance that gets cached; a merge outside one would return a copy whose LAZY patient
+    // can no longer be loaded once open-in-view is off. Flushed before caching so a version
+    // conflict fails here rather than leaving the cache ahead of the database.
+    @Transactional
+    public Optional<Invoice> updatePaymentStatus(Long id, String paymentStatus) {
+        long start = System.nanoTime();
+        Optional<Invoice> current = invoiceRepository.findWithPatientAndLinesById(id);
+        metrics.record(Stage.REPO_FIND_BY_ID, start);
+        if (current.isEmpty()) {
+            invoiceCache.invalidate(id);
+            return current;
+        }
+        Invoice invoice = current.get();
+        invoice.setPaymentStatus(paymentStatus);
+        start = System.nanoTime();
+        Invoice saved = invoiceRepository.saveAndFlush(invoice);
+        metrics.record(Stage.REPO_SAVE, start);
+        return Optional.of(audit(AuditEvent.Type.INVOICE_STATUS_CHANGED, cache(saved)));
+    }
+
+    public ExpiringLruCache.Stats invoiceCacheStats() {
+        return invoiceCache.stats();
+    }
+
+    // Batch variant of generateFinalBill: prices all invoices in parallel, then saves them
+    // BATCH_SIZE at a time. Results come back in request order, one per invoice.
+    public List<BatchInvoiceResult> generateFinalBills(List<Invoice> invoices) {
+        long start = System.nanoTime();
+        BatchInvoiceResult[] results = new BatchInvoiceResult[invoices.size()];
+
+        // 1-3. Price in parallel; a failing invoice is reported and left out of the save
+        IntStream.range(0, invoices.size()).parallel().forEach(i -> {
+            try {
+                priceInvoice(invoices.get(i));
+            } catch (RuntimeException ex) {
+                results[i] = pricingFailed(i, ex);
+            }
+        });
+
+        // 4. Save in chunks; each saveAll runs in its own transaction
+        List<Integer> chunk = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < invoices.size(); i++) {
+            if (results[i] != null) continue;
+            chunk.add(i);
+            if (chunk.size() == BATCH_SIZE) {
+                saveChunk(invoices, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) saveChunk(invoices, chunk, results);
+
+        metrics.record(Stage.GENERATE_BATCH, start);
+        return Arrays.asList(results);
+    }
+
+    private void saveChunk(List<Invoice> invoices, List<Integer> chunk, BatchInvoiceResult[] results) {
+        List<Invoice> toSave = new ArrayList<>(chunk.size());
+        for (int i : chunk) toSave.add(invoices.get(i));
+        try {
+            long start = System.nanoTime();
+            List<Invoice> saved = invoiceRepository.saveAll(toSave);
+            metrics.record(Stage.REPO_SAVE_ALL, start);
+            for (int k = 0; k < chunk.size(); k++) {
+                results[chunk.get(k)] = BatchInvoiceResult.created(chunk.get(k), audit(AuditEvent.Type.INVOICE_GENERATED, uncache(saved.get(k))));
+            }
+        } catch (RuntimeException batchFailure) {
+            // the whole chunk rolled back; save one by one to find the bad rows
+            for (int i : chunk) {
+                Invoice invoice = invoices.get(i);
+                invoice.setId(null); // id drawn by the rolled-back attempt
+                try {
+                    long start = System.nanoTime();
+                    Invoice saved = invoiceRepository.save(invoice);
+                    metrics.record(Stage.REPO_SAVE, start);
+                    results[i] = BatchInvoiceResult.created(i, audit(AuditEvent.Type.INVOICE_GENERATED, uncache(saved)));
+                } catch (RuntimeException ex) {
+                    results[i] = saveFailed(i, ex);
+                }
+            }
+        }
+    }
+
+    // pricing rejects bad input with its own messages (line numbers, codes), which are safe to return
+    private static BatchInvoiceResult pricingFailed(int index, RuntimeException ex) {
+        if (ex instanceof IllegalArgumentException || ex instanceof ArithmeticException) {
+            return BatchInvoiceResult.failed(index, BatchInvoiceResult.INVALID_INVOICE, ex.getMessage());
+        }
+        log.warn("Batch invoice {} could not be priced", index, ex);
+        return BatchInvoiceResult.failed(index, BatchInvoiceResult.FAILED, "The invoice could not be priced");
+    }
+
+    // persistence messages carry SQL and constraint names: logged here, never sent to the client
+    private static BatchInvoiceResult saveFailed(int index, RuntimeException ex) {
+        log.warn("Batch invoice {} could not be saved", index, ex);
+        if (ex instanceof DataIntegrityViolationException) {
+            return BatchInvoiceResult.failed(index, BatchInvoiceResult.CONFLICT, "The invoice conflicts with stored data");
+        }
+        return BatchInvoiceResult.failed(index, BatchInvoiceResult.FAILED, "The invoice could not be saved");
+    }
+
+    private Invoice cache(Invoice saved) {
+        invoiceCache.put(saved.getId(), saved);
+        return saved;
+    }
+
+    // A new invoice is persisted as the request body itself, so its patient is whatever the
+    // client posted (often just {"id": 7}); it is never cached. The first findInvoice loads
+    // it with its patient and lines.
+    private Invoice uncache(Invoice saved) {
+        invoiceCache.invalidate(saved.getId());
+        return saved;
+    }
+
+    // queued for the journal's writer thread; adds no I/O to the request
+    private Invoice audit(AuditEvent.Type type, Invoice saved) {
+        metrics.countStatus(saved.getPaymentStatus());
+        long total = saved.getTotalAmount() == null ? 0 : saved.getTotalAmount().getMinorUnits();
+        auditJournal.record(type, saved.getId(), 0, total, saved.getPaymentStatus());
+        return saved;
+    }
+
+    private void priceInvoice(Invoice invoice) {
         // 1. Calculate base cost (e.g., sum of all services + medicines)
-        double baseCost = calculateBaseCost(newInvoice);
+        long start = System.nanoTime();
+        Money baseCost = calculateBaseCost(invoice);
+        metrics.record(Stage.BASE_COST, start);
 
         // 2. Apply insurance logic
-        double discount = applyInsurancePolicy(newInvoice.getPatient());
+        start = System.nanoTime();
+        Money discount = applyInsurancePolicy(invoice.getPatient(), baseCost);
+        metrics.record(Stage.INSURANCE, start);
 
         // 3. Final calculation
-        double finalAmount = baseCost - discount;
-        
-        newInvoice.setTotalAmount(finalAmount);
-        newInvoice.setPaymentStatus("PENDING");
-        
-        // 4. Save to database
-        return invoiceRepository.save(newInvoice);
+        Money finalAmount = baseCost.minus(discount);
+
+        invoice.setInsuranceDiscount(discount);
+        invoice.setTotalAmount(finalAmount);
+        invoice.setPaymentStatus("PENDING");
+    }
+
+    // Sum of the priced lines; also fills in each line's unit price and total
+    private Money calculateBaseCost(Invoice invoice) {
+        return lineCostEngine.baseCost(invoice.getLines());
+    }
+    private Money applyInsurancePolicy(Patient patient, Money baseCost) {
+        return insurancePolicyEngine.discountFor(patient, baseCost);
     }
-    
-    // (Private helper methods for calculation and insurance logic...)
-    private double calculateBaseCost(Invoice invoice) { /* ... logic ... */ return 0.0; }
-    private double applyInsurancePolicy(Patient patient) { /* ... logic ... */ return 0.0; }
 }
@@ -0,0 +1,185 @@
+// src/jmh/java/com/app/bench/BillingServiceBenchmark.java
+
+package com.app.bench;
+
+import com.app.audit.AuditJournal;
+import com.app.metrics.BillingMetrics;
+import com.app.model.InsurancePlan;
+import com.app.model.Invoice;
+import com.app.model.InvoiceLine;
+import com.app.model.Medicine;
+import com.app.model.Money;
+import com.app.model.Patient;
+import com.app.model.ServiceFee;
+import com.app.repository.InsurancePlanRepository;
+import com.app.repository.InvoiceRepository;
+import com.app.repository.MedicineRepository;
+import com.app.repository.PatientRepository;
+import com.app.repository.ServiceFeeRepository;
+import com.app.service.BatchInvoiceResult;
+import com.app.service.BillingService;
+import com.app.service.InsurancePolicyEngine;
+import com.app.service.LineCostEngine;
+import com.app.service.PriceCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * JMH benchmarks for BillingService against in-memory repositories, so the numbers
+ * cover line pricing, insurance evaluation, caching, audit journaling and metrics but not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillingServiceBenchmark {
+
+    // invoices per generateFinalBills call
+    @Param({"1", "500", "5000"})
+    public int batchSize;
+
+    // distinct insured patients; more patients than cache slots forces coverage misses
+    @Param({"1000", "100000"})
+    public int patients;
+
+    private BillingService billingService;
+    private AuditJournal auditJournal;
+    private final AtomicReference<IOException> auditFailure = new AtomicReference<>(); // first write failure
+    private Path auditDir;
+    private long nextPatient;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        InsurancePlan plan = new InsurancePlan();
+        plan.setPlanCode("GOLD");
+        plan.setCoveragePercent(80);
+        plan.setDeductible(10);
+        plan.setCoPay(5);
+        plan.setMaxCoverage(5000);
+
+        InsurancePlanRepository plans = stub(InsurancePlanRepository.class);
+        when(plans.findById(anyString())).thenReturn(Optional.of(plan));
+        PatientRepository patientRepository = stub(PatientRepository.class);
+        when(patientRepository.findInsurancePlanCode(anyLong())).thenReturn(Optional.of("GOLD"));
+        InsurancePolicyEngine engine = new InsurancePolicyEngine(plans, patientRepository, 100, 50_000, 600);
+        auditDir = Files.createTempDirectory("audit-bench");
+        auditJournal = new AuditJournal(auditDir, 65_536, 64L << 20, 2, ex -> auditFailure.compareAndSet(null, ex));
+        billingService = new BillingService(inMemoryInvoices(), engine, new LineCostEngine(inMemoryCatalog(), 2048), auditJournal,
+                new BillingMetrics(new SimpleMeterRegistry()), 100_000, 300);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        auditJournal.close();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(auditDir)) {
+            for (Path f : files) Files.delete(f);
+        }
+        Files.delete(auditDir);
+        if (auditFailure.get() != null) throw auditFailure.get(); // results without the journal writes are not comparable
+    }
+
+    @Benchmark
+    public Invoice generateFinalBill() {
+        return billingService.generateFinalBill(newInvoice());
+    }
+
+    @Benchmark
+    public List<BatchInvoiceResult> generateFinalBills() {
+        List<Invoice> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) batch.add(newInvoice());
+        return billingService.generateFinalBills(batch);
+    }
+
+    private Invoice newInvoice() {
+        Patient p = new Patient();
+        p.setId(1 + (nextPatient++ % patients));
+        Invoice invoice = new Invoice();
+        invoice.setPatient(p);
+        // a typical outpatient bill: consultation plus a few medicines
+        invoice.addLine(line(InvoiceLine.Type.SERVICE, "CONSULT", 1));
+        for (int m = 1; m <= 3; m++) invoice.addLine(line(InvoiceLine.Type.MEDICINE, String.valueOf(m), 10 * m));
+        return invoice;
+    }
+
+    static InvoiceLine line(InvoiceLine.Type type, String code, int quantity) {
+        InvoiceLine line = new InvoiceLine();
+        line.setType(type);
+        line.setCode(code);
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    /* -------------------- In-memory repositories -------------------- */
+    // Stub-only mocks: each stubbed call is checked by the compiler, so a repository change
+    // breaks the build rather than a run, and no invocation is recorded, so long runs don't
+    // grow the heap. A call the benchmark doesn't stub answers empty (Optional.empty(), no rows).
+    static <R> R stub(Class<R> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    // every medicine id and fee code exists, priced from the id/code
+    static PriceCatalog inMemoryCatalog() {
+        MedicineRepository medicines = stub(MedicineRepository.class);
+        when(medicines.findAllById(anyIterable())).thenAnswer(call -> {
+            List<Medicine> found = new ArrayList<>();
+            for (Long id : call.<Iterable<Long>>getArgument(0)) {
+                Medicine m = new Medicine();
+                m.setId(id);
+                m.setPrice(0.25 + (id % 100));
+                found.add(m);
+            }
+            return found;
+        });
+        ServiceFeeRepository fees = stub(ServiceFeeRepository.class);
+        when(fees.findAllById(anyIterable())).thenAnswer(call -> {
+            List<ServiceFee> found = new ArrayList<>();
+            for (String code : call.<Iterable<String>>getArgument(0)) {
+                ServiceFee f = new ServiceFee();
+                f.setCode(code);
+                f.setFee(Money.ofMinor(5_000 + code.hashCode() % 1_000, Money.BILLING_CURRENCY));
+                found.add(f);
+            }
+            return found;
+        });
+        return new PriceCatalog(medicines, fees, 20_000, 3_600);
+    }
+
+    // save/saveAll only assign ids; nothing is kept, and findWithPatientAndLinesById finds nothing
+    static InvoiceRepository inMemoryInvoices() {
+        AtomicLong ids = new AtomicLong();
+        InvoiceRepository invoices = stub(InvoiceRepository.class);
+        when(invoices.save(any(Invoice.class))).thenAnswer(call -> assignId(call.getArgument(0), ids));
+        when(invoices.saveAll(anyIterable())).thenAnswer(call -> {
+            List<Invoice> saved = new ArrayList<>();
+            for (Invoice invoice : call.<Iterable<Invoice>>getArgument(0)) saved.add(assignId(invoice, ids));
+            return saved;
+        });
+        return invoices;
+    }
+
+    private static Invoice assignId(Invoice invoice, AtomicLong ids) {
+        if (invoice.getId() == null) invoice.setId(ids.incrementAndGet());
+        return invoice;
+    }
+}
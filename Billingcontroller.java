@@ -2,38 +2,155 @@
 
 package com.app.controller;
 
+import com.app.cache.IdempotencyStore;
 import com.app.model.Invoice;
+import com.app.repository.InvoiceSummary;
+import com.app.service.BatchInvoiceResult;
 import com.app.service.BillingService;
+import com.app.service.KeysetPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/billing")
 public class BillingController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
     private final BillingService billingService;
+    private final IdempotencyStore<Invoice> idempotency;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
 
-    public BillingController(BillingService billingService) {
+    public BillingController(BillingService billingService, IdempotencyStore<Invoice> idempotency, ObjectMapper objectMapper,
+                             @Value("${billing.batch.max-size:1000}") int maxBatchSize) {
         this.billingService = billingService;
+        this.idempotency = idempotency;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
     }
 
     // Endpoint to generate a new invoice
     // HTTP POST: http://localhost:8080/api/billing/generate
+    // With an Idempotency-Key header a retry returns the first invoice (Idempotent-Replayed: true)
+    // instead of creating another; 422 if the key was used for a different invoice, 409 while the
+    // first request is still running past the wait. 400 with a problem body (errorCode INVALID_INVOICE,
+    // as in a batch) if a line can't be priced: bad quantity or discount, unknown code
     @PostMapping("/generate")
-    public ResponseEntity<Invoice> createInvoice(@RequestBody Invoice invoice) {
-        // The service method performs all the business logic
-        Invoice generatedInvoice = billingService.generateFinalBill(invoice);
-        return new ResponseEntity<>(generatedInvoice, HttpStatus.CREATED);
+    public ResponseEntity<?> createInvoice(@RequestBody Invoice invoice,
+                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String key) {
+        if (key == null) {
+            try {
+                // The service method performs all the business logic
+                Invoice generatedInvoice = billingService.generateFinalBill(invoice);
+                return new ResponseEntity<>(generatedInvoice, HttpStatus.CREATED);
+            } catch (IllegalArgumentException | ArithmeticException ex) {
+                return invalidInvoice(ex);
+            }
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        IdempotencyStore.Outcome<Invoice> outcome;
+        try {
+            // fingerprint first: pricing fills in the invoice
+            outcome = idempotency.execute(key, fingerprint(invoice), () -> billingService.generateFinalBill(invoice));
+        } catch (IdempotencyStore.KeyReusedException ex) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IdempotencyStore.InProgressException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IllegalArgumentException | ArithmeticException ex) {
+            return invalidInvoice(ex); // not stored under the key, so a corrected retry may reuse it
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.isReplayed()))
+                .body(outcome.getValue());
+    }
+
+    // Endpoint to generate many invoices in one call
+    // HTTP POST: http://localhost:8080/api/billing/generate/batch
+    // 201 if every invoice was created, 207 with per-item results otherwise;
+    // 413 for more than billing.batch.max-size invoices, before any is priced
+    @PostMapping("/generate/batch")
+    public ResponseEntity<List<BatchInvoiceResult>> createInvoices(@RequestBody List<Invoice> invoices) {
+        if (invoices.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        List<BatchInvoiceResult> results = billingService.generateFinalBills(invoices);
+        boolean allCreated = results.stream().allMatch(BatchInvoiceResult::isSuccess);
+        return new ResponseEntity<>(results, allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    }
+
+    // Invoice history, newest first, as summaries; follow nextCursor for the next page
+    // HTTP GET: http://localhost:8080/api/billing?patientId=7&size=50&cursor=...
+    @GetMapping
+    public ResponseEntity<KeysetPage<InvoiceSummary>> listInvoices(@RequestParam(required = false) Long patientId,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(billingService.listInvoices(patientId, cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Endpoint to get an invoice by ID
     // HTTP GET: http://localhost:8080/api/billing/{id}
+    // Supports If-None-Match: 304 while the invoice's version is unchanged
     @GetMapping("/{id}")
-    public ResponseEntity<Invoice> getInvoice(@PathVariable Long id) {
-        // Use repository or a dedicated find service method
-        // ... find logic
-        // return ResponseEntity.ok(invoice);
-        return new ResponseEntity<>(HttpStatus.NOT_FOUND); 
+    public ResponseEntity<Invoice> getInvoice(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<Invoice> found = billingService.findInvoice(id);
+        if (found.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Invoice invoice = found.get();
+        String etag = etagOf(invoice);
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(invoice);
+    }
+
+    // Endpoint to change the payment status of an invoice
+    // HTTP PUT: http://localhost:8080/api/billing/{id}/status?value=PAID
+    @PutMapping("/{id}/status")
+    public ResponseEntity<Invoice> updatePaymentStatus(@PathVariable Long id, @RequestParam("value") String status) {
+        return billingService.updatePaymentStatus(id, status)
+                .map(invoice -> ResponseEntity.ok().eTag(etagOf(invoice)).body(invoice))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    // pricing rejects bad input with its own messages (line numbers, codes), which are safe to return
+    private static ResponseEntity<ProblemDetail> invalidInvoice(RuntimeException ex) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problem.setProperty("errorCode", BatchInvoiceResult.INVALID_INVOICE);
+        return ResponseEntity.badRequest().body(problem);
+    }
+
+    // SHA-256 of the request as JSON, so a reused key with another body is caught
+    private byte[] fingerprint(Invoice invoice) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(invoice));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot fingerprint invoice request", ex);
+        }
+    }
+
+    private static String etagOf(Invoice invoice) {
+        return "\"" + invoice.getId() + "-" + invoice.getVersion() + "\"";
     }
 }
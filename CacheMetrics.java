@@ -0,0 +1,70 @@
+// src/main/java/com/app/metrics/CacheMetrics.java
+
+package com.app.metrics;
+
+import com.app.cache.ExpiringLruCache;
+import com.app.cache.IdempotencyStore;
+import com.app.model.Invoice;
+import com.app.service.BillingService;
+import com.app.service.InsurancePolicyEngine;
+import com.app.service.PriceCatalog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Hit, miss and eviction counts and the size of the billing caches, read from
+ * their Stats at scrape time, so the caches themselves carry no meter code.
+ * Also the Idempotency-Key store of invoice submission: requests executed, replayed
+ * from a stored result, or coalesced onto one still running.
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final BillingService billingService;
+    private final InsurancePolicyEngine policyEngine;
+    private final PriceCatalog priceCatalog;
+    private final IdempotencyStore<Invoice> invoiceIdempotency;
+
+    public CacheMetrics(BillingService billingService, InsurancePolicyEngine policyEngine, PriceCatalog priceCatalog,
+                        IdempotencyStore<Invoice> invoiceIdempotency) {
+        this.billingService = billingService;
+        this.policyEngine = policyEngine;
+        this.priceCatalog = priceCatalog;
+        this.invoiceIdempotency = invoiceIdempotency;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "invoices", billingService::invoiceCacheStats);
+        bind(registry, "insurance_plans", policyEngine::planCacheStats);
+        bind(registry, "insurance_patients", policyEngine::patientCacheStats);
+        bind(registry, "medicine_prices", priceCatalog::medicineCacheStats);
+        bind(registry, "service_fees", priceCatalog::feeCacheStats);
+
+        FunctionCounter.builder("billing.idempotency.requests", this, m -> invoiceIdempotency.executedCount())
+                .tag("result", "executed").register(registry);
+        FunctionCounter.builder("billing.idempotency.requests", this, m -> invoiceIdempotency.replayedCount())
+                .tag("result", "replayed").register(registry);
+        FunctionCounter.builder("billing.idempotency.requests", this, m -> invoiceIdempotency.coalescedCount())
+                .tag("result", "coalesced").register(registry);
+        FunctionCounter.builder("billing.idempotency.evictions", this, m -> invoiceIdempotency.evictionCount()).register(registry);
+        Gauge.builder("billing.idempotency.keys", this, m -> invoiceIdempotency.size()).register(registry);
+    }
+
+    // state object is this bean (meters only hold it weakly); the stats supplier is captured in the function
+    private void bind(MeterRegistry registry, String cache, Supplier<ExpiringLruCache.Stats> stats) {
+        FunctionCounter.builder("billing.cache.requests", this, m -> stats.get().getHits())
+                .tags("cache", cache, "result", "hit").register(registry);
+        FunctionCounter.builder("billing.cache.requests", this, m -> stats.get().getMisses())
+                .tags("cache", cache, "result", "miss").register(registry);
+        FunctionCounter.builder("billing.cache.evictions", this, m -> stats.get().getEvictions())
+                .tag("cache", cache).register(registry);
+        Gauge.builder("billing.cache.size", this, m -> stats.get().getSize())
+                .tag("cache", cache).register(registry);
+    }
+}
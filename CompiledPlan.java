@@ -0,0 +1,62 @@
+// src/main/java/com/app/service/CompiledPlan.java
+
+package com.app.service;
+
+import com.app.model.InsurancePlan;
+import com.app.model.Money;
+
+import java.math.RoundingMode;
+
+// Immutable evaluator built once per plan version: the plan's rules are validated and
+// converted to minor units of the billing currency and basis points so evaluating a
+// bill is a few integer operations.
+final class CompiledPlan {
+
+    static final CompiledPlan NO_COVERAGE = new CompiledPlan(null, 0, 0, 0, 0);
+
+    final String planCode;
+    private final long coverageBasisPoints;
+    private final long deductibleCents;
+    private final long coPayCents;
+    private final long maxCoverageCents; // 0 = uncapped
+
+    private CompiledPlan(String planCode, long coverageBasisPoints, long deductibleCents, long coPayCents, long maxCoverageCents) {
+        this.planCode = planCode;
+        this.coverageBasisPoints = coverageBasisPoints;
+        this.deductibleCents = deductibleCents;
+        this.coPayCents = coPayCents;
+        this.maxCoverageCents = maxCoverageCents;
+    }
+
+    // No coverage, but still tied to the plan code so a later change to that plan invalidates it
+    static CompiledPlan uncovered(String planCode) {
+        return new CompiledPlan(planCode, 0, 0, 0, 0);
+    }
+
+    static CompiledPlan compile(InsurancePlan plan) {
+        if (!plan.isActive()) return uncovered(plan.getPlanCode());
+        if (plan.getCoveragePercent() < 0 || plan.getCoveragePercent() > 100) {
+            throw new IllegalArgumentException("Plan " + plan.getPlanCode() + ": coverage must be 0-100%");
+        }
+        if (plan.getDeductible() < 0 || plan.getCoPay() < 0 || plan.getMaxCoverage() < 0) {
+            throw new IllegalArgumentException("Plan " + plan.getPlanCode() + ": amounts must not be negative");
+        }
+        return new CompiledPlan(plan.getPlanCode(),
+                Math.round(plan.getCoveragePercent() * 100),
+                Money.ofApproximate(plan.getDeductible(), Money.BILLING_CURRENCY).getMinorUnits(),
+                Money.ofApproximate(plan.getCoPay(), Money.BILLING_CURRENCY).getMinorUnits(),
+                Money.ofApproximate(plan.getMaxCoverage(), Money.BILLING_CURRENCY).getMinorUnits());
+    }
+
+    // Insurer's share of a bill: (base - deductible) * coverage rounded down, less the co-pay, capped
+    Money discountFor(Money baseCost) {
+        if (!baseCost.getCurrency().equals(Money.BILLING_CURRENCY)) {
+            throw new IllegalArgumentException("Plans are in " + Money.BILLING_CURRENCY + ", bill is " + baseCost);
+        }
+        if (coverageBasisPoints == 0) return Money.zero(Money.BILLING_CURRENCY);
+        long covered = Money.percentOf(Math.max(0, baseCost.getMinorUnits() - deductibleCents), coverageBasisPoints, RoundingMode.DOWN);
+        covered = Math.max(0, covered - coPayCents);
+        if (maxCoverageCents > 0) covered = Math.min(covered, maxCoverageCents);
+        return Money.ofMinor(covered, Money.BILLING_CURRENCY);
+    }
+}
@@ -0,0 +1,159 @@
+// src/main/java/com/app/cache/ExpiringLruCache.java
+
+package com.app.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache whose entries also expire a fixed time after they were loaded.
+ *
+ * Lookups take a short lock on the map; loaders run outside it, so a slow load does not
+ * block other keys. A value loaded while an invalidation happened is returned but not
+ * cached, so a load that raced with an invalidation can't put stale data back.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> map;
+    private long invalidations; // guarded by map
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringLruCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** Cached value for the key, loading (and caching) it on a miss. Null results are not cached. */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long seenInvalidations;
+        synchronized (map) {
+            Entry<V> e = map.get(key);
+            if (e != null && e.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return e.value;
+            }
+            if (e != null) {
+                map.remove(key);
+                evictions.increment();
+            }
+            seenInvalidations = invalidations;
+        }
+        misses.increment();
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (map) {
+                if (invalidations == seenInvalidations) putLocked(key, value);
+            }
+        }
+        return value;
+    }
+
+    /** Cached value or null; does not load. Counts as a hit or miss. */
+    public V getIfPresent(K key) {
+        synchronized (map) {
+            Entry<V> e = map.get(key);
+            if (e != null && e.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return e.value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        synchronized (map) {
+            putLocked(key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (map) {
+            invalidations++;
+            map.remove(key);
+        }
+    }
+
+    /** Drop every entry matching the predicate (a full scan; meant for rare policy changes). */
+    public void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        synchronized (map) {
+            invalidations++;
+            Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Entry<V>> e = it.next();
+                if (predicate.test(e.getKey(), e.getValue().value)) it.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (map) {
+            invalidations++;
+            map.clear();
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (map) {
+            size = map.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private void putLocked(K key, V value) {
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        if (map.size() > maxSize) {
+            Iterator<Entry<V>> eldest = map.values().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Point-in-time counters; evictions include both size and expiry evictions
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
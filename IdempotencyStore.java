@@ -0,0 +1,172 @@
+// src/main/java/com/app/cache/IdempotencyStore.java
+
+package com.app.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of requests by client-chosen Idempotency-Key, so a retried
+ * request gets the original response instead of being executed again.
+ *
+ * The first request with a key runs; a duplicate that arrives while it is still running
+ * waits for it and shares its result (one execution, however many retries pile up), and
+ * a duplicate arriving later gets the stored result until it expires. Keys are kept in
+ * arrival order and bounded: past maxKeys the oldest are dropped, as are expired ones
+ * each time a key is added. A request that fails is forgotten, so the client can retry it.
+ *
+ * A key reused with a different request (fingerprint) is refused rather than answered with
+ * the other request's result. Keys live in this process only; a restart forgets them.
+ */
+public class IdempotencyStore<T> {
+
+    /** The key was already used for a different request. */
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String key) {
+            super("Idempotency-Key " + key + " was used for a different request");
+        }
+    }
+
+    /** A request with the same key is still running and did not finish within the wait. */
+    public static class InProgressException extends RuntimeException {
+        public InProgressException(String key) {
+            super("A request with Idempotency-Key " + key + " is still in progress");
+        }
+    }
+
+    /** A result, and whether it was replayed from an earlier request. */
+    public static final class Outcome<T> {
+        private final T value;
+        private final boolean replayed;
+
+        Outcome(T value, boolean replayed) {
+            this.value = value;
+            this.replayed = replayed;
+        }
+
+        public T getValue() { return value; }
+        public boolean isReplayed() { return replayed; }
+    }
+
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final long waitNanos;
+    private final LinkedHashMap<String, Entry<T>> map = new LinkedHashMap<>(); // insertion = expiry order
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param ttl  how long a result is replayed
+     * @param wait how long a duplicate waits for the original still in flight
+     */
+    public IdempotencyStore(int maxKeys, long ttl, long wait, TimeUnit unit) {
+        this.maxKeys = maxKeys;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.waitNanos = unit.toNanos(wait);
+    }
+
+    /**
+     * Run work once per key. fingerprint identifies the request (e.g. a hash of its body);
+     * a duplicate must have the same one.
+     */
+    public Outcome<T> execute(String key, byte[] fingerprint, Supplier<? extends T> work) {
+        Entry<T> e;
+        boolean first = false;
+        synchronized (map) {
+            long now = System.nanoTime();
+            e = map.get(key);
+            if (e != null && e.expiresAt - now <= 0) {
+                map.remove(key);
+                e = null;
+            }
+            if (e == null) {
+                e = new Entry<>(fingerprint, now + ttlNanos);
+                map.put(key, e);
+                first = true;
+                evictLocked(now);
+            }
+        }
+        if (!Arrays.equals(e.fingerprint, fingerprint)) throw new KeyReusedException(key);
+
+        if (first) {
+            executed.increment();
+            T value;
+            try {
+                value = work.get();
+            } catch (RuntimeException | Error ex) {
+                synchronized (map) {
+                    map.remove(key, e);
+                }
+                e.result.completeExceptionally(ex); // waiting duplicates fail the same way
+                throw ex;
+            }
+            e.result.complete(value);
+            return new Outcome<>(value, false);
+        }
+
+        if (e.result.isDone()) replayed.increment();
+        else coalesced.increment();
+        try {
+            return new Outcome<>(e.result.get(waitNanos, TimeUnit.NANOSECONDS), true);
+        } catch (TimeoutException ex) {
+            throw new InProgressException(key);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InProgressException(key);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // expired keys are at the head; past maxKeys the oldest go too, expired or not
+    private void evictLocked(long now) {
+        Iterator<Entry<T>> it = map.values().iterator();
+        while (it.hasNext()) {
+            Entry<T> e = it.next();
+            if (map.size() <= maxKeys && e.expiresAt - now > 0) break;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /** Requests that ran. */
+    public long executedCount() { return executed.sum(); }
+
+    /** Duplicates answered with a stored result. */
+    public long replayedCount() { return replayed.sum(); }
+
+    /** Duplicates that arrived while the original was running and shared its result. */
+    public long coalescedCount() { return coalesced.sum(); }
+
+    public long evictionCount() { return evictions.sum(); }
+
+    private static final class Entry<T> {
+        final byte[] fingerprint;
+        final long expiresAt;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Entry(byte[] fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+// src/main/java/com/app/controller/InsuranceController.java
+
+package com.app.controller;
+
+import com.app.cache.ExpiringLruCache;
+import com.app.model.InsurancePlan;
+import com.app.service.InsurancePolicyEngine;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/insurance")
+public class InsuranceController {
+
+    private final InsurancePolicyEngine policyEngine;
+
+    public InsuranceController(InsurancePolicyEngine policyEngine) {
+        this.policyEngine = policyEngine;
+    }
+
+    // A plan with its current version
+    // HTTP GET: http://localhost:8080/api/insurance/plans/{planCode}
+    @GetMapping("/plans/{planCode}")
+    public ResponseEntity<InsurancePlan> getPlan(@PathVariable String planCode) {
+        return policyEngine.findPlan(planCode)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    // Create or change a plan; cached coverage for the plan is invalidated
+    // HTTP PUT: http://localhost:8080/api/insurance/plans/{planCode}
+    // version in the body is optional; 409 if it is not the current one, or the plan changed meanwhile
+    @PutMapping("/plans/{planCode}")
+    public ResponseEntity<InsurancePlan> savePlan(@PathVariable String planCode, @RequestBody InsurancePlan plan) {
+        plan.setPlanCode(planCode);
+        try {
+            return ResponseEntity.ok(policyEngine.savePlan(plan));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    // Hit/miss counters of the plan and per-patient coverage caches
+    // HTTP GET: http://localhost:8080/api/insurance/cache-stats
+    @GetMapping("/cache-stats")
+    public Map<String, ExpiringLruCache.Stats> cacheStats() {
+        Map<String, ExpiringLruCache.Stats> stats = new LinkedHashMap<>();
+        stats.put("plans", policyEngine.planCacheStats());
+        stats.put("patients", policyEngine.patientCacheStats());
+        return stats;
+    }
+}
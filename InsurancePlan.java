@@ -0,0 +1,47 @@
+// src/main/java/com/app/model/InsurancePlan.java
+
+package com.app.model;
+
+import jakarta.persistence.*;
+
+// Coverage rules of one insurer plan; evaluated by InsurancePolicyEngine
+@Entity
+@Table(name = "insurance_plans")
+public class InsurancePlan {
+    @Id
+    private String planCode;
+
+    private String insurer;
+
+    private double coveragePercent; // share of the bill above the deductible the insurer pays, 0-100
+    private double deductible;      // per invoice, paid by the patient before coverage starts
+    private double coPay;           // fixed amount the patient pays on every covered invoice
+    private double maxCoverage;     // per invoice cap on the insurer's share; 0 = no cap
+    private boolean active = true;
+
+    @Version
+    private Long version; // null until first saved; a client may send it back to guard its change
+
+    public String getPlanCode() { return planCode; }
+    public void setPlanCode(String planCode) { this.planCode = planCode; }
+
+    public String getInsurer() { return insurer; }
+    public void setInsurer(String insurer) { this.insurer = insurer; }
+
+    public double getCoveragePercent() { return coveragePercent; }
+    public void setCoveragePercent(double coveragePercent) { this.coveragePercent = coveragePercent; }
+
+    public double getDeductible() { return deductible; }
+    public void setDeductible(double deductible) { this.deductible = deductible; }
+
+    public double getCoPay() { return coPay; }
+    public void setCoPay(double coPay) { this.coPay = coPay; }
+
+    public double getMaxCoverage() { return maxCoverage; }
+    public void setMaxCoverage(double maxCoverage) { this.maxCoverage = maxCoverage; }
+
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+
+    public Long getVersion() { return version; }
+}
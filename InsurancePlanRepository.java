@@ -0,0 +1,9 @@
+// src/main/java/com/app/repository/InsurancePlanRepository.java
+
+package com.app.repository;
+
+import com.app.model.InsurancePlan;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InsurancePlanRepository extends JpaRepository<InsurancePlan, String> {
+}
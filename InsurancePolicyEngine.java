@@ -0,0 +1,112 @@
+// src/main/java/com/app/service/InsurancePolicyEngine.java
+
+package com.app.service;
+
+import com.app.cache.ExpiringLruCache;
+import com.app.model.InsurancePlan;
+import com.app.model.Money;
+import com.app.model.Patient;
+import com.app.repository.InsurancePlanRepository;
+import com.app.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves a patient's insurance coverage and evaluates it against a bill.
+ *
+ * Two caches sit in front of the database: compiled plans by plan code, and the
+ * resolved plan by patient id (saving the patient -> plan lookup). Both are LRU
+ * with a TTL; changes made through {@link #savePlan} invalidate them right away,
+ * changes made elsewhere are picked up when entries expire.
+ */
+@Service
+public class InsurancePolicyEngine {
+
+    private final InsurancePlanRepository planRepository;
+    private final PatientRepository patientRepository;
+    private final ExpiringLruCache<String, CompiledPlan> plans;
+    private final ExpiringLruCache<Long, CompiledPlan> coverageByPatient;
+
+    public InsurancePolicyEngine(InsurancePlanRepository planRepository,
+                                 PatientRepository patientRepository,
+                                 @Value("${billing.insurance.cache.max-plans:1000}") int maxPlans,
+                                 @Value("${billing.insurance.cache.max-patients:50000}") int maxPatients,
+                                 @Value("${billing.insurance.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.planRepository = planRepository;
+        this.patientRepository = patientRepository;
+        this.plans = new ExpiringLruCache<>(maxPlans, ttlSeconds, TimeUnit.SECONDS);
+        this.coverageByPatient = new ExpiringLruCache<>(maxPatients, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    // Amount the insurer covers on a bill of baseCost for this patient (0 if uninsured)
+    public Money discountFor(Patient patient, Money baseCost) {
+        if (patient == null || baseCost.signum() <= 0) return Money.zero(baseCost.getCurrency());
+        return resolve(patient).discountFor(baseCost);
+    }
+
+    public Optional<InsurancePlan> findPlan(String planCode) {
+        return planRepository.findById(planCode);
+    }
+
+    // Create or replace a plan and drop every cached result derived from it. The rules are
+    // copied onto the stored plan, so its version carries over; if the request has a version
+    // it must be the stored one. Either way a change committed in between is an
+    // ObjectOptimisticLockingFailureException rather than a lost update.
+    public InsurancePlan savePlan(InsurancePlan plan) {
+        CompiledPlan.compile(plan); // reject invalid rules before they reach the database
+        InsurancePlan stored = planRepository.findById(plan.getPlanCode()).orElse(null);
+        if (stored == null) {
+            stored = plan;
+        } else {
+            if (plan.getVersion() != null && !plan.getVersion().equals(stored.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(InsurancePlan.class, plan.getPlanCode());
+            }
+            stored.setInsurer(plan.getInsurer());
+            stored.setCoveragePercent(plan.getCoveragePercent());
+            stored.setDeductible(plan.getDeductible());
+            stored.setCoPay(plan.getCoPay());
+            stored.setMaxCoverage(plan.getMaxCoverage());
+            stored.setActive(plan.isActive());
+        }
+        InsurancePlan saved = planRepository.save(stored); // commits before we invalidate
+        onPlanChanged(saved.getPlanCode());
+        return saved;
+    }
+
+    public void onPlanChanged(String planCode) {
+        plans.invalidate(planCode);
+        coverageByPatient.invalidateIf((patientId, plan) -> Objects.equals(plan.planCode, planCode));
+    }
+
+    // Call when a patient is moved to another plan
+    public void onPatientPlanChanged(Long patientId) {
+        coverageByPatient.invalidate(patientId);
+    }
+
+    public ExpiringLruCache.Stats planCacheStats() {
+        return plans.stats();
+    }
+
+    public ExpiringLruCache.Stats patientCacheStats() {
+        return coverageByPatient.stats();
+    }
+
+    private CompiledPlan resolve(Patient patient) {
+        // a patient not yet saved can only carry its plan in the request itself
+        if (patient.getId() == null) return planFor(patient.getInsurancePlanCode());
+        return coverageByPatient.get(patient.getId(),
+                id -> planFor(patientRepository.findInsurancePlanCode(id).orElse(null)));
+    }
+
+    private CompiledPlan planFor(String planCode) {
+        if (planCode == null) return CompiledPlan.NO_COVERAGE;
+        return plans.get(planCode, code -> planRepository.findById(code)
+                .map(CompiledPlan::compile)
+                .orElseGet(() -> CompiledPlan.uncovered(code)));
+    }
+}
@@ -0,0 +1,77 @@
+// src/main/java/com/app/alert/InventoryAlertWatcher.java
+
+package com.app.alert;
+
+import com.app.alert.StockLevelChangedEvent.Level;
+import com.app.model.Medicine;
+import com.app.repository.MedicineRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Tracks each medicine's stock level (OK / LOW / OUT_OF_STOCK) as stock changes and
+ * publishes a {@link StockLevelChangedEvent} only when the level changes.
+ *
+ * Fed by {@link MedicineStockListener} on every insert/update, so a stock-out that is
+ * refilled a minute later is still reported, without polling the medicines table.
+ * Events fire at flush time; listeners that must only see committed changes should
+ * use {@code @TransactionalEventListener}.
+ */
+@Component
+public class InventoryAlertWatcher {
+
+    static final int EXPIRY_PAGE_SIZE = 500;
+
+    private final ApplicationEventPublisher events;
+    // looked up lazily: the repository needs the EntityManagerFactory, which needs our listener
+    private final ObjectProvider<MedicineRepository> medicineRepository;
+    private final Map<Long, Level> levels = new ConcurrentHashMap<>();
+
+    public InventoryAlertWatcher(ApplicationEventPublisher events, ObjectProvider<MedicineRepository> medicineRepository) {
+        this.events = events;
+        this.medicineRepository = medicineRepository;
+    }
+
+    public void onStockChanged(Medicine m) {
+        Level current = levelOf(m);
+        Level previous = levels.put(m.getId(), current);
+        // a medicine seen for the first time only alerts if it is already short
+        if (previous == current || (previous == null && current == Level.OK)) return;
+        events.publishEvent(new StockLevelChangedEvent(m.getId(), m.getName(), previous, current,
+                m.getStockQuantity(), m.getReorderLevel()));
+    }
+
+    public void onRemoved(Medicine m) {
+        levels.remove(m.getId());
+    }
+
+    public Level currentLevel(Long medicineId) {
+        return levels.get(medicineId);
+    }
+
+    // Visit every medicine expiring before the date, one indexed page at a time
+    public void forEachExpiringBefore(LocalDate date, Consumer<Medicine> action) {
+        Pageable page = PageRequest.of(0, EXPIRY_PAGE_SIZE);
+        Slice<Medicine> slice;
+        do {
+            slice = medicineRepository.getObject().findExpiringBefore(date, page);
+            slice.forEach(action);
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+    }
+
+    static Level levelOf(Medicine m) {
+        if (m.getStockQuantity() <= 0) return Level.OUT_OF_STOCK;
+        if (m.getStockQuantity() <= m.getReorderLevel()) return Level.LOW;
+        return Level.OK;
+    }
+}
@@ -0,0 +1,147 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * One inventory change as it travels between terminals and the {@link SyncHub}.
+ *
+ * Deltas are operations, not states: a sale is {@code ADJUST(id, -2)}, not "quantity
+ * is now 18". Adjustments commute, so two counters selling the same medicine at the
+ * same moment both take effect instead of one overwriting the other. Name and price
+ * edits ({@code UPSERT}) are last-writer-wins in hub order; {@code DELETE} wins over
+ * anything after it. Every terminal and the hub apply deltas with the same
+ * {@link #applyTo} rules in the same (hub version) order, so they converge.
+ *
+ * Wire form of a DELTA frame (big-endian):
+ * <pre>
+ *   type:byte version:long origin:long opId:long op:byte id:long
+ *   UPSERT: price:long qty:int nameLen:short name:utf8   ADJUST: delta:int   DELETE: -
+ * </pre>
+ * version is 0 until the hub assigns one; origin + opId identify the op so the hub
+ * can drop a resent duplicate and the sender can recognise its own op coming back.
+ */
+public final class InventoryDelta {
+
+    public enum Op {
+        UPSERT(1), ADJUST(2), DELETE(3);
+
+        final byte code;
+
+        Op(int code) {
+            this.code = (byte) code;
+        }
+
+        static Op ofCode(byte code) {
+            for (Op op : values()) if (op.code == code) return op;
+            throw new IllegalArgumentException("Unknown delta op " + code);
+        }
+    }
+
+    /** A medicine's synced fields. Immutable. */
+    public static final class Item {
+        public final String name;
+        public final long priceMinor;
+        public final int quantity;
+
+        public Item(String name, long priceMinor, int quantity) {
+            this.name = name;
+            this.priceMinor = priceMinor;
+            this.quantity = quantity;
+        }
+
+        boolean sameAs(Item o) {
+            return o != null && priceMinor == o.priceMinor && quantity == o.quantity && name.equals(o.name);
+        }
+    }
+
+    static final byte FRAME = 1;
+    private static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+
+    final long version;
+    final long origin;
+    final long opId;
+    final Op op;
+    final long id;
+    final String name;     // UPSERT
+    final long priceMinor; // UPSERT
+    final int quantity;    // UPSERT: initial stock of a new medicine; ADJUST: change
+
+    InventoryDelta(long version, long origin, long opId, Op op, long id, String name, long priceMinor, int quantity) {
+        this.version = version;
+        this.origin = origin;
+        this.opId = opId;
+        this.op = op;
+        this.id = id;
+        this.name = name;
+        this.priceMinor = priceMinor;
+        this.quantity = quantity;
+    }
+
+    InventoryDelta withVersion(long v) {
+        return new InventoryDelta(v, origin, opId, op, id, name, priceMinor, quantity);
+    }
+
+    /**
+     * The item after this delta. UPSERT of an existing item changes name and price and
+     * keeps its stock; ADJUST of a deleted item is dropped. Stock may go negative when
+     * counters oversell concurrently; that is left visible rather than hidden.
+     *
+     * @return the new item, or null if it does not exist (any more)
+     */
+    Item applyTo(Item current) {
+        switch (op) {
+            case UPSERT:
+                return new Item(name, priceMinor, current == null ? quantity : current.quantity);
+            case ADJUST:
+                return current == null ? null : new Item(current.name, current.priceMinor, current.quantity + quantity);
+            default:
+                return null;
+        }
+    }
+
+    void applyTo(Map<Long, Item> state) {
+        Item next = applyTo(state.get(id));
+        if (next == null) state.remove(id);
+        else state.put(id, next);
+    }
+
+    /* -------------------- Codec -------------------- */
+    byte[] encode() {
+        byte[] n = op == Op.UPSERT ? name.getBytes(StandardCharsets.UTF_8) : null;
+        if (n != null && n.length > MAX_NAME_BYTES) throw new IllegalArgumentException("Medicine name too long");
+        int len = 1 + 8 + 8 + 8 + 1 + 8 + (op == Op.UPSERT ? 8 + 4 + 2 + n.length : op == Op.ADJUST ? 4 : 0);
+        ByteBuffer b = ByteBuffer.allocate(len);
+        b.put(FRAME).putLong(version).putLong(origin).putLong(opId).put(op.code).putLong(id);
+        if (op == Op.UPSERT) b.putLong(priceMinor).putInt(quantity).putShort((short) n.length).put(n);
+        else if (op == Op.ADJUST) b.putInt(quantity);
+        return b.array();
+    }
+
+    static InventoryDelta decode(ByteBuffer b) {
+        if (b.get() != FRAME) throw new IllegalArgumentException("Not a delta frame");
+        long version = b.getLong();
+        long origin = b.getLong();
+        long opId = b.getLong();
+        Op op = Op.ofCode(b.get());
+        long id = b.getLong();
+        switch (op) {
+            case UPSERT: {
+                long price = b.getLong();
+                int qty = b.getInt();
+                byte[] n = new byte[b.getShort() & 0xFFFF];
+                b.get(n);
+                return new InventoryDelta(version, origin, opId, op, id, new String(n, StandardCharsets.UTF_8), price, qty);
+            }
+            case ADJUST:
+                return new InventoryDelta(version, origin, opId, op, id, null, 0, b.getInt());
+            default:
+                return new InventoryDelta(version, origin, opId, op, id, null, 0, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + op + " #" + id + (op == Op.UPSERT ? " " + name + " " + priceMinor + " x" + quantity
+                : op == Op.ADJUST ? " " + (quantity >= 0 ? "+" : "") + quantity : "");
+    }
+}
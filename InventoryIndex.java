@@ -0,0 +1,268 @@
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Name search index over the pharmacy inventory.
+ *
+ * Every indexed medicine gets an int slot; names are indexed by full name and
+ * by word (sorted maps, for prefix matches) and by trigram (sorted slot arrays,
+ * for matches inside a word). Lookups walk the best-ranked structures first and
+ * stop as soon as enough hits are found, so the cost depends on the result
+ * limit rather than on the inventory size.
+ *
+ * Medicines with a supplier SKU are also kept in a map by SKU.
+ *
+ * The index follows the inventory list through a change listener; in-place
+ * renames (and SKU edits) do not fire list events, so callers report them with
+ * {@link #reindex(PatientPharmacyApp.Medicine)}.
+ *
+ * Not thread-safe: use from the FX thread, like the inventory list itself.
+ */
+public class InventoryIndex {
+
+    private static final int GRAM = 3;
+
+    private PatientPharmacyApp.Medicine[] items = new PatientPharmacyApp.Medicine[64];
+    private String[] keys = new String[64];
+    private String[] skus = new String[64]; // the SKU each slot was indexed under
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot;
+    private final Map<PatientPharmacyApp.Medicine, Integer> slotOf = new IdentityHashMap<>();
+
+    private final TreeMap<String, SlotList> names = new TreeMap<>();
+    private final TreeMap<String, SlotList> words = new TreeMap<>();
+    private final Map<String, SlotList> grams = new HashMap<>();
+    private final Map<String, PatientPharmacyApp.Medicine> bySku = new HashMap<>();
+
+    /** Index the current contents of the list and follow its add/remove events. */
+    public void bind(ObservableList<PatientPharmacyApp.Medicine> inventory) {
+        inventory.forEach(this::add);
+        inventory.addListener((ListChangeListener<PatientPharmacyApp.Medicine>) c -> {
+            while (c.next()) {
+                if (c.wasPermutated()) continue;
+                c.getRemoved().forEach(this::remove);
+                c.getAddedSubList().forEach(this::add);
+            }
+        });
+    }
+
+    public void add(PatientPharmacyApp.Medicine m) {
+        if (m == null || slotOf.containsKey(m)) return;
+        int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+        if (slot == items.length) {
+            items = Arrays.copyOf(items, slot * 2);
+            keys = Arrays.copyOf(keys, slot * 2);
+            skus = Arrays.copyOf(skus, slot * 2);
+        }
+        String key = normalize(m.getName());
+        items[slot] = m;
+        keys[slot] = key;
+        slotOf.put(m, slot);
+        if (m.getSku() != null) {
+            skus[slot] = normalizeSku(m.getSku());
+            bySku.put(skus[slot], m);
+        }
+
+        names.computeIfAbsent(key, k -> new SlotList()).add(slot);
+        for (String w : wordsOf(key)) words.computeIfAbsent(w, k -> new SlotList()).add(slot);
+        for (String g : gramsOf(key)) grams.computeIfAbsent(g, k -> new SlotList()).add(slot);
+    }
+
+    public void remove(PatientPharmacyApp.Medicine m) {
+        Integer slot = slotOf.remove(m);
+        if (slot == null) return;
+        if (skus[slot] != null) {
+            bySku.remove(skus[slot], m);
+            skus[slot] = null;
+        }
+        String key = keys[slot];
+        removeFrom(names, key, slot);
+        for (String w : wordsOf(key)) removeFrom(words, w, slot);
+        for (String g : gramsOf(key)) removeFrom(grams, g, slot);
+        items[slot] = null;
+        keys[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    /** Re-index a medicine whose name was edited in place. */
+    public void reindex(PatientPharmacyApp.Medicine m) {
+        remove(m);
+        add(m);
+    }
+
+    public int size() {
+        return slotOf.size();
+    }
+
+    /** The medicine with exactly this name (ignoring case and surrounding blanks), or null. */
+    public PatientPharmacyApp.Medicine findExact(String name) {
+        SlotList slots = names.get(normalize(name));
+        return slots == null ? null : items[slots.slots[0]];
+    }
+
+    /** The medicine with this supplier SKU (ignoring case and surrounding blanks), or null. */
+    public PatientPharmacyApp.Medicine findBySku(String sku) {
+        return sku == null ? null : bySku.get(normalizeSku(sku));
+    }
+
+    static String normalizeSku(String sku) {
+        return sku.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /** Every medicine whose name contains the query anywhere (all medicines for a blank query). */
+    public List<PatientPharmacyApp.Medicine> filter(String query) {
+        String q = normalize(query);
+        List<PatientPharmacyApp.Medicine> out = new ArrayList<>();
+        if (q.length() >= GRAM) {
+            forEachInfix(q, s -> out.add(items[s]));
+            return out;
+        }
+        // too short for trigrams: scan the lower-cased names kept by the index
+        for (int s = 0; s < nextSlot; s++) {
+            if (keys[s] != null && keys[s].contains(q)) out.add(items[s]);
+        }
+        return out;
+    }
+
+    /**
+     * Return up to {@code limit} medicines matching the query, best first: names starting
+     * with the query, then names with a word starting with it, then (for queries of three
+     * or more characters) names containing it anywhere.
+     */
+    public List<PatientPharmacyApp.Medicine> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        int[] taken = new int[limit];
+        int n = collectPrefixed(names, q, taken, 0);
+        if (n < limit) n = collectPrefixed(words, q, taken, n);
+        if (n < limit && q.length() >= GRAM) n = collectInfix(q, taken, n);
+
+        List<PatientPharmacyApp.Medicine> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) result.add(items[taken[i]]);
+        return result;
+    }
+
+    /* -------------------- Internals -------------------- */
+    private static int collectPrefixed(TreeMap<String, SlotList> map, String q, int[] taken, int n) {
+        for (SlotList slots : map.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < slots.size; i++) {
+                int s = slots.slots[i];
+                if (!contains(taken, n, s)) {
+                    taken[n++] = s;
+                    if (n == taken.length) return n;
+                }
+            }
+        }
+        return n;
+    }
+
+    private int collectInfix(String q, int[] taken, int n) {
+        int[] count = {n};
+        forEachInfix(q, s -> {
+            if (!contains(taken, count[0], s)) taken[count[0]++] = s;
+            return count[0] < taken.length;
+        });
+        return count[0];
+    }
+
+    // visit slots whose name contains q (q.length() >= GRAM) in slot order, until the visitor returns false
+    private void forEachInfix(String q, IntPredicate visitor) {
+        List<SlotList> postings = new ArrayList<>();
+        for (String g : gramsOf(q)) {
+            SlotList p = grams.get(g);
+            if (p == null) return;
+            postings.add(p);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size, b.size));
+        SlotList rarest = postings.get(0);
+        int[] cursor = new int[postings.size()];
+        outer:
+        for (int i = 0; i < rarest.size; i++) {
+            int s = rarest.slots[i];
+            // postings are sorted, so every other list is walked forward exactly once
+            for (int p = 1; p < postings.size(); p++) {
+                SlotList other = postings.get(p);
+                while (cursor[p] < other.size && other.slots[cursor[p]] < s) cursor[p]++;
+                if (cursor[p] == other.size) break outer;
+                if (other.slots[cursor[p]] != s) continue outer;
+            }
+            // all trigrams present; check they form one contiguous run
+            if (keys[s].contains(q) && !visitor.test(s)) return;
+        }
+    }
+
+    private static boolean contains(int[] a, int n, int v) {
+        for (int i = 0; i < n; i++) if (a[i] == v) return true;
+        return false;
+    }
+
+    private static void removeFrom(Map<String, SlotList> map, String key, int slot) {
+        SlotList l = map.get(key);
+        if (l != null && l.remove(slot) && l.size == 0) map.remove(key);
+    }
+
+    private static List<String> gramsOf(String key) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            String g = key.substring(i, i + GRAM);
+            if (!out.contains(g)) out.add(g);
+        }
+        return out;
+    }
+
+    private static List<String> wordsOf(String key) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= key.length(); i++) {
+            boolean word = i < key.length() && Character.isLetterOrDigit(key.charAt(i));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                String w = key.substring(start, i);
+                if (!out.contains(w)) out.add(w);
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Sorted, growable array of slots. New slots are usually the largest, so adds are appends. */
+    private static final class SlotList {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            int pos = size == 0 || slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+            if (pos >= 0 && pos < size) return; // already present
+            if (pos < 0) pos = -pos - 1;
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+            slots[pos] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int pos = Arrays.binarySearch(slots, 0, size, slot);
+            if (pos < 0) return false;
+            System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+}
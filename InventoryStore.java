@@ -0,0 +1,340 @@
+import com.app.model.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent inventory: a binary snapshot plus an append-only log of changes.
+ *
+ * Files in the store directory:
+ * <pre>
+ *   inventory.snap  magic, version, lastSeq, nextId, count, records..., crc32
+ *                   record = id:long priceCents:long qty:int nameLen:int name:utf8 skuLen:int sku:utf8
+ *                   (prices in minor units of Money.BILLING_CURRENCY; skuLen 0 = no sku)
+ *   inventory.log   entries of len:int crc32:int payload
+ *                   payload = seq:long op:byte id:long [record fields after id]
+ * </pre>
+ * Version 1 files (before SKUs) have no sku fields: their snapshot is read as such,
+ * and their log entries use the old put op code. Both are rewritten as version 2 by
+ * the next snapshot.
+ * Both files are read whole into heap buffers on {@link #load()}: the snapshot
+ * first, then log entries newer than it. They are not memory-mapped, because the log
+ * is later truncated and the snapshot replaced, which Windows refuses while a mapping
+ * is live. A torn entry at the end of the log (a crash mid-write) ends the replay and
+ * is cut off.
+ *
+ * {@link #put} and {@link #delete} only enqueue; a writer thread appends whatever
+ * has queued up as one write plus one fsync (group commit) and rewrites the
+ * snapshot every {@value #SNAPSHOT_EVERY} entries, emptying the log.
+ */
+public class InventoryStore implements Closeable {
+
+    static final int SNAPSHOT_EVERY = 20_000;
+
+    private static final int MAGIC = 0x494E5653; // "INVS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final byte OP_PUT_V1 = 1; // no sku
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_PUT = 3;
+    private static final int MAX_BATCH = 1024;
+    private static final Op STOP = new Op(0, null, 0, 0, null, true);
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    // state as of the last applied entry; owned by the writer thread after load()
+    private final Map<Long, Rec> state = new LinkedHashMap<>();
+    private long lastSeq;
+    private long entriesSinceSnapshot;
+    private FileChannel log;
+    private Thread writer;
+    private final Consumer<IOException> errorHandler;
+
+    /** @param errorHandler called on the writer thread when a commit or snapshot fails */
+    public InventoryStore(Path dir, Consumer<IOException> errorHandler) throws IOException {
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+        Files.createDirectories(dir);
+        this.snapshotFile = dir.resolve("inventory.snap");
+        this.logFile = dir.resolve("inventory.log");
+    }
+
+    /**
+     * Rebuild the inventory from snapshot + log and start the writer. Call once,
+     * before any put/delete. Medicines come back in insertion order with their ids set.
+     */
+    public List<PatientPharmacyApp.Medicine> load() throws IOException {
+        long good = 0;
+        readSnapshot();
+        if (Files.exists(logFile)) good = replayLog();
+
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(good);
+        log.position(good);
+
+        List<PatientPharmacyApp.Medicine> out = new ArrayList<>(state.size());
+        for (Map.Entry<Long, Rec> e : state.entrySet()) {
+            Rec r = e.getValue();
+            PatientPharmacyApp.Medicine m = new PatientPharmacyApp.Medicine(r.name, Money.ofMinor(r.priceCents, Money.BILLING_CURRENCY), r.qty);
+            m.setId(e.getKey());
+            m.setSku(r.sku);
+            out.add(m);
+        }
+
+        writer = new Thread(this::writeLoop, "inventory-store");
+        writer.setDaemon(true);
+        writer.start();
+        return out;
+    }
+
+    /** Record the medicine's current values, assigning it an id on first save. */
+    public void put(PatientPharmacyApp.Medicine m) {
+        if (m.getId() == 0) m.setId(nextId.getAndIncrement());
+        else nextId.accumulateAndGet(m.getId() + 1, Math::max); // ids restored from elsewhere (e.g. the audit journal)
+        queue.add(new Op(m.getId(), m.getName(), m.getPrice().getMinorUnits(), m.getQuantity(), m.getSku(), false));
+    }
+
+    public void delete(PatientPharmacyApp.Medicine m) {
+        if (m.getId() != 0) queue.add(new Op(m.getId(), null, 0, 0, null, true));
+    }
+
+    /** Commit everything queued, write a final snapshot and stop the writer. */
+    @Override
+    public void close() throws IOException {
+        if (writer == null) return;
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        try {
+            if (entriesSinceSnapshot > 0) writeSnapshot();
+        } finally {
+            log.close();
+        }
+    }
+
+    /* -------------------- Loading -------------------- */
+    private void readSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) return;
+        try (FileChannel ch = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer buf = readFully(ch);
+            int size = buf.limit();
+            if (size < HEADER_BYTES + 8 || buf.getInt(0) != MAGIC) throw new IOException("Not an inventory snapshot: " + snapshotFile);
+            int version = buf.getInt(4);
+            if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(0, size - 8));
+            if (crc.getValue() != buf.getLong(size - 8)) throw new IOException("Corrupt inventory snapshot: " + snapshotFile);
+
+            buf.position(8);
+            lastSeq = buf.getLong();
+            nextId.set(buf.getLong());
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                long id = buf.getLong();
+                state.put(id, readRec(buf, version >= 2));
+            }
+        }
+    }
+
+    // returns the offset just past the last intact entry
+    private long replayLog() throws IOException {
+        try (FileChannel ch = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer buf = readFully(ch);
+            int size = buf.limit();
+            CRC32 crc = new CRC32();
+            int pos = 0;
+            while (size - pos >= 8) {
+                int len = buf.getInt(pos);
+                int expected = buf.getInt(pos + 4);
+                if (len <= 0 || size - pos - 8 < len) break;
+                ByteBuffer payload = buf.slice(pos + 8, len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expected) break;
+
+                long seq = payload.getLong();
+                byte op = payload.get();
+                long id = payload.getLong();
+                if (seq > lastSeq) {
+                    if (op == OP_DELETE) state.remove(id);
+                    else state.put(id, readRec(payload, op == OP_PUT));
+                    lastSeq = seq;
+                    entriesSinceSnapshot++;
+                }
+                if (id >= nextId.get()) nextId.set(id + 1);
+                pos += 8 + len;
+            }
+            return pos;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("Inventory file too large: " + size + " bytes");
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) break;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static Rec readRec(ByteBuffer buf, boolean withSku) {
+        long price = buf.getLong();
+        int qty = buf.getInt();
+        byte[] name = new byte[buf.getInt()];
+        buf.get(name);
+        String sku = null;
+        if (withSku) {
+            byte[] b = new byte[buf.getInt()];
+            buf.get(b);
+            if (b.length > 0) sku = new String(b, StandardCharsets.UTF_8);
+        }
+        return new Rec(new String(name, StandardCharsets.UTF_8), price, qty, sku);
+    }
+
+    private static byte[] skuBytes(String sku) {
+        return sku == null ? new byte[0] : sku.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /* -------------------- Writer thread -------------------- */
+    private void writeLoop() {
+        List<Op> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            if (batch.remove(STOP)) running = false;
+            try {
+                if (!batch.isEmpty()) commit(batch);
+                if (entriesSinceSnapshot >= SNAPSHOT_EVERY) writeSnapshot();
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Op> batch) throws IOException {
+        ByteBuffer[] entries = new ByteBuffer[batch.size()];
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < batch.size(); i++) {
+            Op op = batch.get(i);
+            byte[] name = op.delete ? null : op.name.getBytes(StandardCharsets.UTF_8);
+            byte[] sku = op.delete ? null : skuBytes(op.sku);
+            int len = 8 + 1 + 8 + (op.delete ? 0 : 8 + 4 + 4 + name.length + 4 + sku.length);
+            ByteBuffer b = ByteBuffer.allocate(8 + len);
+            b.position(8);
+            b.putLong(++lastSeq).put(op.delete ? OP_DELETE : OP_PUT).putLong(op.id);
+            if (!op.delete) b.putLong(op.priceCents).putInt(op.qty).putInt(name.length).put(name).putInt(sku.length).put(sku);
+            crc.reset();
+            crc.update(b.array(), 8, len);
+            b.putInt(0, len).putInt(4, (int) crc.getValue());
+            b.flip();
+            entries[i] = b;
+
+            if (op.delete) state.remove(op.id);
+            else state.put(op.id, new Rec(op.name, op.priceCents, op.qty, op.sku));
+        }
+        long remaining = 0;
+        for (ByteBuffer b : entries) remaining += b.remaining();
+        while (remaining > 0) remaining -= log.write(entries);
+        log.force(false);
+        entriesSinceSnapshot += batch.size();
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buf.putInt(MAGIC).putInt(VERSION).putLong(lastSeq).putLong(nextId.get()).putInt(state.size());
+            for (Map.Entry<Long, Rec> e : state.entrySet()) {
+                Rec r = e.getValue();
+                byte[] name = r.name.getBytes(StandardCharsets.UTF_8);
+                byte[] sku = skuBytes(r.sku);
+                int len = 28 + name.length + sku.length;
+                if (buf.remaining() < len) flush(ch, buf, crc);
+                if (buf.remaining() < len) buf = ByteBuffer.allocate(len);
+                buf.putLong(e.getKey()).putLong(r.priceCents).putInt(r.qty).putInt(name.length).put(name).putInt(sku.length).put(sku);
+            }
+            flush(ch, buf, crc);
+            buf.putLong(crc.getValue());
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // every logged entry is now in the snapshot
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        entriesSinceSnapshot = 0;
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf, CRC32 crc) throws IOException {
+        buf.flip();
+        crc.update(buf.duplicate());
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+
+    private static final class Op {
+        final long id;
+        final String name;
+        final long priceCents;
+        final int qty;
+        final String sku;
+        final boolean delete;
+
+        Op(long id, String name, long priceCents, int qty, String sku, boolean delete) {
+            this.id = id;
+            this.name = name;
+            this.priceCents = priceCents;
+            this.qty = qty;
+            this.sku = sku;
+            this.delete = delete;
+        }
+    }
+
+    private static final class Rec {
+        final String name;
+        final long priceCents;
+        final int qty;
+        final String sku;
+
+        Rec(String name, long priceCents, int qty, String sku) {
+            this.name = name;
+            this.priceCents = priceCents;
+            this.qty = qty;
+            this.sku = sku;
+        }
+    }
+}
@@ -4,21 +4,70 @@ package com.app.model;
 
 import jakarta.persistence.*; // Use 'javax.persistence.*' for older Spring Boot/JPA
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Entity
-@Table(name = "invoices")
+// (patient_id, id) serves the per-patient keyset queries in InvoiceRepository
+@Table(name = "invoices", indexes = @Index(name = "idx_invoices_patient_id_id", columnList = "patient_id, id"))
 public class Invoice {
+    // SEQUENCE (not IDENTITY) so Hibernate can group inserts into JDBC batches;
+    // allocationSize must match the sequence's INCREMENT BY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_seq")
+    @SequenceGenerator(name = "invoice_seq", sequenceName = "invoice_seq", allocationSize = 50)
     private Long id;
 
     // Use Foreign Key to Patient (assuming Patient entity exists)
-    @ManyToOne 
+    // LAZY: list views use projections, single-invoice reads fetch it with an entity graph
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     private Patient patient; 
 
-    private double totalAmount;
-    private double insuranceDiscount;
+    // saved and deleted with the invoice
+    @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    private List<InvoiceLine> lines = new ArrayList<>();
+
+    // minor units (cents) in Money.BILLING_CURRENCY
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "total_amount_minor")
+    private Money totalAmount;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "insurance_discount_minor")
+    private Money insuranceDiscount;
     private String paymentStatus; // e.g., PENDING, PAID
 
-    // Getters and Setters (omitted for brevity)
+    @Version
+    private Long version; // bumped on every update; used as the invoice's ETag
+
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Patient getPatient() { return patient; }
+    public void setPatient(Patient patient) { this.patient = patient; }
+
+    public List<InvoiceLine> getLines() { return lines; }
+    public void setLines(List<InvoiceLine> lines) {
+        this.lines.clear();
+        if (lines != null) lines.forEach(this::addLine);
+    }
+
+    public void addLine(InvoiceLine line) {
+        line.setInvoice(this);
+        lines.add(line);
+    }
+
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
+
+    public Money getInsuranceDiscount() { return insuranceDiscount; }
+    public void setInsuranceDiscount(Money insuranceDiscount) { this.insuranceDiscount = insuranceDiscount; }
+
+    public String getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(String paymentStatus) { this.paymentStatus = paymentStatus; }
+
+    public Long getVersion() { return version; }
 }
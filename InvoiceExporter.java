@@ -0,0 +1,215 @@
+import com.app.model.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV export of invoice snapshots.
+ *
+ * Rows are built in one reused StringBuilder (amounts are appended as digits, no
+ * String.format), encoded into one reused direct buffer and written to a
+ * FileChannel in 64 KB blocks. Both entry points are blocking; run them off the
+ * FX thread.
+ */
+public final class InvoiceExporter {
+
+    /** Receives the number of invoices written so far. */
+    public interface Progress {
+        void update(long done, long total);
+    }
+
+    static final String SINGLE_HEADER = "PatientName,PatientID,Doctor,Item,Qty,UnitPrice,Total";
+    static final String BATCH_HEADER = "InvoiceNo,IssuedAt,PatientName,PatientID,Doctor,Item,Qty,UnitPrice,Total";
+
+    private static final int PROGRESS_EVERY = 256;
+    private static final int CENT_DIGITS = Money.digits(Money.BILLING_CURRENCY);
+
+    private InvoiceExporter() {
+    }
+
+    /** Write one invoice in the single-bill layout the Billing tab has always produced. */
+    public static void exportInvoice(InvoiceSnapshot inv, Path file) throws IOException {
+        try (CsvWriter w = new CsvWriter(file)) {
+            w.raw(SINGLE_HEADER).endRow();
+            for (InvoiceSnapshot.Line l : inv.getLines()) {
+                w.field(inv.getPatientName()).field(inv.getPatientId()).field(inv.getDoctor())
+                        .field(l.getName()).field(l.getQuantity()).cents(l.getUnitCents()).cents(l.getTotalCents()).endRow();
+            }
+            w.raw(",,,Subtotal,,").cents(inv.getSubtotalCents()).cents(inv.getTotalCents()).endRow();
+        }
+    }
+
+    /**
+     * Write many invoices, one row per line plus a totals row per invoice. When
+     * {@code maxRowsPerFile > 0} output rolls over to target-001.csv, target-002.csv, ...
+     * at the first invoice boundary past the limit; otherwise everything goes to target.
+     *
+     * @return the files written, in order
+     */
+    public static List<Path> exportBatch(List<InvoiceSnapshot> invoices, Path target, long maxRowsPerFile,
+                                         Progress progress) throws IOException {
+        boolean rolling = maxRowsPerFile > 0;
+        List<Path> written = new ArrayList<>();
+        CsvWriter w = null;
+        long rows = 0;
+        try {
+            for (int i = 0; i < invoices.size(); i++) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("export cancelled");
+                if (w == null || (rolling && rows >= maxRowsPerFile)) {
+                    if (w != null) w.close();
+                    Path next = rolling ? rollName(target, written.size() + 1) : target;
+                    w = new CsvWriter(next);
+                    written.add(next);
+                    w.raw(BATCH_HEADER).endRow();
+                    rows = 0;
+                }
+                InvoiceSnapshot inv = invoices.get(i);
+                for (InvoiceSnapshot.Line l : inv.getLines()) {
+                    w.field(inv.getInvoiceNo()).date(inv.getIssuedAt()).field(inv.getPatientName())
+                            .field(inv.getPatientId()).field(inv.getDoctor()).field(l.getName())
+                            .field(l.getQuantity()).cents(l.getUnitCents()).cents(l.getTotalCents()).endRow();
+                }
+                w.field(inv.getInvoiceNo()).date(inv.getIssuedAt()).raw(",,,,Subtotal,,")
+                        .cents(inv.getSubtotalCents()).cents(inv.getTotalCents()).endRow();
+                rows += inv.getLines().size() + 1;
+                if (progress != null && ((i + 1) % PROGRESS_EVERY == 0 || i + 1 == invoices.size())) {
+                    progress.update(i + 1, invoices.size());
+                }
+            }
+        } finally {
+            if (w != null) w.close();
+        }
+        return written;
+    }
+
+    static Path rollName(Path target, int n) {
+        String name = target.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        return target.resolveSibling(String.format("%s-%03d%s", base, n, ext));
+    }
+
+    /* -------------------- Writer -------------------- */
+    private static final class CsvWriter implements Closeable {
+        private final FileChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+        private final StringBuilder row = new StringBuilder(256);
+        private char[] chars = new char[256];
+        private CharBuffer in = CharBuffer.wrap(chars);
+        private boolean first = true;
+
+        CsvWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        CsvWriter raw(String s) {
+            row.append(s);
+            first = s.endsWith(",");
+            return this;
+        }
+
+        CsvWriter field(String s) {
+            sep();
+            if (s == null) return this;
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                row.append(s);
+                return this;
+            }
+            row.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') row.append('"');
+                row.append(c);
+            }
+            row.append('"');
+            return this;
+        }
+
+        CsvWriter field(int v) {
+            sep();
+            row.append(v);
+            return this;
+        }
+
+        CsvWriter cents(long v) {
+            sep();
+            Money.appendPlain(row, v, CENT_DIGITS);
+            return this;
+        }
+
+        // ISO-8601 to the second, e.g. 2024-03-01T09:15:00
+        CsvWriter date(LocalDateTime t) {
+            sep();
+            row.append(t.getYear()).append('-');
+            pad2(t.getMonthValue()).append('-');
+            pad2(t.getDayOfMonth()).append('T');
+            pad2(t.getHour()).append(':');
+            pad2(t.getMinute()).append(':');
+            pad2(t.getSecond());
+            return this;
+        }
+
+        CsvWriter endRow() throws IOException {
+            row.append('\n');
+            int len = row.length();
+            if (len > chars.length) {
+                chars = new char[Math.max(len, chars.length * 2)];
+                in = CharBuffer.wrap(chars);
+            }
+            row.getChars(0, len, chars, 0);
+            in.clear().limit(len);
+            while (encoder.encode(in, out, false) == CoderResult.OVERFLOW) drain();
+            row.setLength(0);
+            first = true;
+            return this;
+        }
+
+        private StringBuilder pad2(int v) {
+            if (v < 10) row.append('0');
+            return row.append(v);
+        }
+
+        private void sep() {
+            if (!first) row.append(',');
+            first = false;
+        }
+
+        private void drain() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) channel.write(out);
+            out.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.clear().limit(0);
+                encoder.encode(in, out, true);
+                encoder.flush(out);
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
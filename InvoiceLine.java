@@ -0,0 +1,72 @@
+// src/main/java/com/app/model/InvoiceLine.java
+
+package com.app.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+// One billed item. The client sends type, code, quantity and an optional discount;
+// unitPrice and lineTotal are filled in from the price catalog when the invoice is priced.
+@Entity
+@Table(name = "invoice_lines", indexes = @Index(name = "idx_invoice_lines_invoice_id", columnList = "invoice_id"))
+public class InvoiceLine {
+
+    public enum Type {
+        MEDICINE,  // code = Medicine id
+        SERVICE,   // code = ServiceFee code
+        PROCEDURE  // code = ServiceFee code
+    }
+
+    // SEQUENCE so lines are batch-inserted with their invoice; allocationSize must match INCREMENT BY
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_line_seq")
+    @SequenceGenerator(name = "invoice_line_seq", sequenceName = "invoice_line_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "invoice_id")
+    private Invoice invoice;
+
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    private String code;
+
+    private int quantity;
+
+    @Column(name = "discount_basis_points")
+    private int discountBasisPoints; // per-line discount, 0-10,000 (100 = 1%)
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "unit_price_minor")
+    private Money unitPrice;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "line_total_minor")
+    private Money lineTotal;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Invoice getInvoice() { return invoice; }
+    public void setInvoice(Invoice invoice) { this.invoice = invoice; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public int getDiscountBasisPoints() { return discountBasisPoints; }
+    public void setDiscountBasisPoints(int discountBasisPoints) { this.discountBasisPoints = discountBasisPoints; }
+
+    public Money getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(Money unitPrice) { this.unitPrice = unitPrice; }
+
+    public Money getLineTotal() { return lineTotal; }
+    public void setLineTotal(Money lineTotal) { this.lineTotal = lineTotal; }
+}
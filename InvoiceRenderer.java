@@ -0,0 +1,399 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders invoice snapshots to text, HTML or PDF files.
+ *
+ * Output streams straight to the target file through a buffered writer; PDF pages
+ * are laid out from the text template in Courier, one page at a time. Templates
+ * are compiled once and cached; a template directory (-Dpharmacy.templates=<dir>
+ * with invoice.txt / invoice.html) overrides the built-in layouts and is re-read
+ * when a file changes. An override that cannot be read or compiled fails the render
+ * with an IllegalStateException naming the file, until the file is fixed; there is
+ * no silent fall back to the built-in layout. {@link #renderBatch} renders many invoices in parallel on
+ * this renderer's worker pool. Everything here blocks; call it off the FX thread.
+ */
+public final class InvoiceRenderer implements Closeable {
+
+    public enum Format {
+        TEXT("txt"), HTML("html"), PDF("pdf");
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** Format for a file name's extension, or null. */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            for (Format f : values()) if (name.endsWith("." + f.extension)) return f;
+            return name.endsWith(".htm") ? HTML : null;
+        }
+    }
+
+    static final String TEXT_TEMPLATE =
+            "Clinic Invoice\n"
+            + "Invoice No: ${invoiceNo}\n"
+            + "Date: ${issuedAt}\n"
+            + "Patient: ${patientName}\n"
+            + "Patient ID: ${patientId}\n"
+            + "Doctor: ${doctor}\n\n"
+            + "Item                                        Qty       Unit      Total\n"
+            + "-----------------------------------------------------------------\n"
+            + "${#lines}${name:-40} ${quantity:6} ${unit:10} ${total:10}\n${/lines}"
+            + "-----------------------------------------------------------------\n"
+            + "Subtotal:                                                  ${subtotal:10}\n"
+            + "Tax:                                                       ${tax:10}\n"
+            + "Total:                                                     ${total:10}\n";
+
+    static final String HTML_TEMPLATE =
+            "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Invoice ${invoiceNo}</title>\n"
+            + "<style>body{font-family:sans-serif}table{border-collapse:collapse}"
+            + "td,th{padding:2px 8px}.n{text-align:right}tfoot td{font-weight:bold}</style></head>\n<body>\n"
+            + "<h1>Clinic Invoice</h1>\n"
+            + "<p>Invoice No: ${invoiceNo}<br>Date: ${issuedAt}<br>Patient: ${patientName}<br>"
+            + "Patient ID: ${patientId}<br>Doctor: ${doctor}</p>\n"
+            + "<table>\n<thead><tr><th>Item</th><th class=\"n\">Qty</th><th class=\"n\">Unit</th><th class=\"n\">Total</th></tr></thead>\n<tbody>\n"
+            + "${#lines}<tr><td>${name}</td><td class=\"n\">${quantity}</td><td class=\"n\">${unit}</td><td class=\"n\">${total}</td></tr>\n${/lines}"
+            + "</tbody>\n<tfoot>\n"
+            + "<tr><td colspan=\"3\">Subtotal</td><td class=\"n\">${subtotal}</td></tr>\n"
+            + "<tr><td colspan=\"3\">Tax</td><td class=\"n\">${tax}</td></tr>\n"
+            + "<tr><td colspan=\"3\">Total (${currency})</td><td class=\"n\">${total}</td></tr>\n"
+            + "</tfoot>\n</table>\n</body></html>\n";
+
+    private static final InvoiceTemplate BUILT_IN_TEXT = InvoiceTemplate.compile(TEXT_TEMPLATE, false);
+    private static final InvoiceTemplate BUILT_IN_HTML = InvoiceTemplate.compile(HTML_TEMPLATE, true);
+    private static final long RECHECK_NANOS = 2_000_000_000L;
+    private static final Map<Path, CachedTemplate> OVERRIDES = new ConcurrentHashMap<>();
+
+    private final ExecutorService workers;
+
+    /** A renderer with one worker per core. */
+    public InvoiceRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public InvoiceRenderer(int threads) {
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "invoice-render-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Render as text or HTML into a string (e.g. for an on-screen preview). */
+    public static String renderToString(InvoiceSnapshot inv, Format format) {
+        if (format == Format.PDF) throw new IllegalArgumentException("PDF is binary; render it to a file");
+        StringWriter out = new StringWriter(256 + 80 * inv.getLines().size());
+        try {
+            template(format).render(inv, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /** Render one invoice to a file, replacing it. */
+    public static void render(InvoiceSnapshot inv, Format format, Path file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            if (format == Format.PDF) {
+                try (PdfTextWriter pdf = new PdfTextWriter(os)) {
+                    template(Format.TEXT).render(inv, pdf);
+                }
+            } else {
+                Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 16 * 1024);
+                template(format).render(inv, w);
+                w.flush();
+            }
+        }
+    }
+
+    /**
+     * Render every invoice into dir as {@code <invoiceNo>.<ext>}, in parallel. Failed
+     * invoices do not stop the others; they are reported together at the end.
+     *
+     * @return the files written, in input order
+     * @throws InterruptedIOException if interrupted; renders still queued are cancelled
+     */
+    public List<Path> renderBatch(List<InvoiceSnapshot> invoices, Format format, Path dir,
+                                  InvoiceExporter.Progress progress) throws IOException {
+        Files.createDirectories(dir);
+        CompletionService<Integer> done = new ExecutorCompletionService<>(workers);
+        List<Future<Integer>> futures = new ArrayList<>(invoices.size());
+        Path[] files = new Path[invoices.size()];
+        for (int i = 0; i < invoices.size(); i++) {
+            int idx = i;
+            files[i] = dir.resolve(fileName(invoices.get(i)) + "." + format.extension);
+            futures.add(done.submit(() -> {
+                render(invoices.get(idx), format, files[idx]);
+                return idx;
+            }));
+        }
+
+        IOException failures = null;
+        int failed = 0;
+        try {
+            for (int n = 1; n <= futures.size(); n++) {
+                Future<Integer> f = done.take();
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (failures == null) failures = new IOException("Could not render all invoices");
+                    failures.addSuppressed(e.getCause());
+                    failed++;
+                }
+                if (progress != null) progress.update(n, futures.size());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new InterruptedIOException("Invoice rendering cancelled");
+        }
+        if (failures != null) {
+            throw new IOException(failed + " of " + invoices.size() + " invoices could not be rendered: "
+                    + failures.getSuppressed()[0].getMessage(), failures);
+        }
+        return List.of(files);
+    }
+
+    /** Stop the workers; renders in progress are interrupted. */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    static InvoiceTemplate template(Format format) {
+        boolean html = format == Format.HTML;
+        String dir = System.getProperty("pharmacy.templates");
+        if (dir != null) {
+            InvoiceTemplate t = override(Paths.get(dir, html ? "invoice.html" : "invoice.txt"), html);
+            if (t != null) return t;
+        }
+        return html ? BUILT_IN_HTML : BUILT_IN_TEXT;
+    }
+
+    // compiled template from file (null if there is none), re-checked against the file's mtime every couple of seconds
+    private static InvoiceTemplate override(Path file, boolean html) {
+        long now = System.nanoTime();
+        CachedTemplate c = OVERRIDES.get(file);
+        if (c == null || now - c.checkedAt >= RECHECK_NANOS) {
+            c = load(file, html, c, now);
+            OVERRIDES.put(file, c);
+        }
+        if (c.error != null) throw new IllegalStateException("Invoice template " + file + ": " + c.error);
+        return c.template;
+    }
+
+    private static CachedTemplate load(Path file, boolean html, CachedTemplate previous, long now) {
+        try {
+            if (!Files.isRegularFile(file)) return new CachedTemplate(null, null, -1, now);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (previous != null && previous.modified == modified) return new CachedTemplate(previous.template, previous.error, modified, now);
+            try {
+                InvoiceTemplate t = InvoiceTemplate.compile(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), html);
+                return new CachedTemplate(t, null, modified, now);
+            } catch (IOException | IllegalArgumentException e) {
+                return new CachedTemplate(null, e.getMessage(), modified, now); // stays broken until the file changes
+            }
+        } catch (IOException e) {
+            return new CachedTemplate(null, e.getMessage(), -1, now);
+        }
+    }
+
+    static String fileName(InvoiceSnapshot inv) {
+        StringBuilder sb = new StringBuilder(inv.getInvoiceNo().length());
+        for (char c : inv.getInvoiceNo().toCharArray()) {
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private static final class CachedTemplate {
+        final InvoiceTemplate template;
+        final String error; // why the file could not be used; null if it was (or there is none)
+        final long modified;
+        final long checkedAt;
+
+        CachedTemplate(InvoiceTemplate template, String error, long modified, long checkedAt) {
+            this.template = template;
+            this.error = error;
+            this.modified = modified;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /* -------------------- PDF -------------------- */
+
+    /**
+     * Minimal PDF 1.4 writer for monospaced text: every line written becomes a line
+     * of 9pt Courier on A4 pages. Pages are flushed as they fill, so memory use is
+     * one page whatever the invoice length. Characters outside Latin-1 print as '?'.
+     */
+    static final class PdfTextWriter extends Writer {
+        private static final int PAGE_WIDTH = 595, PAGE_HEIGHT = 842, MARGIN = 40;
+        private static final int FONT_SIZE = 9, LEADING = 11;
+        private static final int LINES_PER_PAGE = (PAGE_HEIGHT - 2 * MARGIN) / LEADING;
+        private static final int CATALOG = 1, PAGES = 2, FONT = 3;
+
+        private final CountingStream out;
+        private final List<Long> offsets = new ArrayList<>(); // by object number - 1
+        private final List<Integer> pageObjects = new ArrayList<>();
+        private final ByteArrayOutputStream page = new ByteArrayOutputStream(8 * 1024);
+        private final StringBuilder line = new StringBuilder(128);
+        private int linesOnPage;
+        private boolean closed;
+
+        PdfTextWriter(OutputStream target) throws IOException {
+            this.out = new CountingStream(target);
+            ascii(out, "%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+            reserve(CATALOG);
+            reserve(PAGES);
+            beginObject(FONT);
+            ascii(out, "<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>\nendobj\n");
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                char c = buf[i];
+                if (c == '\n') endLine();
+                else if (c != '\r') line.append(c == '\t' ? ' ' : c);
+            }
+        }
+
+        @Override
+        public void flush() {
+            // pages are written whole; nothing to flush mid-page
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            if (line.length() > 0) endLine();
+            if (linesOnPage > 0 || pageObjects.isEmpty()) endPage();
+
+            beginObject(PAGES);
+            StringBuilder kids = new StringBuilder("<< /Type /Pages /Count ").append(pageObjects.size()).append(" /Kids [");
+            for (int p : pageObjects) kids.append(p).append(" 0 R ");
+            ascii(out, kids.append("] >>\nendobj\n").toString());
+            beginObject(CATALOG);
+            ascii(out, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+
+            long xref = out.count;
+            StringBuilder sb = new StringBuilder(32 + 20 * offsets.size());
+            sb.append("xref\n0 ").append(offsets.size() + 1).append("\n0000000000 65535 f \n");
+            for (long off : offsets) {
+                String s = Long.toString(off);
+                for (int i = s.length(); i < 10; i++) sb.append('0');
+                sb.append(s).append(" 00000 n \n");
+            }
+            sb.append("trailer\n<< /Size ").append(offsets.size() + 1).append(" /Root ").append(CATALOG).append(" 0 R >>\n")
+                    .append("startxref\n").append(xref).append("\n%%EOF\n");
+            ascii(out, sb.toString());
+            out.flush();
+        }
+
+        private void endLine() throws IOException {
+            if (linesOnPage == 0) {
+                ascii(page, "BT /F1 " + FONT_SIZE + " Tf " + LEADING + " TL " + MARGIN + " " + (PAGE_HEIGHT - MARGIN) + " Td\n");
+            }
+            page.write('(');
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '(' || c == ')' || c == '\\') {
+                    page.write('\\');
+                    page.write(c);
+                } else if (c >= 32 && c < 127) {
+                    page.write(c);
+                } else if (c >= 160 && c <= 255) {
+                    // WinAnsi matches Latin-1 here; octal escape keeps the stream ASCII
+                    page.write('\\');
+                    page.write('0' + (c >> 6));
+                    page.write('0' + ((c >> 3) & 7));
+                    page.write('0' + (c & 7));
+                } else {
+                    page.write('?');
+                }
+            }
+            ascii(page, ") Tj T*\n");
+            line.setLength(0);
+            if (++linesOnPage == LINES_PER_PAGE) endPage();
+        }
+
+        private void endPage() throws IOException {
+            if (linesOnPage > 0) ascii(page, "ET\n");
+            int content = offsets.size() + 1;
+            beginObject(content);
+            ascii(out, "<< /Length " + page.size() + " >>\nstream\n");
+            page.writeTo(out);
+            ascii(out, "\nendstream\nendobj\n");
+            int pageObj = offsets.size() + 1;
+            beginObject(pageObj);
+            ascii(out, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT + "]"
+                    + " /Resources << /Font << /F1 " + FONT + " 0 R >> >> /Contents " + content + " 0 R >>\nendobj\n");
+            pageObjects.add(pageObj);
+            page.reset();
+            linesOnPage = 0;
+        }
+
+        private void reserve(int obj) {
+            while (offsets.size() < obj) offsets.add(-1L);
+        }
+
+        private void beginObject(int obj) throws IOException {
+            reserve(obj);
+            offsets.set(obj - 1, out.count);
+            ascii(out, obj + " 0 obj\n");
+        }
+
+        private static void ascii(OutputStream os, String s) throws IOException {
+            os.write(s.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+// src/main/java/com/app/repository/InvoiceRepository.java
+
+package com.app.repository;
+
+import com.app.model.Invoice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+
+    // One invoice with its patient and lines in a single query (patient is LAZY, lines are a collection)
+    @EntityGraph(attributePaths = {"patient", "lines"})
+    Optional<Invoice> findWithPatientAndLinesById(Long id);
+
+    // Invoice history, newest first, keyset-paginated on id: pass the last id seen
+    // (Long.MAX_VALUE for the first page). Only the page size of the Pageable is used.
+    @Query("SELECT new com.app.repository.InvoiceSummary(i.id, p.id, p.name, i.totalAmount, i.paymentStatus) " +
+            "FROM Invoice i LEFT JOIN i.patient p WHERE i.id < :beforeId ORDER BY i.id DESC")
+    List<InvoiceSummary> findSummariesBefore(@Param("beforeId") long beforeId, Pageable page);
+
+    // Same for one patient; served by idx_invoices_patient_id_id
+    @Query("SELECT new com.app.repository.InvoiceSummary(i.id, p.id, p.name, i.totalAmount, i.paymentStatus) " +
+            "FROM Invoice i JOIN i.patient p WHERE p.id = :patientId AND i.id < :beforeId ORDER BY i.id DESC")
+    List<InvoiceSummary> findSummariesByPatientBefore(@Param("patientId") Long patientId, @Param("beforeId") long beforeId, Pageable page);
+}
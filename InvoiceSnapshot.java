@@ -0,0 +1,82 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of an issued bill: patient details, lines and totals (in cents).
+ * Exports and reprints work from snapshots so they never touch the live cart.
+ */
+public final class InvoiceSnapshot {
+
+    private final String invoiceNo;
+    private final LocalDateTime issuedAt;
+    private final String patientName;
+    private final String patientId;
+    private final String doctor;
+    private final List<Line> lines;
+    private final long subtotalCents;
+    private final long taxCents;
+    private final long totalCents;
+
+    public InvoiceSnapshot(String invoiceNo, LocalDateTime issuedAt, String patientName, String patientId, String doctor,
+                           List<Line> lines, long subtotalCents, long taxCents, long totalCents) {
+        this.invoiceNo = invoiceNo;
+        this.issuedAt = issuedAt;
+        this.patientName = patientName;
+        this.patientId = patientId;
+        this.doctor = doctor;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        this.subtotalCents = subtotalCents;
+        this.taxCents = taxCents;
+        this.totalCents = totalCents;
+    }
+
+    public static InvoiceSnapshot capture(String invoiceNo, String patientName, String patientId, String doctor,
+                                          List<PatientPharmacyApp.BillItem> items, BillTotals totals) {
+        List<Line> lines = new ArrayList<>(items.size());
+        for (PatientPharmacyApp.BillItem b : items) {
+            lines.add(new Line(b.getName(), b.getQuantity(), b.getUnitPrice().getMinorUnits(), BillTotals.lineCents(b)));
+        }
+        return new InvoiceSnapshot(invoiceNo, LocalDateTime.now(), patientName, patientId, doctor,
+                lines, totals.getSubtotal(), totals.getTax(), totals.getTotal());
+    }
+
+    /** Same invoice number and lines, different patient details. */
+    public InvoiceSnapshot withParty(String patientName, String patientId, String doctor) {
+        return new InvoiceSnapshot(invoiceNo, issuedAt, patientName, patientId, doctor, lines, subtotalCents, taxCents, totalCents);
+    }
+
+    public boolean isFor(String patientName, String patientId, String doctor) {
+        return this.patientName.equals(patientName) && this.patientId.equals(patientId) && this.doctor.equals(doctor);
+    }
+
+    public String getInvoiceNo() { return invoiceNo; }
+    public LocalDateTime getIssuedAt() { return issuedAt; }
+    public String getPatientName() { return patientName; }
+    public String getPatientId() { return patientId; }
+    public String getDoctor() { return doctor; }
+    public List<Line> getLines() { return lines; }
+    public long getSubtotalCents() { return subtotalCents; }
+    public long getTaxCents() { return taxCents; }
+    public long getTotalCents() { return totalCents; }
+
+    public static final class Line {
+        private final String name;
+        private final int quantity;
+        private final long unitCents;
+        private final long totalCents;
+
+        public Line(String name, int quantity, long unitCents, long totalCents) {
+            this.name = name;
+            this.quantity = quantity;
+            this.unitCents = unitCents;
+            this.totalCents = totalCents;
+        }
+
+        public String getName() { return name; }
+        public int getQuantity() { return quantity; }
+        public long getUnitCents() { return unitCents; }
+        public long getTotalCents() { return totalCents; }
+    }
+}
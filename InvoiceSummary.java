@@ -0,0 +1,30 @@
+// src/main/java/com/app/repository/InvoiceSummary.java
+
+package com.app.repository;
+
+import com.app.model.Money;
+
+// Row of the invoice history list: selected with a JPQL constructor expression, so listing
+// invoices loads no entities (no patient proxies, no lines, nothing in the persistence context)
+public class InvoiceSummary {
+
+    private final Long id;
+    private final Long patientId;
+    private final String patientName;
+    private final Money totalAmount;
+    private final String paymentStatus;
+
+    public InvoiceSummary(Long id, Long patientId, String patientName, Money totalAmount, String paymentStatus) {
+        this.id = id;
+        this.patientId = patientId;
+        this.patientName = patientName;
+        this.totalAmount = totalAmount;
+        this.paymentStatus = paymentStatus;
+    }
+
+    public Long getId() { return id; }
+    public Long getPatientId() { return patientId; }
+    public String getPatientName() { return patientName; }
+    public Money getTotalAmount() { return totalAmount; }
+    public String getPaymentStatus() { return paymentStatus; }
+}
@@ -0,0 +1,189 @@
+import com.app.model.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled invoice template.
+ *
+ * Template text is parsed once into segments: literal runs, fields such as
+ * {@code ${patientName}} and one {@code ${#lines}...${/lines}} section repeated
+ * per invoice line. A field may carry a column width like printf's: {@code ${name:-40}}
+ * left-aligned or {@code ${total:10}} right-aligned, padded to at least that width.
+ * Rendering walks the segments and writes straight to a Writer, formatting amounts
+ * as digits into one reused buffer, so nothing is parsed or String.format'ed per line.
+ *
+ * Invoice fields: invoiceNo, issuedAt, patientName, patientId, doctor, subtotal,
+ * tax, total, currency. Line fields (inside the section): name, quantity, unit, total.
+ *
+ * Compiled templates are immutable and safe to share between threads.
+ */
+public final class InvoiceTemplate {
+
+    enum Field {
+        INVOICE_NO("invoiceNo"), ISSUED_AT("issuedAt"), PATIENT_NAME("patientName"), PATIENT_ID("patientId"),
+        DOCTOR("doctor"), SUBTOTAL("subtotal"), TAX("tax"), TOTAL("total"), CURRENCY("currency"),
+        LINE_NAME("name"), LINE_QUANTITY("quantity"), LINE_UNIT("unit"), LINE_TOTAL("total");
+
+        final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        boolean perLine() {
+            return ordinal() >= LINE_NAME.ordinal();
+        }
+    }
+
+    private static final class Segment {
+        final char[] literal;   // literal text, or null for a field
+        final Field field;
+        final int width;        // 0 = as is
+        final boolean left;
+
+        Segment(char[] literal, Field field, int width, boolean left) {
+            this.literal = literal;
+            this.field = field;
+            this.width = width;
+            this.left = left;
+        }
+    }
+
+    private final Segment[] head;
+    private final Segment[] line;
+    private final Segment[] tail;
+    private final boolean html;
+
+    private InvoiceTemplate(Segment[] head, Segment[] line, Segment[] tail, boolean html) {
+        this.head = head;
+        this.line = line;
+        this.tail = tail;
+        this.html = html;
+    }
+
+    /**
+     * Parse template text. With {@code html} set, field values are HTML-escaped.
+     *
+     * @throws IllegalArgumentException on unknown fields or an unbalanced lines section
+     */
+    public static InvoiceTemplate compile(String text, boolean html) {
+        int open = text.indexOf("${#lines}");
+        int close = text.indexOf("${/lines}");
+        if ((open < 0) != (close < 0) || close < open) throw new IllegalArgumentException("Unbalanced ${#lines} section");
+        if (open < 0) return new InvoiceTemplate(parse(text, false), new Segment[0], new Segment[0], html);
+        return new InvoiceTemplate(
+                parse(text.substring(0, open), false),
+                parse(text.substring(open + "${#lines}".length(), close), true),
+                parse(text.substring(close + "${/lines}".length()), false),
+                html);
+    }
+
+    private static Segment[] parse(String text, boolean inLines) {
+        List<Segment> out = new ArrayList<>();
+        int pos = 0;
+        while (pos < text.length()) {
+            int start = text.indexOf("${", pos);
+            if (start < 0) start = text.length();
+            if (start > pos) out.add(new Segment(text.substring(pos, start).toCharArray(), null, 0, false));
+            if (start == text.length()) break;
+            int end = text.indexOf('}', start);
+            if (end < 0) throw new IllegalArgumentException("Unclosed field at offset " + start);
+            String spec = text.substring(start + 2, end);
+            int colon = spec.indexOf(':');
+            String key = colon < 0 ? spec : spec.substring(0, colon);
+            int width = colon < 0 ? 0 : Integer.parseInt(spec.substring(colon + 1).trim());
+            out.add(new Segment(null, field(key.trim(), inLines), Math.abs(width), width < 0));
+            pos = end + 1;
+        }
+        return out.toArray(new Segment[0]);
+    }
+
+    private static Field field(String key, boolean inLines) {
+        // line fields shadow invoice fields of the same name inside the section
+        if (inLines) {
+            for (Field f : Field.values()) if (f.perLine() && f.key.equals(key)) return f;
+        }
+        for (Field f : Field.values()) if (!f.perLine() && f.key.equals(key)) return f;
+        throw new IllegalArgumentException("Unknown invoice field ${" + key + "}");
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    /** Write the invoice to out. The caller owns (and closes) the writer. */
+    public void render(InvoiceSnapshot inv, Writer out) throws IOException {
+        StringBuilder value = new StringBuilder(64);
+        write(head, inv, null, out, value);
+        for (InvoiceSnapshot.Line l : inv.getLines()) write(line, inv, l, out, value);
+        write(tail, inv, null, out, value);
+    }
+
+    private void write(Segment[] segments, InvoiceSnapshot inv, InvoiceSnapshot.Line l, Writer out, StringBuilder value) throws IOException {
+        for (Segment s : segments) {
+            if (s.literal != null) {
+                out.write(s.literal);
+                continue;
+            }
+            value.setLength(0);
+            appendValue(s.field, inv, l, value);
+            int pad = s.width - value.length();
+            if (!s.left) pad(out, pad);
+            if (html) escape(value, out);
+            else out.append(value);
+            if (s.left) pad(out, pad);
+        }
+    }
+
+    private static void appendValue(Field f, InvoiceSnapshot inv, InvoiceSnapshot.Line l, StringBuilder sb) {
+        int digits = Money.digits(Money.BILLING_CURRENCY);
+        switch (f) {
+            case INVOICE_NO: sb.append(inv.getInvoiceNo()); break;
+            case ISSUED_AT: {
+                // yyyy-MM-dd HH:mm
+                sb.append(inv.getIssuedAt().getYear()).append('-');
+                pad2(sb, inv.getIssuedAt().getMonthValue()).append('-');
+                pad2(sb, inv.getIssuedAt().getDayOfMonth()).append(' ');
+                pad2(sb, inv.getIssuedAt().getHour()).append(':');
+                pad2(sb, inv.getIssuedAt().getMinute());
+                break;
+            }
+            case PATIENT_NAME: sb.append(inv.getPatientName()); break;
+            case PATIENT_ID: sb.append(inv.getPatientId()); break;
+            case DOCTOR: sb.append(inv.getDoctor()); break;
+            case SUBTOTAL: Money.appendPlain(sb, inv.getSubtotalCents(), digits); break;
+            case TAX: Money.appendPlain(sb, inv.getTaxCents(), digits); break;
+            case TOTAL: Money.appendPlain(sb, inv.getTotalCents(), digits); break;
+            case CURRENCY: sb.append(Money.BILLING_CURRENCY.getCurrencyCode()); break;
+            case LINE_NAME: sb.append(l.getName()); break;
+            case LINE_QUANTITY: sb.append(l.getQuantity()); break;
+            case LINE_UNIT: Money.appendPlain(sb, l.getUnitCents(), digits); break;
+            default: Money.appendPlain(sb, l.getTotalCents(), digits); break;
+        }
+    }
+
+    private static StringBuilder pad2(StringBuilder sb, int v) {
+        return (v < 10 ? sb.append('0') : sb).append(v);
+    }
+
+    private static void pad(Writer out, int n) throws IOException {
+        for (int i = 0; i < n; i++) out.write(' ');
+    }
+
+    private static void escape(CharSequence s, Writer out) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                case '&': out.write("&amp;"); break;
+                case '"': out.write("&quot;"); break;
+                case '\'': out.write("&#39;"); break;
+                default: out.write(c);
+            }
+        }
+    }
+}
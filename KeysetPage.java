@@ -0,0 +1,38 @@
+// src/main/java/com/app/service/KeysetPage.java
+
+package com.app.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+// One page of a keyset-paginated list. nextCursor is opaque to clients: send it back
+// to get the following page; null on the last page. Unlike offset paging, every page
+// costs the same index range scan however deep into the list it is.
+public class KeysetPage<T> {
+
+    // page size limits for list endpoints
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // fetched holds up to size + 1 rows; the extra row only tells whether there is a next page
+    public static <T> KeysetPage<T> of(List<T> fetched, int size, Function<T, String> cursorOf) {
+        if (fetched.size() <= size) return new KeysetPage<>(fetched, null);
+        List<T> items = fetched.subList(0, size);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(size - 1)));
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,101 @@
+// src/main/java/com/app/service/LineCostEngine.java
+
+package com.app.service;
+
+import com.app.model.InvoiceLine;
+import com.app.model.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Prices invoice lines: catalog unit price x quantity, less the line's discount
+ * (rounded half-up to a minor unit). Each line gets its unit price and total set,
+ * and the invoice's base cost is their exact sum.
+ *
+ * Lines are validated and looked up in the {@link PriceCatalog} first, in one
+ * sequential pass, so the pricing itself is plain long arithmetic over arrays.
+ * Invoices with at least {@code billing.pricing.parallel-threshold} lines (ICU stays
+ * run to thousands) are split over the common fork-join pool in leaves of
+ * {@link #LEAF_SIZE} lines; smaller ones are priced in a loop, where forking would
+ * cost more than it saves.
+ */
+@Service
+public class LineCostEngine {
+
+    static final int LEAF_SIZE = 512;
+    static final int MAX_DISCOUNT_BASIS_POINTS = 10_000;
+
+    private final PriceCatalog catalog;
+    private final int parallelThreshold;
+
+    public LineCostEngine(PriceCatalog catalog,
+                          @Value("${billing.pricing.parallel-threshold:2048}") int parallelThreshold) {
+        this.catalog = catalog;
+        this.parallelThreshold = Math.max(LEAF_SIZE, parallelThreshold);
+    }
+
+    // Sum of the line totals; IllegalArgumentException on a line that breaks a rule or has no price
+    public Money baseCost(List<InvoiceLine> lines) {
+        if (lines.isEmpty()) return Money.zero(Money.BILLING_CURRENCY);
+        InvoiceLine[] arr = lines.toArray(new InvoiceLine[0]);
+        for (int i = 0; i < arr.length; i++) validate(i, arr[i]);
+        long[] unitPrices = catalog.unitPrices(lines);
+
+        long total = arr.length < parallelThreshold
+                ? price(arr, unitPrices, 0, arr.length)
+                : ForkJoinPool.commonPool().invoke(new PriceTask(arr, unitPrices, 0, arr.length));
+        return Money.ofMinor(total, Money.BILLING_CURRENCY);
+    }
+
+    private static void validate(int i, InvoiceLine line) {
+        if (line.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Line " + (i + 1) + ": quantity must be positive");
+        }
+        if (line.getDiscountBasisPoints() < 0 || line.getDiscountBasisPoints() > MAX_DISCOUNT_BASIS_POINTS) {
+            throw new IllegalArgumentException("Line " + (i + 1) + ": discount must be 0-10000 basis points");
+        }
+    }
+
+    // lines [from, to): sets unit price and total on each, returns the sum in minor units
+    static long price(InvoiceLine[] lines, long[] unitPrices, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            InvoiceLine line = lines[i];
+            long gross = Math.multiplyExact(unitPrices[i], line.getQuantity());
+            long net = gross - Money.percentOf(gross, line.getDiscountBasisPoints(), RoundingMode.HALF_UP);
+            line.setUnitPrice(Money.ofMinor(unitPrices[i], Money.BILLING_CURRENCY));
+            line.setLineTotal(Money.ofMinor(net, Money.BILLING_CURRENCY));
+            total = Math.addExact(total, net);
+        }
+        return total;
+    }
+
+    private static final class PriceTask extends RecursiveTask<Long> {
+        private final InvoiceLine[] lines;
+        private final long[] unitPrices;
+        private final int from;
+        private final int to;
+
+        PriceTask(InvoiceLine[] lines, long[] unitPrices, int from, int to) {
+            this.lines = lines;
+            this.unitPrices = unitPrices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= LEAF_SIZE) return price(lines, unitPrices, from, to);
+            int mid = (from + to) >>> 1;
+            PriceTask left = new PriceTask(lines, unitPrices, from, mid);
+            left.fork();
+            long right = new PriceTask(lines, unitPrices, mid, to).compute();
+            return Math.addExact(right, left.join());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// src/jmh/java/com/app/bench/LineCostEngineBenchmark.java
+
+package com.app.bench;
+
+import com.app.model.InvoiceLine;
+import com.app.model.Money;
+import com.app.service.LineCostEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for pricing one large invoice (an ICU stay), sequential vs. fork-join.
+ * The price catalog is warm after the first invocation, so this measures the pricing
+ * itself rather than catalog loads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineCostEngineBenchmark {
+
+    @Param({"100", "5000", "50000"})
+    public int lines;
+
+    // Integer.MAX_VALUE = never fork
+    @Param({"2048", "2147483647"})
+    public int parallelThreshold;
+
+    private LineCostEngine engine;
+    private List<InvoiceLine> invoiceLines;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new LineCostEngine(BillingServiceBenchmark.inMemoryCatalog(), parallelThreshold);
+        invoiceLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            // mostly medicines and consumables, some nursing services and procedures
+            InvoiceLine line = i % 10 == 0 ? BillingServiceBenchmark.line(InvoiceLine.Type.PROCEDURE, "PROC-" + (i % 40), 1)
+                    : i % 4 == 0 ? BillingServiceBenchmark.line(InvoiceLine.Type.SERVICE, "NURSE-" + (i % 12), 1 + i % 3)
+                    : BillingServiceBenchmark.line(InvoiceLine.Type.MEDICINE, String.valueOf(1 + i % 800), 1 + i % 20);
+            line.setDiscountBasisPoints(i % 7 == 0 ? 1_000 : 0);
+            invoiceLines.add(line);
+        }
+    }
+
+    @Benchmark
+    public Money baseCost() {
+        return engine.baseCost(invoiceLines);
+    }
+}
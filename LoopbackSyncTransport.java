@@ -0,0 +1,103 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Connects terminals to a {@link SyncHub} in the same JVM: the terminal hosting the
+ * hub, and tests running several clients against one hub. Frames cross as bytes
+ * through per-direction queues, so they are encoded, decoded and delivered
+ * asynchronously just as over a socket.
+ */
+public class LoopbackSyncTransport implements SyncTransport {
+
+    private final SyncHub hub;
+    private final Set<Pipe> open = ConcurrentHashMap.newKeySet();
+
+    public LoopbackSyncTransport(SyncHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public Link connect(byte[] hello, Consumer<byte[]> receiver, Runnable onClosed) {
+        Pipe pipe = new Pipe(receiver, onClosed);
+        open.add(pipe);
+        long fromVersion = SyncFrames.helloVersion(hello);
+        pipe.toHub(() -> hub.hello(pipe.hubSide, fromVersion));
+        return pipe;
+    }
+
+    /** Cut every open link as a network failure would; clients see onClosed and reconnect. */
+    public void dropAll() {
+        for (Pipe p : open) p.drop();
+    }
+
+    // one link: hub-bound and terminal-bound frames each on their own thread, in order
+    private final class Pipe implements Link {
+        private final ExecutorService toHub = Executors.newSingleThreadExecutor(r -> BackgroundTasks.daemon(r, "sync-loopback-up"));
+        private final ExecutorService toTerminal = Executors.newSingleThreadExecutor(r -> BackgroundTasks.daemon(r, "sync-loopback-down"));
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Consumer<byte[]> receiver;
+        private final Runnable onClosed;
+
+        final SyncHub.Connection hubSide = new SyncHub.Connection() {
+            @Override
+            public void send(byte[] frame) {
+                toTerminal(() -> receiver.accept(frame));
+            }
+
+            @Override
+            public void close() {
+                drop();
+            }
+        };
+
+        Pipe(Consumer<byte[]> receiver, Runnable onClosed) {
+            this.receiver = receiver;
+            this.onClosed = onClosed;
+        }
+
+        @Override
+        public void send(byte[] frame) {
+            toHub(() -> hub.submit(hubSide, frame));
+        }
+
+        @Override
+        public void close() {
+            shut();
+        }
+
+        void drop() {
+            if (shut()) onClosed.run();
+        }
+
+        private boolean shut() {
+            if (!closed.compareAndSet(false, true)) return false;
+            open.remove(this);
+            hub.disconnect(hubSide);
+            toHub.shutdownNow();
+            toTerminal.shutdownNow();
+            return true;
+        }
+
+        void toHub(Runnable r) {
+            run(toHub, r);
+        }
+
+        void toTerminal(Runnable r) {
+            run(toTerminal, r);
+        }
+
+        private void run(ExecutorService e, Runnable r) {
+            if (closed.get()) return;
+            try {
+                e.execute(() -> { if (!closed.get()) r.run(); });
+            } catch (RejectedExecutionException ignored) {
+                // closed concurrently; the frame is lost like on a dropped connection
+            }
+        }
+    }
+}
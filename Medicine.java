@@ -0,0 +1,52 @@
+// src/main/java/com/app/model/Medicine.java
+
+package com.app.model;
+
+import com.app.alert.MedicineStockListener;
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Indexed for the alert queries in MedicineRepository (low stock, expiry) and its keyset list by name
+@Entity
+@Table(name = "medicines", indexes = {
+        @Index(name = "idx_medicines_stock_quantity", columnList = "stock_quantity"),
+        @Index(name = "idx_medicines_expiry_date", columnList = "expiry_date"),
+        @Index(name = "idx_medicines_name_id", columnList = "name, id")
+})
+@EntityListeners(MedicineStockListener.class)
+public class Medicine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+    private double price;
+
+    @Column(name = "stock_quantity")
+    private int stockQuantity;
+
+    @Column(name = "reorder_level")
+    private int reorderLevel = 10; // at or below this the medicine is LOW
+
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public double getPrice() { return price; }
+    public void setPrice(double price) { this.price = price; }
+
+    public int getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(int stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public int getReorderLevel() { return reorderLevel; }
+    public void setReorderLevel(int reorderLevel) { this.reorderLevel = reorderLevel; }
+
+    public LocalDate getExpiryDate() { return expiryDate; }
+    public void setExpiryDate(LocalDate expiryDate) { this.expiryDate = expiryDate; }
+}
@@ -0,0 +1,60 @@
+// src/main/java/com/app/controller/MedicineController.java
+
+package com.app.controller;
+
+import com.app.repository.MedicineRepository;
+import com.app.repository.MedicineSummary;
+import com.app.service.KeysetPage;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/medicines")
+public class MedicineController {
+
+    private final MedicineRepository medicineRepository;
+
+    public MedicineController(MedicineRepository medicineRepository) {
+        this.medicineRepository = medicineRepository;
+    }
+
+    // Medicines by name as summaries; follow nextCursor for the next page
+    // HTTP GET: http://localhost:8080/api/medicines?size=100&cursor=...
+    @GetMapping
+    public ResponseEntity<KeysetPage<MedicineSummary>> listMedicines(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "50") int size) {
+        int pageSize = KeysetPage.clampSize(size);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<MedicineSummary> rows;
+        if (cursor == null) {
+            rows = medicineRepository.findSummaries(page);
+        } else {
+            // cursor = base64url("<id>:<name>") of the last row of the previous page
+            String key;
+            try {
+                key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            int colon = key.indexOf(':');
+            long afterId;
+            try {
+                afterId = Long.parseLong(key.substring(0, Math.max(colon, 0)));
+            } catch (NumberFormatException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            rows = medicineRepository.findSummariesAfter(key.substring(colon + 1), afterId, page);
+        }
+        return ResponseEntity.ok(KeysetPage.of(rows, pageSize, MedicineController::cursorOf));
+    }
+
+    private static String cursorOf(MedicineSummary m) {
+        byte[] key = (m.getId() + ":" + m.getName()).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key);
+    }
+}
@@ -3,7 +3,13 @@
 package com.app.repository;
 
 import com.app.model.Medicine;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
 import java.util.List;
 
 public interface MedicineRepository extends JpaRepository<Medicine, Long> {
@@ -11,7 +17,26 @@ public interface MedicineRepository extends JpaRepository<Medicine, Long> {
     // Custom Query Method: Spring Data JPA automatically implements this
     List<Medicine> findByStockQuantityLessThan(int minQuantity);
 
+    // Low-stock list view: summaries only, lowest stock first
+    @Query("SELECT new com.app.repository.MedicineSummary(m.id, m.name, m.price, m.stockQuantity) FROM Medicine m " +
+            "WHERE m.stockQuantity < :minQuantity ORDER BY m.stockQuantity, m.id")
+    List<MedicineSummary> findLowStockSummaries(@Param("minQuantity") int minQuantity);
+
+    // Medicines by name, keyset-paginated on (name, id): the first page, then the page after the last row seen.
+    // Only the page size of the Pageable is used; its offset must stay 0.
+    @Query("SELECT new com.app.repository.MedicineSummary(m.id, m.name, m.price, m.stockQuantity) FROM Medicine m " +
+            "ORDER BY m.name, m.id")
+    List<MedicineSummary> findSummaries(Pageable page);
+
+    @Query("SELECT new com.app.repository.MedicineSummary(m.id, m.name, m.price, m.stockQuantity) FROM Medicine m " +
+            "WHERE m.name > :name OR (m.name = :name AND m.id > :id) ORDER BY m.name, m.id")
+    List<MedicineSummary> findSummariesAfter(@Param("name") String name, @Param("id") long id, Pageable page);
+
     // Custom Query to find expired medicines
-    // @Query("SELECT m FROM Medicine m WHERE m.expiryDate < CURRENT_DATE")
-    // List<Medicine> findExpired();
+    // Slice rather than Page: callers walk pages forward and don't need a COUNT query
+    @Query("SELECT m FROM Medicine m WHERE m.expiryDate < CURRENT_DATE ORDER BY m.expiryDate, m.id")
+    Slice<Medicine> findExpired(Pageable pageable);
+
+    @Query("SELECT m FROM Medicine m WHERE m.expiryDate < :date ORDER BY m.expiryDate, m.id")
+    Slice<Medicine> findExpiringBefore(@Param("date") LocalDate date, Pageable pageable);
 }
@@ -0,0 +1,38 @@
+// src/main/java/com/app/alert/MedicineStockListener.java
+
+package com.app.alert;
+
+import com.app.model.Medicine;
+import com.app.service.PriceCatalog;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+// JPA entity listener on Medicine; Spring Boot lets Hibernate inject it as a bean
+@Component
+public class MedicineStockListener {
+
+    private final InventoryAlertWatcher watcher;
+    // looked up lazily: the catalog needs MedicineRepository, which needs this listener
+    private final ObjectProvider<PriceCatalog> priceCatalog;
+
+    public MedicineStockListener(InventoryAlertWatcher watcher, ObjectProvider<PriceCatalog> priceCatalog) {
+        this.watcher = watcher;
+        this.priceCatalog = priceCatalog;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void stockChanged(Medicine medicine) {
+        watcher.onStockChanged(medicine);
+        priceCatalog.ifAvailable(c -> c.onMedicineChanged(medicine.getId()));
+    }
+
+    @PostRemove
+    public void removed(Medicine medicine) {
+        watcher.onRemoved(medicine);
+        priceCatalog.ifAvailable(c -> c.onMedicineChanged(medicine.getId()));
+    }
+}
@@ -0,0 +1,24 @@
+// src/main/java/com/app/repository/MedicineSummary.java
+
+package com.app.repository;
+
+// Row of the medicine list views, selected with a JPQL constructor expression instead of loading entities
+public class MedicineSummary {
+
+    private final Long id;
+    private final String name;
+    private final double price;
+    private final int stockQuantity;
+
+    public MedicineSummary(Long id, String name, double price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public double getPrice() { return price; }
+    public int getStockQuantity() { return stockQuantity; }
+}
@@ -0,0 +1,229 @@
+// src/main/java/com/app/model/Money.java
+
+package com.app.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * An amount of money as a whole number of minor units (cents) plus its currency.
+ *
+ * Arithmetic is exact long math: overflow throws instead of wrapping, and the
+ * only rounding is the explicit {@link RoundingMode} of {@link #percent}. Hot
+ * loops (running cart totals, tax, insurance rules) use the static helpers on
+ * raw minor units and allocate nothing; Money objects are for passing amounts
+ * around. Amounts are parsed from and formatted to plain decimals digit by digit,
+ * never through double.
+ *
+ * In JSON an amount is a bare decimal number in {@link #BILLING_CURRENCY}, e.g. 12.5,
+ * the same shape the REST API had when amounts were doubles.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Currency bills are issued in (-Dbilling.currency=EUR to change; default USD). */
+    public static final Currency BILLING_CURRENCY = Currency.getInstance(System.getProperty("billing.currency", "USD"));
+
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000};
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        if (currency == null) throw new IllegalArgumentException("currency required");
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    /** Parse a plain decimal such as "12.5" or "-3.75"; more decimals than the currency has is an error. */
+    public static Money parse(CharSequence amount, Currency currency) {
+        return new Money(parseMinor(amount, digits(currency)), currency);
+    }
+
+    /** Nearest amount to a double (half-up), for legacy double-valued inputs such as plan settings. */
+    public static Money ofApproximate(double amount, Currency currency) {
+        return new Money(Math.round(amount * POW10[digits(currency)]), currency);
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    static Money fromJson(BigDecimal amount) {
+        return parse(amount.stripTrailingZeros().toPlainString(), BILLING_CURRENCY);
+    }
+
+    @JsonValue
+    BigDecimal toJson() {
+        if (!currency.equals(BILLING_CURRENCY)) {
+            throw new IllegalStateException("Only " + BILLING_CURRENCY + " amounts are written as JSON numbers: " + this);
+        }
+        return BigDecimal.valueOf(minorUnits, digits(currency));
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public Currency getCurrency() { return currency; }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    /** This amount times basisPoints / 10,000 (500 = 5%), rounded to a minor unit with the given mode. */
+    public Money percent(long basisPoints, RoundingMode mode) {
+        return new Money(percentOf(minorUnits, basisPoints, mode), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public Money min(Money other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    public Money max(Money other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, sameCurrency(other).minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money m = (Money) o;
+        return minorUnits == m.minorUnits && currency.equals(m.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    /** Plain decimal without currency, e.g. "12.34". */
+    public String toPlainString() {
+        return appendPlain(new StringBuilder(24), minorUnits, digits(currency)).toString();
+    }
+
+    /** e.g. "USD 12.34" */
+    @Override
+    public String toString() {
+        return appendPlain(new StringBuilder(28).append(currency.getCurrencyCode()).append(' '), minorUnits, digits(currency)).toString();
+    }
+
+    private Money sameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+        return other;
+    }
+
+    /* -------------------- Minor-unit kernels (no allocation) -------------------- */
+
+    /** Minor units per major unit as a power of ten: 2 for USD, 0 for JPY. */
+    public static int digits(Currency currency) {
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    /** minorUnits * basisPoints / 10,000, rounded with the given mode. */
+    public static long percentOf(long minorUnits, long basisPoints, RoundingMode mode) {
+        return divide(Math.multiplyExact(minorUnits, basisPoints), 10_000, mode);
+    }
+
+    /** dividend / divisor rounded with the given mode, like BigDecimal.divide but on longs. */
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        long q = dividend / divisor;
+        long r = dividend % divisor;
+        if (r == 0) return q;
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        boolean awayFromZero;
+        switch (mode) {
+            case UP: awayFromZero = true; break;
+            case DOWN: awayFromZero = false; break;
+            case CEILING: awayFromZero = sign > 0; break;
+            case FLOOR: awayFromZero = sign < 0; break;
+            case UNNECESSARY: throw new ArithmeticException("Rounding necessary");
+            default: {
+                // compare the remainder with the rest of the divisor instead of doubling it (no overflow)
+                long rem = Math.abs(r);
+                int half = Long.compare(rem, Math.abs(divisor) - rem);
+                if (half != 0) awayFromZero = half > 0;
+                else awayFromZero = mode == RoundingMode.HALF_UP || (mode == RoundingMode.HALF_EVEN && (q & 1) != 0);
+            }
+        }
+        return awayFromZero ? q + sign : q;
+    }
+
+    /** Parse a plain decimal ("12", "12.5", "-0.05") into minor units with the given number of digits. */
+    public static long parseMinor(CharSequence s, int digits) {
+        if (s == null) throw new NumberFormatException("null amount");
+        int i = 0, n = s.length();
+        while (i < n && Character.isWhitespace(s.charAt(i))) i++;
+        while (n > i && Character.isWhitespace(s.charAt(n - 1))) n--;
+        boolean negative = i < n && s.charAt(i) == '-';
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) i++;
+
+        long value = 0;
+        int seen = 0, fraction = -1;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') throw new NumberFormatException("Not an amount: " + s);
+            if (fraction >= 0 && ++fraction > digits) throw new NumberFormatException("Too many decimals: " + s);
+            value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+            seen++;
+        }
+        if (seen == 0) throw new NumberFormatException("Not an amount: " + s);
+        value = Math.multiplyExact(value, POW10[digits - Math.max(fraction, 0)]);
+        return negative ? -value : value;
+    }
+
+    /** Append minor units as a plain decimal, e.g. 1234 with 2 digits -> "12.34". */
+    public static StringBuilder appendPlain(StringBuilder sb, long minorUnits, int digits) {
+        if (minorUnits < 0) sb.append('-');
+        // negate via unsigned math so Long.MIN_VALUE prints correctly
+        long abs = minorUnits < 0 ? -minorUnits : minorUnits;
+        long unit = POW10[digits];
+        sb.append(Long.toUnsignedString(Long.divideUnsigned(abs, unit)));
+        if (digits > 0) {
+            long frac = Long.remainderUnsigned(abs, unit);
+            sb.append('.');
+            for (long p = unit / 10; p > frac && p > 1; p /= 10) sb.append('0');
+            sb.append(frac);
+        }
+        return sb;
+    }
+
+    public static String format(long minorUnits, Currency currency) {
+        return appendPlain(new StringBuilder(24), minorUnits, digits(currency)).toString();
+    }
+}
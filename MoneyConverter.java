@@ -0,0 +1,26 @@
+// src/main/java/com/app/model/MoneyConverter.java
+
+package com.app.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores Money as a BIGINT of minor units in the billing currency. Amounts in any
+// other currency are rejected rather than silently relabelled.
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        if (money == null) return null;
+        if (!money.getCurrency().equals(Money.BILLING_CURRENCY)) {
+            throw new IllegalArgumentException("Cannot store " + money + "; invoices are in " + Money.BILLING_CURRENCY);
+        }
+        return money.getMinorUnits();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long minorUnits) {
+        return minorUnits == null ? null : Money.ofMinor(minorUnits, Money.BILLING_CURRENCY);
+    }
+}
@@ -0,0 +1,378 @@
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Read-only list for the Pharmacy table that loads rows a page at a time.
+ *
+ * TableView only asks for the rows it is showing, so {@link #get(int)} fetches the
+ * page holding the row from a {@link Source} and keeps the last {@value #MAX_PAGES}
+ * pages; everything else stays with the source. Filtering and sorting are part of
+ * the {@link Query} handed to the source rather than done on the list. With a
+ * {@link BackgroundTasks} the query runs off the FX thread and the table keeps
+ * showing the previous result until the newest query finishes.
+ *
+ * This pages the table, not the inventory. The only source, {@link #over}, queries
+ * the in-memory inventory, which the app holds whole: InventoryStore reads every
+ * medicine into the heap on load, and the name index, reservations and sync work on
+ * that list. Each query therefore copies the matching references into an array and
+ * sorts it, O(n log n), and memory grows with the formulary (about one reference per
+ * medicine on top of the medicines themselves). What stays flat is the table: it
+ * materializes only the rows it shows, and sorting or filtering never re-renders it.
+ * A Source over a store that filters, sorts and pages itself (a SQL query with
+ * LIMIT/OFFSET, say) would make the memory flat too, without changes to this list.
+ *
+ * Inventory edits do not re-run the query. {@link #changed}, {@link #added} and
+ * {@link #removed} fit the affected rows into the current result (an {@link Edits})
+ * and tell the table about those rows only. A row whose values changed in place is
+ * updated, and one that moves in the sort order is permuted, so the table keeps its
+ * selection and scroll position. Large batches of edits, and edits that arrive while
+ * a query is still loading, re-run the query instead.
+ */
+public class PagedInventoryList extends ObservableListBase<PatientPharmacyApp.Medicine> {
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_PAGES = 8;
+    static final int MAX_EDITS = 64; // more edits at once than this re-run the query
+
+    public enum SortKey { NAME, PRICE, QUANTITY }
+
+    /** Filter text (matched anywhere in the name) plus sort order. Immutable. */
+    public static final class Query {
+        public final String filter;
+        public final SortKey sortKey; // null = source order
+        public final boolean ascending;
+
+        public Query(String filter, SortKey sortKey, boolean ascending) {
+            this.filter = filter == null ? "" : filter;
+            this.sortKey = sortKey;
+            this.ascending = ascending;
+        }
+
+        public Query withFilter(String f) { return new Query(f, sortKey, ascending); }
+        public Query withSort(SortKey k, boolean asc) { return new Query(filter, k, asc); }
+
+        /** Whether the medicine passes the filter, as InventoryIndex.filter decides it. */
+        public boolean accepts(PatientPharmacyApp.Medicine m) {
+            String f = InventoryIndex.normalize(filter);
+            return f.isEmpty() || InventoryIndex.normalize(m.getName()).contains(f);
+        }
+
+        /** The sort order, or null for source order. */
+        Comparator<PatientPharmacyApp.Medicine> order() {
+            Comparator<PatientPharmacyApp.Medicine> order = comparator(sortKey);
+            return order == null || ascending ? order : order.reversed();
+        }
+    }
+
+    /** Where rows come from. A Result is a stable view of one query until the next refresh. */
+    public interface Source {
+        /** Called on the FX thread to capture the query's inputs; the returned loader may run on any thread. */
+        Callable<Result> prepare(Query query);
+    }
+
+    public interface Result {
+        int size();
+        List<PatientPharmacyApp.Medicine> fetch(int offset, int limit);
+    }
+
+    /** A result that takes single-row edits in place. Positions are indexes into the result. */
+    public interface Edits extends Result {
+        /** Where the medicine is, or -1 if it is not in the result. */
+        int indexOf(PatientPharmacyApp.Medicine m);
+
+        /** Take the row out of the result. */
+        void remove(int index);
+
+        /** Put a medicine in where the query's order wants it; returns its index. */
+        int insert(PatientPharmacyApp.Medicine m);
+
+        /** Whether the row at index is still where the query's order wants it (after its values changed). */
+        boolean inOrder(int index);
+    }
+
+    private static final Result EMPTY = new Result() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public List<PatientPharmacyApp.Medicine> fetch(int offset, int limit) {
+            return Collections.emptyList();
+        }
+    };
+
+    private final Source source;
+    private final BackgroundTasks.Latest loads;
+    private final Consumer<Throwable> onError;
+    private Query query = new Query("", null, true);
+    private Result result = EMPTY;
+    private boolean loading; // a query is running in the background; edits until it lands re-run it
+    private final Map<Integer, List<PatientPharmacyApp.Medicine>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<PatientPharmacyApp.Medicine>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    /** Runs queries on the FX thread. */
+    public PagedInventoryList(Source source) {
+        this(source, null, null);
+    }
+
+    /** Runs queries on the tasks; onError gets a failed query on the FX thread, and the table keeps the previous rows. */
+    public PagedInventoryList(Source source, BackgroundTasks tasks, Consumer<Throwable> onError) {
+        this.source = source;
+        this.loads = tasks == null ? null : tasks.new Latest();
+        this.onError = tasks == null ? null : Objects.requireNonNull(onError, "onError");
+        refresh();
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public void setQuery(Query query) {
+        this.query = query;
+        refresh();
+    }
+
+    /** Re-run the query and tell the table everything changed. */
+    public void refresh() {
+        Callable<Result> loader = source.prepare(query);
+        if (loads == null) {
+            try {
+                show(loader.call());
+            } catch (Exception ex) {
+                throw new IllegalStateException("Inventory query failed", ex);
+            }
+        } else {
+            loading = true;
+            loads.submit(progress -> loader.call(), r -> {
+                loading = false;
+                show(r);
+            }, ex -> {
+                loading = false;
+                onError.accept(ex);
+            });
+        }
+    }
+
+    /** The medicine's name, price or quantity changed. */
+    public void changed(PatientPharmacyApp.Medicine m) {
+        changed(Collections.singletonList(m));
+    }
+
+    public void changed(Collection<? extends PatientPharmacyApp.Medicine> rows) {
+        Edits edits = editable(rows.size());
+        if (edits == null) return;
+        for (PatientPharmacyApp.Medicine m : rows) {
+            int i = edits.indexOf(m);
+            boolean wanted = query.accepts(m);
+            if (i >= 0 && wanted) {
+                move(edits, i, m);
+            } else if (i >= 0) {
+                remove(edits, i, m);
+            } else if (wanted) {
+                insert(edits, m);
+            }
+        }
+    }
+
+    /** Medicines new to the inventory. */
+    public void added(Collection<? extends PatientPharmacyApp.Medicine> rows) {
+        Edits edits = editable(rows.size());
+        if (edits == null) return;
+        for (PatientPharmacyApp.Medicine m : rows) {
+            if (query.accepts(m) && edits.indexOf(m) < 0) insert(edits, m);
+        }
+    }
+
+    /** Medicines gone from the inventory. */
+    public void removed(Collection<? extends PatientPharmacyApp.Medicine> rows) {
+        Edits edits = editable(rows.size());
+        if (edits == null) return;
+        for (PatientPharmacyApp.Medicine m : rows) {
+            int i = edits.indexOf(m);
+            if (i >= 0) remove(edits, i, m);
+        }
+    }
+
+    // the current result if it can take this many edits in place; otherwise the query is re-run
+    private Edits editable(int count) {
+        if (count == 0) return null;
+        if (loading || count > MAX_EDITS || !(result instanceof Edits)) {
+            refresh();
+            return null;
+        }
+        return (Edits) result;
+    }
+
+    // one change per row, so the table sees a plain update, permutation, removal or addition
+    private void move(Edits edits, int from, PatientPharmacyApp.Medicine m) {
+        int to = from;
+        if (!edits.inOrder(from)) {
+            edits.remove(from);
+            to = edits.insert(m);
+        }
+        pages.clear();
+        beginChange();
+        if (to != from) {
+            int lo = Math.min(from, to);
+            int hi = Math.max(from, to);
+            int[] perm = new int[hi - lo + 1];
+            for (int k = lo; k <= hi; k++) perm[k - lo] = k == from ? to : from < to ? k - 1 : k + 1;
+            nextPermutation(lo, hi + 1, perm);
+        }
+        nextUpdate(to);
+        endChange();
+    }
+
+    private void remove(Edits edits, int i, PatientPharmacyApp.Medicine m) {
+        edits.remove(i);
+        pages.clear();
+        beginChange();
+        nextRemove(i, m);
+        endChange();
+    }
+
+    private void insert(Edits edits, PatientPharmacyApp.Medicine m) {
+        int i = edits.insert(m);
+        pages.clear();
+        beginChange();
+        nextAdd(i, i + 1);
+        endChange();
+    }
+
+    private void show(Result newResult) {
+        int oldSize = result.size();
+        result = newResult;
+        pages.clear();
+        beginChange();
+        if (oldSize > 0) nextRemove(0, Collections.nCopies(oldSize, null));
+        if (result.size() > 0) nextAdd(0, result.size());
+        endChange();
+    }
+
+    @Override
+    public PatientPharmacyApp.Medicine get(int index) {
+        if (index < 0 || index >= result.size()) throw new IndexOutOfBoundsException(index);
+        int page = index / PAGE_SIZE;
+        List<PatientPharmacyApp.Medicine> rows = pages.get(page);
+        if (rows == null) {
+            rows = result.fetch(page * PAGE_SIZE, PAGE_SIZE);
+            pages.put(page, rows);
+        }
+        int i = index - page * PAGE_SIZE;
+        return i < rows.size() ? rows.get(i) : null;
+    }
+
+    @Override
+    public int size() {
+        return result.size();
+    }
+
+    /* -------------------- In-memory source -------------------- */
+
+    /**
+     * Source over the in-memory inventory list: filters through the name index (on the
+     * FX thread, which owns the index), then sorts the matches once per query in the
+     * loader. The result is an array of the matching medicines that later edits are
+     * fitted into; it holds every match, so it pages the table but not the data.
+     */
+    public static Source over(List<PatientPharmacyApp.Medicine> inventory, InventoryIndex index) {
+        return q -> {
+            PatientPharmacyApp.Medicine[] rows = (q.filter.trim().isEmpty() ? inventory : index.filter(q.filter))
+                    .toArray(new PatientPharmacyApp.Medicine[0]);
+            return () -> new Rows(rows, q.order());
+        };
+    }
+
+    // matches in query order; edited on the FX thread once shown
+    private static final class Rows implements Edits {
+        private PatientPharmacyApp.Medicine[] rows;
+        private int size;
+        private final Comparator<PatientPharmacyApp.Medicine> order; // null = source order
+
+        Rows(PatientPharmacyApp.Medicine[] rows, Comparator<PatientPharmacyApp.Medicine> order) {
+            if (order != null) Arrays.sort(rows, order);
+            this.rows = rows;
+            this.size = rows.length;
+            this.order = order;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public List<PatientPharmacyApp.Medicine> fetch(int offset, int limit) {
+            int to = Math.min(size, offset + limit);
+            return offset >= to ? Collections.emptyList() : new ArrayList<>(Arrays.asList(rows).subList(offset, to));
+        }
+
+        // identity scan: the sort key may just have changed, so a binary search could miss it
+        @Override
+        public int indexOf(PatientPharmacyApp.Medicine m) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == m) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public void remove(int index) {
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            rows[--size] = null;
+        }
+
+        // after any equal rows, so edited rows go to the end of their run as new ones do
+        @Override
+        public int insert(PatientPharmacyApp.Medicine m) {
+            int at = size;
+            if (order != null) {
+                int lo = 0;
+                int hi = size;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (order.compare(rows[mid], m) <= 0) lo = mid + 1;
+                    else hi = mid;
+                }
+                at = lo;
+            }
+            if (size == rows.length) rows = Arrays.copyOf(rows, Math.max(16, size + (size >> 1)));
+            System.arraycopy(rows, at, rows, at + 1, size - at);
+            rows[at] = m;
+            size++;
+            return at;
+        }
+
+        @Override
+        public boolean inOrder(int index) {
+            if (order == null) return true;
+            return (index == 0 || order.compare(rows[index - 1], rows[index]) <= 0)
+                    && (index == size - 1 || order.compare(rows[index], rows[index + 1]) <= 0);
+        }
+    }
+
+    private static Comparator<PatientPharmacyApp.Medicine> comparator(SortKey key) {
+        if (key == null) return null;
+        switch (key) {
+            case NAME: return Comparator.comparing(PatientPharmacyApp.Medicine::getName, String.CASE_INSENSITIVE_ORDER);
+            case PRICE: return Comparator.comparing(PatientPharmacyApp.Medicine::getPrice);
+            default: return Comparator.comparingInt(PatientPharmacyApp.Medicine::getQuantity);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+// src/main/java/com/app/model/Patient.java
+
+package com.app.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+
+// Invoice.patient is lazy; a serialized proxy must not expose Hibernate's internals
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Entity
+@Table(name = "patients")
+public class Patient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+
+    private String insurancePlanCode; // InsurancePlan.planCode, null if uninsured
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getInsurancePlanCode() { return insurancePlanCode; }
+    public void setInsurancePlanCode(String insurancePlanCode) { this.insurancePlanCode = insurancePlanCode; }
+}
@@ -0,0 +1,17 @@
+// src/main/java/com/app/repository/PatientRepository.java
+
+package com.app.repository;
+
+import com.app.model.Patient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface PatientRepository extends JpaRepository<Patient, Long> {
+
+    // Only the plan code, so resolving coverage doesn't load the whole patient
+    @Query("SELECT p.insurancePlanCode FROM Patient p WHERE p.id = :id")
+    Optional<String> findInsurancePlanCode(@Param("id") Long id);
+}
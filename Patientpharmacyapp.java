@@ -1,19 +1,43 @@
+import com.app.audit.AuditEvent;
+import com.app.audit.AuditJournal;
+import com.app.model.Money;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 
 /**
  * Patient Billing & Pharmacy Management - Single-file JavaFX example
@@ -25,12 +49,36 @@ public class PatientPharmacyApp extends Application {
 
     private ObservableList<BillItem> billItems = FXCollections.observableArrayList();
     private ObservableList<Medicine> inventory = FXCollections.observableArrayList();
+    private final InventoryIndex inventoryIndex = new InventoryIndex();
+    private InventoryStore inventoryStore;
+    private AuditJournal audit; // every inventory and bill change, written behind the UI
+    private SalesAnalytics analytics; // issued invoices, for the Reports tab
+    private final StockReservations reservations = new StockReservations();
+    private PagedInventoryList pagedInventory;
+    // multi-terminal sync, when enabled: this terminal's client, and the hub if this terminal hosts it
+    private SyncClient sync;
+    private SyncHub syncHub;
+    private SocketSyncTransport.Server syncServer;
 
     private Label subtotalLabel = new Label("0.00");
     private Label taxLabel = new Label("0.00");
     private Label totalLabel = new Label("0.00");
 
-    private final double TAX_RATE = 0.05; // 5% tax as example
+    private static final long TAX_BASIS_POINTS = 500; // 5% tax as example
+    private final BillTotals totals = new BillTotals(TAX_BASIS_POINTS);
+    private static final int SUGGESTION_LIMIT = 8;
+    private static final long SHIFT_EXPORT_ROWS_PER_FILE = 500_000;
+
+    // invoices issued this session, in order; the current bill's invoice until the bill is cleared
+    private final List<InvoiceSnapshot> shiftInvoices = new ArrayList<>();
+    private InvoiceSnapshot currentInvoice;
+    private boolean invoiceStale; // the cart changed since currentInvoice was issued
+    private final List<BillItem> issuedLines = new ArrayList<>(); // the cart as currentInvoice has it
+    private int invoiceSeq;
+
+    // file I/O and invoice rendering; progress shows in the status bar
+    private final BackgroundTasks tasks = new BackgroundTasks();
+    private final InvoiceRenderer renderer = new InvoiceRenderer();
 
     public static void main(String[] args) {
         launch(args);
@@ -39,25 +87,273 @@ public class PatientPharmacyApp extends Application {
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Patient Billing & Pharmacy Management");
+        if (!openInventoryStore()) {
+            Platform.exit();
+            return;
+        }
+        inventoryIndex.bind(inventory);
+        openSync();
+        openAnalytics();
+        totals.bind(billItems);
+        billItems.addListener((ListChangeListener<BillItem>) c -> invoiceStale = currentInvoice != null);
+        totals.subtotalProperty().addListener((obs, o, v) -> subtotalLabel.setText(BillTotals.format(v.longValue())));
+        totals.taxProperty().addListener((obs, o, v) -> taxLabel.setText(BillTotals.format(v.longValue())));
+        totals.totalProperty().addListener((obs, o, v) -> totalLabel.setText(BillTotals.format(v.longValue())));
 
         TabPane tabs = new TabPane();
         Tab billingTab = new Tab("Billing", createBillingPane(primaryStage));
         Tab pharmacyTab = new Tab("Pharmacy", createPharmacyPane());
+        Tab reportsTab = new Tab("Reports (this terminal)", createReportsPane());
         billingTab.setClosable(false);
         pharmacyTab.setClosable(false);
+        reportsTab.setClosable(false);
+
+        tabs.getTabs().addAll(billingTab, pharmacyTab, reportsTab);
 
-        tabs.getTabs().addAll(billingTab, pharmacyTab);
+        BorderPane main = new BorderPane(tabs);
+        main.setBottom(createStatusBar());
 
-        Scene scene = new Scene(tabs, 900, 600);
+        Scene scene = new Scene(main, 900, 600);
         primaryStage.setScene(scene);
         primaryStage.show();
+    }
+
+    @Override
+    public void stop() {
+        tasks.shutdown();
+        renderer.close();
+        closeSync();
+        StringBuilder failed = new StringBuilder();
+        close(analytics, "sales log", failed);
+        close(audit, "audit journal", failed);
+        close(inventoryStore, "inventory store", failed);
+        if (failed.length() > 0) {
+            showAlert(Alert.AlertType.ERROR, "Exit", "Recent changes may not have been saved." + failed);
+        }
+    }
+
+    // close c if open; a failure is added to failed as one line
+    private static void close(Closeable c, String what, StringBuilder failed) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ex) {
+            failed.append("\nCould not close the ").append(what).append(": ").append(ex.getMessage());
+        }
+    }
+
+    // ~/.pharmacy, or -Dpharmacy.data=<dir>
+    private static Path dataRoot() {
+        return Paths.get(System.getProperty("pharmacy.data", Paths.get(System.getProperty("user.home"), ".pharmacy").toString()));
+    }
+
+    // inventory and audit journal live in <data>/inventory and <data>/audit
+    private boolean openInventoryStore() {
+        Path root = dataRoot();
+        Path dir = root.resolve("inventory");
+        Path auditDir = root.resolve("audit");
+        try {
+            inventoryStore = new InventoryStore(dir, ex -> Platform.runLater(() ->
+                    showAlert(Alert.AlertType.ERROR, "Inventory", "Could not save inventory changes: " + ex.getMessage())));
+            inventory.setAll(inventoryStore.load());
+            if (inventory.isEmpty()) {
+                // store missing or lost: rebuild it from the audit trail, if there is one
+                List<Medicine> replayed = replayInventory(auditDir);
+                replayed.forEach(inventoryStore::put);
+                inventory.setAll(replayed);
+            }
+            audit = new AuditJournal(auditDir, 8192, 16L << 20, 0, ex -> Platform.runLater(() ->
+                    showAlert(Alert.AlertType.ERROR, "Audit", "Could not write the audit journal: " + ex.getMessage())));
+        } catch (IOException ex) {
+            showAlert(Alert.AlertType.ERROR, "Inventory", "Could not open inventory in " + root + ": " + ex.getMessage());
+            return false;
+        }
+        if (inventory.isEmpty()) {
+            // first run: sample inventory
+            inventory.addAll(
+                    new Medicine("Paracetamol 500mg", Money.parse("1.50", Money.BILLING_CURRENCY), 200),
+                    new Medicine("Amoxicillin 250mg", Money.parse("0.80", Money.BILLING_CURRENCY), 150),
+                    new Medicine("Cetrizine 10mg", Money.parse("0.40", Money.BILLING_CURRENCY), 300)
+            );
+            for (Medicine m : inventory) {
+                inventoryStore.put(m);
+                auditMedicine(AuditEvent.Type.MEDICINE_ADDED, m);
+            }
+        }
+        return true;
+    }
+
+    // sales history for reports lives in <data>/analytics; billing works without it
+    private void openAnalytics() {
+        Path dir = dataRoot().resolve("analytics");
+        try {
+            analytics = new SalesAnalytics(dir, ex -> Platform.runLater(() ->
+                    showAlert(Alert.AlertType.ERROR, "Reports", "Could not save sales history: " + ex.getMessage())));
+        } catch (IOException ex) {
+            showAlert(Alert.AlertType.WARNING, "Reports", "Sales history unavailable (" + dir + "): " + ex.getMessage());
+        }
+    }
+
+    /*
+     * Sync is off unless -Dpharmacy.sync.terminal=<n> gives this terminal a number (unique per
+     * pharmacy). One terminal hosts the hub with -Dpharmacy.sync.serve=<port>, listening on
+     * -Dpharmacy.sync.bind=<address> (its shop LAN address; every interface if unset); the others
+     * point at it with -Dpharmacy.sync.hub=<host>:<port>. Every terminal needs the same
+     * -Dpharmacy.sync.secret=<secret>. Start the hosting terminal first on a new hub: the first
+     * terminal to connect seeds the shared inventory with its own.
+     */
+    private void openSync() {
+        String terminal = System.getProperty("pharmacy.sync.terminal");
+        if (terminal == null) return;
+        String serve = System.getProperty("pharmacy.sync.serve");
+        String hub = System.getProperty("pharmacy.sync.hub");
+        String secret = System.getProperty("pharmacy.sync.secret", "");
+        if (secret.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "Sync", "Set pharmacy.sync.secret, the same on every terminal, to sync this terminal.");
+            return;
+        }
+        String bind = System.getProperty("pharmacy.sync.bind");
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        Path root = dataRoot();
+        try {
+            SyncTransport transport;
+            if (serve != null) {
+                syncHub = new SyncHub(root.resolve("sync-hub"), 50_000, ex -> Platform.runLater(() ->
+                        showAlert(Alert.AlertType.ERROR, "Sync", "Could not write the sync log: " + ex.getMessage())));
+                syncServer = new SocketSyncTransport.Server(syncHub, bind == null ? null : InetAddress.getByName(bind.trim()),
+                        Integer.parseInt(serve.trim()), key);
+                transport = new LoopbackSyncTransport(syncHub);
+            } else if (hub != null) {
+                int colon = hub.lastIndexOf(':');
+                transport = new SocketSyncTransport(hub.substring(0, colon), Integer.parseInt(hub.substring(colon + 1).trim()), key);
+            } else {
+                showAlert(Alert.AlertType.WARNING, "Sync", "Set pharmacy.sync.serve or pharmacy.sync.hub to sync this terminal.");
+                return;
+            }
+            sync = new SyncClient(Integer.parseInt(terminal.trim()), root.resolve("sync"), transport, Platform::runLater,
+                    new SyncClient.Listener() {
+                        @Override
+                        public void added(Medicine m) {
+                            inventoryStore.put(m);
+                            auditMedicine(AuditEvent.Type.MEDICINE_ADDED, m);
+                            inventory.add(m);
+                        }
+
+                        @Override
+                        public void changed(Medicine m) {
+                            inventoryIndex.reindex(m);
+                            inventoryStore.put(m);
+                            auditMedicine(AuditEvent.Type.MEDICINE_UPDATED, m);
+                            reservations.setOnHand(m);
+                            if (pagedInventory != null) pagedInventory.changed(m);
+                        }
+
+                        @Override
+                        public void removed(Medicine m) {
+                            inventory.remove(m);
+                            inventoryStore.delete(m);
+                            auditMedicine(AuditEvent.Type.MEDICINE_DELETED, m);
+                            reservations.forget(m);
+                        }
+
+                        @Override
+                        public void checkpointFailed(IOException ex) {
+                            showAlert(Alert.AlertType.WARNING, "Sync", "Could not save sync progress: " + ex.getMessage()
+                                    + "\nSync goes on; after a restart this terminal catches up from an earlier point.");
+                        }
+                    });
+            sync.start(new ArrayList<>(inventory));
+        } catch (IOException | RuntimeException ex) {
+            showAlert(Alert.AlertType.ERROR, "Sync", "Could not start inventory sync: " + ex.getMessage());
+            closeSync();
+        }
+    }
 
-        // sample inventory
-        inventory.addAll(
-                new Medicine("Paracetamol 500mg", 1.50, 200),
-                new Medicine("Amoxicillin 250mg", 0.80, 150),
-                new Medicine("Cetrizine 10mg", 0.40, 300)
-        );
+    private void closeSync() {
+        StringBuilder failed = new StringBuilder();
+        close(sync, "sync client", failed);
+        close(syncServer, "sync server", failed);
+        close(syncHub, "sync hub", failed);
+        if (failed.length() > 0) showAlert(Alert.AlertType.ERROR, "Sync", failed.substring(1));
+        sync = null;
+        syncServer = null;
+        syncHub = null;
+    }
+
+    // the inventory as the journal last saw it: latest state of every medicine not deleted
+    static List<Medicine> replayInventory(Path auditDir) throws IOException {
+        Map<Long, Medicine> byId = new LinkedHashMap<>();
+        AuditJournal.replay(auditDir, e -> {
+            switch (e.getType()) {
+                case MEDICINE_ADDED:
+                case MEDICINE_UPDATED: {
+                    Medicine m = new Medicine(e.getText(), Money.ofMinor(e.getAmountMinor(), Money.BILLING_CURRENCY), e.getQuantity());
+                    m.setId(e.getEntityId());
+                    byId.put(m.getId(), m);
+                    break;
+                }
+                case MEDICINE_DELETED:
+                    byId.remove(e.getEntityId());
+                    break;
+                default:
+                    break;
+            }
+        });
+        return new ArrayList<>(byId.values());
+    }
+
+    private void auditMedicine(AuditEvent.Type type, Medicine m) {
+        audit.record(type, m.getId(), m.getQuantity(), m.getPrice().getMinorUnits(), m.getName());
+    }
+
+    private void auditLine(AuditEvent.Type type, BillItem b) {
+        Medicine m = inventoryIndex.findExact(b.getName());
+        audit.record(type, m == null ? 0 : m.getId(), b.getQuantity(), b.getUnitPrice().getMinorUnits(), b.getName());
+    }
+
+    /* -------------------- Status Bar -------------------- */
+    // shows the most recent titled background task; Cancel stops it
+    private HBox createStatusBar() {
+        Label status = new Label("Ready");
+        ProgressBar bar = new ProgressBar(0);
+        bar.setVisible(false);
+        Button btnCancel = new Button("Cancel");
+        btnCancel.setVisible(false);
+        BackgroundTasks.Handle[] shown = new BackgroundTasks.Handle[1];
+
+        tasks.setMonitor(new BackgroundTasks.Monitor() {
+            @Override
+            public void started(BackgroundTasks.Handle task, String title) {
+                shown[0] = task;
+                status.setText(title + "...");
+                bar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+                bar.setVisible(true);
+                btnCancel.setVisible(true);
+            }
+
+            @Override
+            public void progress(BackgroundTasks.Handle task, double fraction, String message) {
+                if (task != shown[0]) return;
+                bar.setProgress(fraction);
+                if (message != null) status.setText(message);
+            }
+
+            @Override
+            public void finished(BackgroundTasks.Handle task) {
+                if (task != shown[0]) return;
+                shown[0] = null;
+                status.setText(task.isCancelled() ? "Cancelled" : "Ready");
+                bar.setVisible(false);
+                btnCancel.setVisible(false);
+            }
+        });
+        btnCancel.setOnAction(e -> { if (shown[0] != null) shown[0].cancel(); });
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox statusBar = new HBox(8, status, spacer, bar, btnCancel);
+        statusBar.setPadding(new Insets(4, 12, 4, 12));
+        return statusBar;
     }
 
     /* -------------------- Billing Pane -------------------- */
@@ -101,11 +397,11 @@ public class PatientPharmacyApp extends Application {
         colQty.setCellValueFactory(new PropertyValueFactory<>("quantity"));
         colQty.setPrefWidth(80);
 
-        TableColumn<BillItem, Double> colPrice = new TableColumn<>("Unit Price");
+        TableColumn<BillItem, Money> colPrice = new TableColumn<>("Unit Price");
         colPrice.setCellValueFactory(new PropertyValueFactory<>("unitPrice"));
         colPrice.setPrefWidth(100);
 
-        TableColumn<BillItem, Double> colTotal = new TableColumn<>("Total");
+        TableColumn<BillItem, Money> colTotal = new TableColumn<>("Total");
         colTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
         colTotal.setPrefWidth(120);
 
@@ -124,6 +420,8 @@ public class PatientPharmacyApp extends Application {
         Button btnAdd = new Button("Add to Bill");
         Button btnRemove = new Button("Remove Selected Item");
 
+        installTypeAhead(tfItemName, tfQty, tfPrice);
+
         addBox.getChildren().addAll(new Label("Item:"), tfItemName, new Label("Qty:"), tfQty, new Label("Price:"), tfPrice, btnAdd, btnRemove);
 
         centerVBox.getChildren().addAll(billTable, addBox);
@@ -140,16 +438,18 @@ public class PatientPharmacyApp extends Application {
 
         totalsGrid.add(new Label("Subtotal:"), 0, 0);
         totalsGrid.add(subtotalLabel, 1, 0);
-        totalsGrid.add(new Label("Tax (" + (int)(TAX_RATE*100) + "%):"), 0, 1);
+        totalsGrid.add(new Label("Tax (" + TAX_BASIS_POINTS / 100 + "%):"), 0, 1);
         totalsGrid.add(taxLabel, 1, 1);
         totalsGrid.add(new Label("Total:"), 0, 2);
         totalsGrid.add(totalLabel, 1, 2);
 
         Button btnGenerate = new Button("Generate Invoice");
-        Button btnSaveInvoice = new Button("Save Invoice (CSV)");
+        Button btnSaveInvoice = new Button("Save Invoice...");
+        Button btnExportShift = new Button("Export Shift (CSV)");
+        Button btnReprintShift = new Button("Reprint Shift...");
         Button btnClear = new Button("Clear Bill");
 
-        rightBox.getChildren().addAll(totalsGrid, btnGenerate, btnSaveInvoice, btnClear);
+        rightBox.getChildren().addAll(totalsGrid, btnGenerate, btnSaveInvoice, btnExportShift, btnReprintShift, btnClear);
         root.setRight(rightBox);
 
         // event handlers
@@ -160,25 +460,36 @@ public class PatientPharmacyApp extends Application {
                 return;
             }
             int qty;
-            double price;
+            Money price;
             try {
                 qty = Integer.parseInt(tfQty.getText().trim());
-                price = Double.parseDouble(tfPrice.getText().trim());
+                price = Money.parse(tfPrice.getText(), Money.BILLING_CURRENCY);
             } catch (Exception ex) {
                 showAlert(Alert.AlertType.WARNING, "Validation", "Enter valid qty and price.");
                 return;
             }
+            if (qty <= 0) {
+                showAlert(Alert.AlertType.WARNING, "Validation", "Quantity must be at least 1.");
+                return;
+            }
             BillItem item = new BillItem(name, qty, price);
+            // inventory medicines are reserved; free-text items (services) are not stock-tracked
+            Medicine med = inventoryIndex.findExact(name);
+            if (med != null && !reservations.reserve(item, med, qty)) {
+                showAlert(Alert.AlertType.WARNING, "Stock", "Only " + Math.max(0, reservations.available(med)) + " of " + med.getName() + " available.");
+                return;
+            }
             billItems.add(item);
-            recalcTotals();
+            audit.record(AuditEvent.Type.BILL_LINE_ADDED, med == null ? 0 : med.getId(), qty, price.getMinorUnits(), name);
             tfItemName.clear(); tfQty.clear(); tfPrice.clear();
         });
 
         btnRemove.setOnAction(e -> {
             BillItem sel = billTable.getSelectionModel().getSelectedItem();
             if (sel != null) {
+                reservations.release(sel);
                 billItems.remove(sel);
-                recalcTotals();
+                auditLine(AuditEvent.Type.BILL_LINE_REMOVED, sel);
             } else {
                 showAlert(Alert.AlertType.INFORMATION, "Remove", "Select an item to remove.");
             }
@@ -189,18 +500,23 @@ public class PatientPharmacyApp extends Application {
                 showAlert(Alert.AlertType.INFORMATION, "Invoice", "Bill is empty.");
                 return;
             }
-            String invoice = buildInvoice(tfPatientName.getText().trim(), tfPatientId.getText().trim(), tfDoctor.getText().trim());
-            TextArea ta = new TextArea(invoice);
-            ta.setEditable(false);
-            ta.setWrapText(true);
-            ta.setPrefWidth(600);
-            ta.setPrefHeight(400);
-
-            Dialog<ButtonType> dlg = new Dialog<>();
-            dlg.setTitle("Invoice Preview");
-            dlg.getDialogPane().setContent(ta);
-            dlg.getDialogPane().getButtonTypes().addAll(ButtonType.OK);
-            dlg.showAndWait();
+            // the snapshot is taken here; formatting a long bill happens in the background
+            InvoiceSnapshot inv = issueInvoice(tfPatientName.getText().trim(), tfPatientId.getText().trim(), tfDoctor.getText().trim());
+            btnGenerate.setDisable(true);
+            tasks.submit("Building invoice " + inv.getInvoiceNo(), p -> buildInvoice(inv), invoice -> {
+                TextArea ta = new TextArea(invoice);
+                ta.setEditable(false);
+                ta.setWrapText(true);
+                ta.setPrefWidth(600);
+                ta.setPrefHeight(400);
+
+                Dialog<ButtonType> dlg = new Dialog<>();
+                dlg.setTitle("Invoice Preview");
+                dlg.getDialogPane().setContent(ta);
+                dlg.getDialogPane().getButtonTypes().addAll(ButtonType.OK);
+                dlg.show();
+            }, ex -> showAlert(Alert.AlertType.ERROR, "Invoice", "Could not build invoice: " + ex.getMessage()))
+                    .whenClosed(() -> btnGenerate.setDisable(false));
         });
 
         btnSaveInvoice.setOnAction(e -> {
@@ -210,26 +526,75 @@ public class PatientPharmacyApp extends Application {
             }
             FileChooser fc = new FileChooser();
             fc.setInitialFileName("invoice_" + DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(LocalDateTime.now()) + ".csv");
+            fc.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                    new FileChooser.ExtensionFilter("PDF", "*.pdf"),
+                    new FileChooser.ExtensionFilter("HTML", "*.html", "*.htm"),
+                    new FileChooser.ExtensionFilter("Text", "*.txt"));
             File file = fc.showSaveDialog(primaryStage);
             if (file != null) {
-                try (FileWriter fw = new FileWriter(file)) {
-                    fw.append("PatientName,PatientID,Doctor,Item,Qty,UnitPrice,Total\n");
-                    for (BillItem b : billItems) {
-                        fw.append(String.format("%s,%s,%s,%s,%d,%.2f,%.2f\n",
-                                escapeCsv(tfPatientName.getText()), escapeCsv(tfPatientId.getText()), escapeCsv(tfDoctor.getText()),
-                                escapeCsv(b.getName()), b.getQuantity(), b.getUnitPrice(), b.getTotal()));
-                    }
-                    fw.append(String.format(",,,%s,,%.2f,%.2f\n","Subtotal", Double.parseDouble(subtotalLabel.getText()), Double.parseDouble(totalLabel.getText())));
-                    showAlert(Alert.AlertType.INFORMATION, "Saved", "Invoice saved to " + file.getAbsolutePath());
-                } catch (IOException ex) {
-                    showAlert(Alert.AlertType.ERROR, "Save Error", "Could not save invoice: " + ex.getMessage());
-                }
+                // anything that is not a rendered format is saved as CSV, as before
+                InvoiceRenderer.Format format = InvoiceRenderer.Format.forFile(file.toPath());
+                InvoiceSnapshot inv = issueInvoice(tfPatientName.getText().trim(), tfPatientId.getText().trim(), tfDoctor.getText().trim());
+                runInBackground(btnSaveInvoice, "Saving invoice " + inv.getInvoiceNo(), "Could not save invoice: ", p -> {
+                    if (format == null) InvoiceExporter.exportInvoice(inv, file.toPath());
+                    else InvoiceRenderer.render(inv, format, file.toPath());
+                    return "Invoice saved to " + file.getAbsolutePath();
+                });
+            }
+        });
+
+        btnExportShift.setOnAction(e -> {
+            if (shiftInvoices.isEmpty()) {
+                showAlert(Alert.AlertType.INFORMATION, "Export", "No invoices issued this shift.");
+                return;
+            }
+            FileChooser fc = new FileChooser();
+            fc.setInitialFileName("shift_" + DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(LocalDateTime.now()) + ".csv");
+            File file = fc.showSaveDialog(primaryStage);
+            if (file != null) {
+                List<InvoiceSnapshot> batch = new ArrayList<>(shiftInvoices);
+                runInBackground(btnExportShift, "Exporting " + batch.size() + " invoices", "Could not export shift: ", p -> {
+                    List<Path> files = InvoiceExporter.exportBatch(batch, file.toPath(), SHIFT_EXPORT_ROWS_PER_FILE,
+                            (done, total) -> p.update((double) done / total, "Exported " + done + " of " + total + " invoices"));
+                    return batch.size() + " invoices saved to " + (files.size() == 1 ? files.get(0) : files.size() + " files next to " + file.getAbsolutePath());
+                });
+            }
+        });
+
+        btnReprintShift.setOnAction(e -> {
+            if (shiftInvoices.isEmpty()) {
+                showAlert(Alert.AlertType.INFORMATION, "Reprint", "No invoices issued this shift.");
+                return;
+            }
+            ChoiceDialog<InvoiceRenderer.Format> formats = new ChoiceDialog<>(InvoiceRenderer.Format.PDF, InvoiceRenderer.Format.values());
+            formats.setTitle("Reprint Shift");
+            formats.setHeaderText(null);
+            formats.setContentText("One file per invoice, as:");
+            InvoiceRenderer.Format format = formats.showAndWait().orElse(null);
+            if (format == null) return;
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("Folder for reprinted invoices");
+            File dir = dc.showDialog(primaryStage);
+            if (dir != null) {
+                List<InvoiceSnapshot> batch = new ArrayList<>(shiftInvoices);
+                runInBackground(btnReprintShift, "Rendering " + batch.size() + " invoices", "Could not reprint shift: ", p -> {
+                    renderer.renderBatch(batch, format, dir.toPath(),
+                            (done, total) -> p.update((double) done / total, "Rendered " + done + " of " + total + " invoices"));
+                    return batch.size() + " invoices saved to " + dir.getAbsolutePath();
+                });
             }
         });
 
         btnClear.setOnAction(e -> {
+            // an issued invoice stands as last issued: its lines stay sold, later additions are released
+            billItems.forEach(reservations::release);
+            issuedLines.forEach(reservations::settle);
+            audit.record(AuditEvent.Type.BILL_CLEARED, 0, billItems.size(), 0, null);
             billItems.clear();
-            recalcTotals();
+            issuedLines.clear();
+            currentInvoice = null; // the next bill gets a new invoice
+            invoiceStale = false;
         });
 
         // double-click inventory suggestion: when user double-clicks a row in inventory (not shown here),
@@ -244,16 +609,12 @@ public class PatientPharmacyApp extends Application {
             dialog.setHeaderText("Enter medicine name to find in inventory (partial match allowed)");
             dialog.setContentText("Name:");
             dialog.showAndWait().ifPresent(query -> {
-                String q = query.toLowerCase();
-                for (Medicine m : inventory) {
-                    if (m.getName().toLowerCase().contains(q)) {
-                        tfItemName.setText(m.getName());
-                        tfPrice.setText(String.format("%.2f", m.getPrice()));
-                        tfQty.setText("1");
-                        return;
-                    }
+                List<Medicine> found = inventoryIndex.search(query, 1);
+                if (found.isEmpty()) {
+                    showAlert(Alert.AlertType.INFORMATION, "Not Found", "No matching medicine in inventory.");
+                    return;
                 }
-                showAlert(Alert.AlertType.INFORMATION, "Not Found", "No matching medicine in inventory.");
+                fillFromMedicine(found.get(0), tfItemName, tfQty, tfPrice);
             });
         });
         tableMenu.getItems().add(suggestFromInventory);
@@ -267,23 +628,58 @@ public class PatientPharmacyApp extends Application {
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(12));
 
-        TableView<Medicine> medTable = new TableView<>(inventory);
+        // the table pages through the inventory; sorting and filtering go to the source
+        pagedInventory = new PagedInventoryList(PagedInventoryList.over(inventory, inventoryIndex), tasks,
+                ex -> showAlert(Alert.AlertType.ERROR, "Pharmacy", "Could not load the inventory list: " + ex.getMessage()));
+        inventory.addListener((ListChangeListener<Medicine>) c -> {
+            while (c.next()) {
+                if (c.wasRemoved()) pagedInventory.removed(c.getRemoved());
+                if (c.wasAdded()) pagedInventory.added(c.getAddedSubList());
+            }
+        });
+        TableView<Medicine> medTable = new TableView<>(pagedInventory);
         medTable.setPrefHeight(420);
 
         TableColumn<Medicine, String> colName = new TableColumn<>("Medicine");
-        colName.setCellValueFactory(new PropertyValueFactory<>("name"));
+        colName.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().getName()));
+        colName.setUserData(PagedInventoryList.SortKey.NAME);
         colName.setPrefWidth(400);
 
-        TableColumn<Medicine, Double> colPrice = new TableColumn<>("Price");
-        colPrice.setCellValueFactory(new PropertyValueFactory<>("price"));
+        TableColumn<Medicine, Money> colPrice = new TableColumn<>("Price");
+        colPrice.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getPrice()));
+        colPrice.setUserData(PagedInventoryList.SortKey.PRICE);
         colPrice.setPrefWidth(100);
 
         TableColumn<Medicine, Integer> colQty = new TableColumn<>("Quantity");
-        colQty.setCellValueFactory(new PropertyValueFactory<>("quantity"));
+        colQty.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getQuantity()));
+        colQty.setUserData(PagedInventoryList.SortKey.QUANTITY);
         colQty.setPrefWidth(100);
 
-        medTable.getColumns().addAll(colName, colPrice, colQty);
+        TableColumn<Medicine, String> colSku = new TableColumn<>("SKU");
+        colSku.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().getSku()));
+        colSku.setSortable(false);
+        colSku.setPrefWidth(120);
+
+        medTable.getColumns().addAll(colName, colPrice, colQty, colSku);
+        medTable.setSortPolicy(t -> {
+            TableColumn<Medicine, ?> sortBy = t.getSortOrder().isEmpty() ? null : t.getSortOrder().get(0);
+            PagedInventoryList.Query q = pagedInventory.getQuery();
+            pagedInventory.setQuery(sortBy == null ? q.withSort(null, true)
+                    : q.withSort((PagedInventoryList.SortKey) sortBy.getUserData(), sortBy.getSortType() == TableColumn.SortType.ASCENDING));
+            return true;
+        });
 
+        TextField tfFilter = new TextField();
+        tfFilter.setPromptText("Filter by name");
+        tfFilter.textProperty().addListener((obs, o, text) -> pagedInventory.setQuery(pagedInventory.getQuery().withFilter(text)));
+        Button btnImport = new Button("Import Supplier CSV...");
+        btnImport.setOnAction(e -> importSupplierCsv(btnImport));
+        Region filterSpacer = new Region();
+        HBox.setHgrow(filterSpacer, Priority.ALWAYS);
+        HBox filterBox = new HBox(8, new Label("Find:"), tfFilter, filterSpacer, btnImport);
+        filterBox.setPadding(new Insets(0, 0, 8, 0));
+
+        root.setTop(filterBox);
         root.setCenter(medTable);
 
         // bottom: form to add/update/delete
@@ -307,7 +703,7 @@ public class PatientPharmacyApp extends Application {
         medTable.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> {
             if (newSel != null) {
                 tfName.setText(newSel.getName());
-                tfPrice.setText(String.format("%.2f", newSel.getPrice()));
+                tfPrice.setText(newSel.getPrice().toPlainString());
                 tfQty.setText(String.valueOf(newSel.getQuantity()));
             }
         });
@@ -316,9 +712,13 @@ public class PatientPharmacyApp extends Application {
             String name = tfName.getText().trim();
             if (name.isEmpty()) { showAlert(Alert.AlertType.WARNING, "Validation", "Name required."); return; }
             try {
-                double p = Double.parseDouble(tfPrice.getText().trim());
+                Money p = Money.parse(tfPrice.getText(), Money.BILLING_CURRENCY);
                 int q = Integer.parseInt(tfQty.getText().trim());
-                inventory.add(new Medicine(name, p, q));
+                Medicine m = new Medicine(name, p, q);
+                if (sync != null) sync.added(m); // takes a pharmacy-wide id
+                inventoryStore.put(m);
+                auditMedicine(AuditEvent.Type.MEDICINE_ADDED, m);
+                inventory.add(m);
                 tfName.clear(); tfPrice.clear(); tfQty.clear();
             } catch (Exception ex) {
                 showAlert(Alert.AlertType.WARNING, "Validation", "Enter valid price and quantity.");
@@ -328,20 +728,38 @@ public class PatientPharmacyApp extends Application {
         btnUpdateMed.setOnAction(e -> {
             Medicine sel = medTable.getSelectionModel().getSelectedItem();
             if (sel == null) { showAlert(Alert.AlertType.INFORMATION, "Update", "Select a medicine to update."); return; }
+            String name = tfName.getText().trim();
+            if (name.isEmpty()) { showAlert(Alert.AlertType.WARNING, "Validation", "Name required."); return; }
+            // validate every field before touching the medicine: a half-applied edit would leave
+            // its new name outside the index, unsaved and unsynced
+            Money price;
+            int qty;
             try {
-                sel.setName(tfName.getText().trim());
-                sel.setPrice(Double.parseDouble(tfPrice.getText().trim()));
-                sel.setQuantity(Integer.parseInt(tfQty.getText().trim()));
-                medTable.refresh();
-            } catch (Exception ex) {
+                price = Money.parse(tfPrice.getText(), Money.BILLING_CURRENCY);
+                qty = Integer.parseInt(tfQty.getText().trim());
+            } catch (NumberFormatException ex) {
                 showAlert(Alert.AlertType.WARNING, "Validation", "Enter valid values.");
+                return;
             }
+            sel.setName(name);
+            sel.setPrice(price);
+            sel.setQuantity(qty);
+            inventoryIndex.reindex(sel);
+            inventoryStore.put(sel);
+            auditMedicine(AuditEvent.Type.MEDICINE_UPDATED, sel);
+            if (sync != null) sync.changed(sel);
+            reservations.setOnHand(sel);
+            pagedInventory.changed(sel);
         });
 
         btnDeleteMed.setOnAction(e -> {
             Medicine sel = medTable.getSelectionModel().getSelectedItem();
             if (sel != null) {
                 inventory.remove(sel);
+                inventoryStore.delete(sel);
+                auditMedicine(AuditEvent.Type.MEDICINE_DELETED, sel);
+                if (sync != null) sync.deleted(sel);
+                reservations.forget(sel);
             } else {
                 showAlert(Alert.AlertType.INFORMATION, "Delete", "Select a medicine to delete.");
             }
@@ -350,34 +768,266 @@ public class PatientPharmacyApp extends Application {
         return root;
     }
 
+    /* -------------------- Reports Pane -------------------- */
+    // this terminal's sales only: each terminal keeps its own history (sync shares inventory, not sales)
+    private static final int TOP_MEDICINES = 25;
+
+    private BorderPane createReportsPane() {
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(12));
+
+        DatePicker dpFrom = new DatePicker(LocalDate.now().withDayOfMonth(1));
+        DatePicker dpTo = new DatePicker(LocalDate.now());
+        Button btnRun = new Button("Run");
+        Label lblInfo = new Label();
+        HBox range = new HBox(8, new Label("From:"), dpFrom, new Label("To:"), dpTo, btnRun, lblInfo);
+        range.setPadding(new Insets(0, 0, 8, 0));
+        root.setTop(range);
+
+        TableView<SalesAnalytics.MedicineSales> topTable = new TableView<>();
+        topTable.getColumns().add(column("Medicine", 260, r -> r.getName()));
+        topTable.getColumns().add(column("Units", 80, r -> r.getUnits()));
+        topTable.getColumns().add(column("Revenue", 100, r -> BillTotals.format(r.getRevenueCents())));
+
+        TableView<SalesAnalytics.DoctorRevenue> doctorTable = new TableView<>();
+        doctorTable.getColumns().add(column("Doctor", 200, r -> r.getDoctor()));
+        doctorTable.getColumns().add(column("Invoices", 80, r -> r.getInvoices()));
+        doctorTable.getColumns().add(column("Revenue (before tax)", 140, r -> BillTotals.format(r.getRevenueCents())));
+
+        TableView<SalesAnalytics.DailyTax> taxTable = new TableView<>();
+        taxTable.getColumns().add(column("Day", 110, r -> r.getDay()));
+        taxTable.getColumns().add(column("Invoices", 80, r -> r.getInvoices()));
+        taxTable.getColumns().add(column("Subtotal", 100, r -> BillTotals.format(r.getSubtotalCents())));
+        taxTable.getColumns().add(column("Tax", 100, r -> BillTotals.format(r.getTaxCents())));
+        taxTable.getColumns().add(column("Total", 100, r -> BillTotals.format(r.getTotalCents())));
+
+        TabPane reports = new TabPane(
+                new Tab("Top Medicines", topTable),
+                new Tab("Revenue by Doctor", doctorTable),
+                new Tab("Daily Tax", taxTable));
+        reports.getTabs().forEach(t -> t.setClosable(false));
+        root.setCenter(reports);
+
+        // reports scan the sales history in the background; only the latest run's results are shown
+        BackgroundTasks.Latest runs = tasks.new Latest();
+        btnRun.setOnAction(e -> {
+            if (analytics == null) {
+                showAlert(Alert.AlertType.INFORMATION, "Reports", "Sales history is not available.");
+                return;
+            }
+            LocalDate from = dpFrom.getValue();
+            LocalDate to = dpTo.getValue();
+            if (from == null || to == null || to.isBefore(from)) {
+                showAlert(Alert.AlertType.WARNING, "Reports", "Choose a date range.");
+                return;
+            }
+            lblInfo.setText("Running...");
+            runs.submit(p -> analytics.report(from, to, TOP_MEDICINES), r -> {
+                topTable.getItems().setAll(r.topMedicines);
+                doctorTable.getItems().setAll(r.revenueByDoctor);
+                taxTable.getItems().setAll(r.dailyTax);
+                lblInfo.setText(analytics.invoiceCount() + " invoices issued on this terminal");
+            }, ex -> {
+                lblInfo.setText("");
+                showAlert(Alert.AlertType.ERROR, "Reports", "Could not run reports: " + ex.getMessage());
+            });
+        });
+        return root;
+    }
+
+    private static <S> TableColumn<S, Object> column(String title, double width, Function<S, Object> value) {
+        TableColumn<S, Object> c = new TableColumn<>(title);
+        c.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        c.setPrefWidth(width);
+        return c;
+    }
+
+    /* -------------------- Supplier Import -------------------- */
+    // parsing runs in the background; each validated chunk is merged on the FX thread
+    private void importSupplierCsv(Button trigger) {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Supplier price list");
+        fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+        File file = fc.showOpenDialog(trigger.getScene().getWindow());
+        if (file == null) return;
+        trigger.setDisable(true);
+        tasks.submit("Importing " + file.getName(),
+                p -> new SupplierCsvImport().run(file.toPath(), this::applyOnFxThread, p),
+                r -> showAlert(r.rejected == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING, "Import",
+                        r.rows + " rows: " + r.added + " added, " + r.updated + " updated, " + r.unchanged() + " unchanged, "
+                                + r.rejected + " rejected." + (r.errorReport == null ? "" : "\nErrors: " + r.errorReport)),
+                ex -> showAlert(Alert.AlertType.ERROR, "Import Error", "Could not import " + file.getName() + ": " + ex.getMessage()))
+                .whenClosed(() -> trigger.setDisable(false));
+    }
+
+    // the import thread waits for each chunk, so the FX queue never holds more than one
+    private void applyOnFxThread(SupplierCsvImport.Batch batch) throws Exception {
+        FutureTask<Void> merge = new FutureTask<>(() -> {
+            mergeSupplierRows(batch);
+            return null;
+        });
+        Platform.runLater(merge);
+        try {
+            merge.get();
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+    }
+
+    /*
+     * Match by SKU, then by name. A match gets the supplier price, its SKU if it had
+     * none, and the received quantity on top of its stock; the pharmacy's own name is
+     * kept. Rows matching nothing become new medicines, unless they have no name.
+     */
+    private void mergeSupplierRows(SupplierCsvImport.Batch batch) {
+        Set<Medicine> created = new LinkedHashSet<>();
+        Map<String, Medicine> createdByKey = new HashMap<>(); // new in this batch, not indexed yet
+        List<Medicine> touched = new ArrayList<>();
+        for (SupplierCsvImport.Row r : batch.rows) {
+            Medicine m = r.sku == null ? null : inventoryIndex.findBySku(r.sku);
+            if (m == null && r.sku != null) m = createdByKey.get("sku:" + InventoryIndex.normalizeSku(r.sku));
+            if (m == null && r.name != null) m = inventoryIndex.findExact(r.name);
+            if (m == null && r.name != null) m = createdByKey.get("name:" + InventoryIndex.normalize(r.name));
+            if (m == null) {
+                if (r.name == null) {
+                    batch.reject(r, "Unknown SKU and no name");
+                    continue;
+                }
+                m = new Medicine(r.name, r.price, r.quantity);
+                m.setSku(r.sku);
+                if (sync != null) sync.added(m);
+                inventoryStore.put(m);
+                auditMedicine(AuditEvent.Type.MEDICINE_ADDED, m);
+                created.add(m);
+                createdByKey.put("name:" + InventoryIndex.normalize(r.name), m);
+                if (r.sku != null) createdByKey.put("sku:" + InventoryIndex.normalizeSku(r.sku), m);
+                batch.added(r);
+                continue;
+            }
+            boolean newSku = r.sku != null && m.getSku() == null;
+            if (m.getPrice().equals(r.price) && r.quantity == 0 && !newSku) continue;
+            m.setPrice(r.price);
+            m.setQuantity(Math.addExact(m.getQuantity(), r.quantity));
+            if (newSku) {
+                m.setSku(r.sku);
+                if (!created.contains(m)) inventoryIndex.reindex(m);
+            }
+            inventoryStore.put(m);
+            auditMedicine(created.contains(m) ? AuditEvent.Type.MEDICINE_ADDED : AuditEvent.Type.MEDICINE_UPDATED, m);
+            if (sync != null) sync.changed(m);
+            if (r.quantity != 0) reservations.setOnHand(m);
+            if (!created.contains(m)) touched.add(m);
+            batch.updated(r);
+        }
+        inventory.addAll(created); // one list change per batch
+        if (pagedInventory != null) pagedInventory.changed(touched);
+    }
+
     /* -------------------- Helpers -------------------- */
-    private void recalcTotals() {
-        double subtotal = billItems.stream().mapToDouble(BillItem::getTotal).sum();
-        double tax = subtotal * TAX_RATE;
-        double total = subtotal + tax;
-        subtotalLabel.setText(String.format("%.2f", subtotal));
-        taxLabel.setText(String.format("%.2f", tax));
-        totalLabel.setText(String.format("%.2f", total));
+    /*
+     * The invoice for the current bill: issued once per bill and re-stamped if patient details
+     * change. If lines were added or removed since, it is issued again under the same number and
+     * replaces the earlier copy in the shift (and in the sales history), so a bill is never counted twice.
+     */
+    private InvoiceSnapshot issueInvoice(String patientName, String patientId, String doctor) {
+        if (currentInvoice == null) {
+            String no = String.format("INV-%s-%04d", DateTimeFormatter.ofPattern("yyyyMMdd").format(LocalDateTime.now()), ++invoiceSeq);
+            currentInvoice = InvoiceSnapshot.capture(no, patientName, patientId, doctor, billItems, totals);
+            shiftInvoices.add(currentInvoice);
+            audit.record(AuditEvent.Type.INVOICE_ISSUED, 0, billItems.size(), totals.getTotal(), no);
+            if (analytics != null) analytics.record(currentInvoice);
+            commitStock();
+            issuedLines.addAll(billItems);
+        } else if (invoiceStale) {
+            String no = currentInvoice.getInvoiceNo();
+            InvoiceSnapshot revised = InvoiceSnapshot.capture(no, patientName, patientId, doctor, billItems, totals);
+            shiftInvoices.set(shiftInvoices.indexOf(currentInvoice), revised);
+            currentInvoice = revised;
+            invoiceStale = false;
+            audit.record(AuditEvent.Type.INVOICE_REVISED, 0, billItems.size(), totals.getTotal(), no);
+            if (analytics != null) analytics.replace(revised);
+            restockRemovedLines();
+            commitStock(); // lines added since
+            issuedLines.clear();
+            issuedLines.addAll(billItems);
+        } else if (!currentInvoice.isFor(patientName, patientId, doctor)) {
+            int i = shiftInvoices.indexOf(currentInvoice);
+            currentInvoice = currentInvoice.withParty(patientName, patientId, doctor);
+            shiftInvoices.set(i, currentInvoice);
+            if (analytics != null) analytics.restamp(currentInvoice);
+        }
+        return currentInvoice;
     }
 
-    private String buildInvoice(String patientName, String patientId, String doctor) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Clinic Invoice\n");
-        sb.append("Date: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))).append("\n");
-        sb.append("Patient: ").append(patientName).append("\n");
-        sb.append("Patient ID: ").append(patientId).append("\n");
-        sb.append("Doctor: ").append(doctor).append("\n\n");
-        sb.append(String.format("%-40s %6s %10s %10s\n", "Item", "Qty", "Unit", "Total"));
-        sb.append("-----------------------------------------------------------------\n");
+    // issuing an invoice takes the reserved stock off the shelf
+    private void commitStock() {
         for (BillItem b : billItems) {
-            sb.append(String.format("%-40s %6d %10.2f %10.2f\n", b.getName(), b.getQuantity(), b.getUnitPrice(), b.getTotal()));
+            int onHand = reservations.commit(b);
+            if (onHand >= 0) setStock(b, onHand);
+        }
+    }
+
+    // lines on the previous issue of the invoice but no longer on the bill go back on the shelf
+    private void restockRemovedLines() {
+        for (BillItem b : issuedLines) {
+            if (billItems.contains(b)) continue;
+            int onHand = reservations.uncommit(b);
+            if (onHand >= 0) setStock(b, onHand);
         }
-        sb.append("-----------------------------------------------------------------\n");
-        sb.append(String.format("%-58s %10.2f\n", "Subtotal:", Double.parseDouble(subtotalLabel.getText())));
-        sb.append(String.format("%-58s %10.2f\n", "Tax:", Double.parseDouble(taxLabel.getText())));
-        sb.append(String.format("%-58s %10.2f\n", "Total:", Double.parseDouble(totalLabel.getText())));
+    }
 
-        return sb.toString();
+    // the line's medicine (if it is one) now has onHand units
+    private void setStock(BillItem b, int onHand) {
+        Medicine m = inventoryIndex.findExact(b.getName());
+        if (m == null) return;
+        m.setQuantity(onHand);
+        inventoryStore.put(m);
+        auditMedicine(AuditEvent.Type.MEDICINE_UPDATED, m);
+        if (sync != null) sync.changed(m); // sent as an adjustment, so other counters' sales add up
+        if (pagedInventory != null) pagedInventory.changed(m);
+    }
+
+    // file I/O runs on a background task; the trigger button is disabled until it finishes or is cancelled
+    private void runInBackground(Button trigger, String title, String errorPrefix, BackgroundTasks.Work<String> work) {
+        trigger.setDisable(true);
+        tasks.submit(title, work,
+                message -> showAlert(Alert.AlertType.INFORMATION, "Saved", message),
+                ex -> showAlert(Alert.AlertType.ERROR, "Save Error", errorPrefix + ex.getMessage()))
+                .whenClosed(() -> trigger.setDisable(false));
+    }
+
+    // live inventory suggestions under the item field while the cashier types
+    private void installTypeAhead(TextField tfItemName, TextField tfQty, TextField tfPrice) {
+        ContextMenu suggestions = new ContextMenu();
+        tfItemName.textProperty().addListener((obs, oldText, text) -> {
+            if (!tfItemName.isFocused() || text == null || text.trim().isEmpty()) {
+                suggestions.hide();
+                return;
+            }
+            List<Medicine> found = inventoryIndex.search(text, SUGGESTION_LIMIT);
+            if (found.isEmpty() || (found.size() == 1 && found.get(0).getName().equals(text))) {
+                suggestions.hide();
+                return;
+            }
+            suggestions.getItems().clear();
+            for (Medicine m : found) {
+                MenuItem mi = new MenuItem(m.getName() + "  (" + m.getPrice().toPlainString() + ", " + m.getQuantity() + " in stock)");
+                mi.setOnAction(ev -> fillFromMedicine(m, tfItemName, tfQty, tfPrice));
+                suggestions.getItems().add(mi);
+            }
+            if (!suggestions.isShowing()) suggestions.show(tfItemName, Side.BOTTOM, 0, 0);
+        });
+        tfItemName.focusedProperty().addListener((obs, was, focused) -> { if (!focused) suggestions.hide(); });
+    }
+
+    private static void fillFromMedicine(Medicine m, TextField tfItemName, TextField tfQty, TextField tfPrice) {
+        tfItemName.setText(m.getName());
+        tfPrice.setText(m.getPrice().toPlainString());
+        tfQty.setText("1");
+    }
+
+    static String buildInvoice(InvoiceSnapshot inv) {
+        return InvoiceRenderer.renderToString(inv, InvoiceRenderer.Format.TEXT);
     }
 
     private static void showAlert(Alert.AlertType t, String title, String msg) {
@@ -388,18 +1038,13 @@ public class PatientPharmacyApp extends Application {
         a.showAndWait();
     }
 
-    private static String escapeCsv(String s) {
-        if (s == null) return "";
-        return s.replace("\"", "\"\"");
-    }
-
     /* -------------------- Data classes -------------------- */
     public static class BillItem {
         private String name;
         private int quantity;
-        private double unitPrice;
+        private Money unitPrice;
 
-        public BillItem(String name, int quantity, double unitPrice) {
+        public BillItem(String name, int quantity, Money unitPrice) {
             this.name = name;
             this.quantity = quantity;
             this.unitPrice = unitPrice;
@@ -407,31 +1052,39 @@ public class PatientPharmacyApp extends Application {
 
         public String getName() { return name; }
         public int getQuantity() { return quantity; }
-        public double getUnitPrice() { return unitPrice; }
-        public double getTotal() { return quantity * unitPrice; }
+        public Money getUnitPrice() { return unitPrice; }
+        public Money getTotal() { return unitPrice.times(quantity); }
+        // line total without allocating, for running totals
+        public long getTotalMinor() { return Math.multiplyExact(unitPrice.getMinorUnits(), quantity); }
 
         public void setName(String name) { this.name = name; }
         public void setQuantity(int quantity) { this.quantity = quantity; }
-        public void setUnitPrice(double unitPrice) { this.unitPrice = unitPrice; }
+        public void setUnitPrice(Money unitPrice) { this.unitPrice = unitPrice; }
     }
 
     public static class Medicine {
+        private long id; // assigned by InventoryStore on first save
         private String name;
-        private double price;
+        private Money price;
         private int quantity;
+        private String sku; // supplier stock-keeping unit, if known; matched by the CSV import
 
-        public Medicine(String name, double price, int quantity) {
+        public Medicine(String name, Money price, int quantity) {
             this.name = name;
             this.price = price;
             this.quantity = quantity;
         }
 
+        public long getId() { return id; }
         public String getName() { return name; }
-        public double getPrice() { return price; }
+        public Money getPrice() { return price; }
         public int getQuantity() { return quantity; }
+        public String getSku() { return sku; }
 
+        public void setId(long id) { this.id = id; }
         public void setName(String name) { this.name = name; }
-        public void setPrice(double price) { this.price = price; }
+        public void setPrice(Money price) { this.price = price; }
         public void setQuantity(int quantity) { this.quantity = quantity; }
+        public void setSku(String sku) { this.sku = sku; }
     }
 }
@@ -0,0 +1,131 @@
+// src/main/java/com/app/service/PriceCatalog.java
+
+package com.app.service;
+
+import com.app.cache.ExpiringLruCache;
+import com.app.model.InvoiceLine;
+import com.app.model.Medicine;
+import com.app.model.Money;
+import com.app.model.ServiceFee;
+import com.app.repository.MedicineRepository;
+import com.app.repository.ServiceFeeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit prices of billable items in minor units of the billing currency.
+ *
+ * Medicine prices come from the medicines table, service and procedure fees from
+ * service_fees; both are cached per item (LRU with a TTL). Pricing an invoice looks
+ * each distinct item up once, and loads all of its cache misses with one findAllById
+ * per table, so even a several-thousand-line invoice costs at most two queries.
+ * Medicine changes invalidate through MedicineStockListener; fee changes made outside
+ * {@link #onFeeChanged} are picked up when entries expire.
+ */
+@Service
+public class PriceCatalog {
+
+    private final MedicineRepository medicineRepository;
+    private final ServiceFeeRepository feeRepository;
+    private final ExpiringLruCache<Long, Long> medicinePrices;
+    private final ExpiringLruCache<String, Long> fees;
+
+    public PriceCatalog(MedicineRepository medicineRepository,
+                        ServiceFeeRepository feeRepository,
+                        @Value("${billing.catalog.cache.max-size:20000}") int maxSize,
+                        @Value("${billing.catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.medicineRepository = medicineRepository;
+        this.feeRepository = feeRepository;
+        this.medicinePrices = new ExpiringLruCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+        this.fees = new ExpiringLruCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    // Unit price of every line, in line order; unknown or inactive items are an IllegalArgumentException
+    long[] unitPrices(List<InvoiceLine> lines) {
+        Map<Long, Long> medicines = new HashMap<>();
+        Map<String, Long> services = new HashMap<>();
+        Long[] medicineIds = new Long[lines.size()]; // parsed once, reused in step 3
+
+        // 1. distinct items, from the cache where possible (null = not cached)
+        for (int i = 0; i < medicineIds.length; i++) {
+            InvoiceLine line = lines.get(i);
+            if (line.getType() == null || line.getCode() == null) {
+                throw new IllegalArgumentException("Invoice line needs a type and a code");
+            }
+            if (line.getType() == InvoiceLine.Type.MEDICINE) {
+                Long id = medicineIds[i] = medicineId(line.getCode());
+                if (!medicines.containsKey(id)) medicines.put(id, medicinePrices.getIfPresent(id));
+            } else if (!services.containsKey(line.getCode())) {
+                services.put(line.getCode(), fees.getIfPresent(line.getCode()));
+            }
+        }
+
+        // 2. one query per table for the misses. A load racing with an invalidation
+        //    may cache the old price until it expires.
+        List<Long> missingMedicines = missing(medicines);
+        if (!missingMedicines.isEmpty()) {
+            for (Medicine m : medicineRepository.findAllById(missingMedicines)) {
+                long price = Money.ofApproximate(m.getPrice(), Money.BILLING_CURRENCY).getMinorUnits();
+                medicinePrices.put(m.getId(), price);
+                medicines.put(m.getId(), price);
+            }
+        }
+        List<String> missingFees = missing(services);
+        if (!missingFees.isEmpty()) {
+            for (ServiceFee f : feeRepository.findAllById(missingFees)) {
+                if (!f.isActive() || f.getFee() == null) continue;
+                long price = f.getFee().getMinorUnits(); // MoneyConverter: always the billing currency
+                fees.put(f.getCode(), price);
+                services.put(f.getCode(), price);
+            }
+        }
+
+        // 3. in line order
+        long[] prices = new long[lines.size()];
+        for (int i = 0; i < prices.length; i++) {
+            InvoiceLine line = lines.get(i);
+            Long price = medicineIds[i] != null ? medicines.get(medicineIds[i]) : services.get(line.getCode());
+            if (price == null) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": no price for " + line.getType() + " " + line.getCode());
+            }
+            prices[i] = price;
+        }
+        return prices;
+    }
+
+    public void onMedicineChanged(Long medicineId) {
+        medicinePrices.invalidate(medicineId);
+    }
+
+    public void onFeeChanged(String code) {
+        fees.invalidate(code);
+    }
+
+    public ExpiringLruCache.Stats medicineCacheStats() {
+        return medicinePrices.stats();
+    }
+
+    public ExpiringLruCache.Stats feeCacheStats() {
+        return fees.stats();
+    }
+
+    private static Long medicineId(String code) {
+        try {
+            return Long.valueOf(code.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Medicine line code must be a medicine id, got " + code);
+        }
+    }
+
+    private static <K> List<K> missing(Map<K, Long> prices) {
+        List<K> keys = new ArrayList<>();
+        prices.forEach((k, v) -> { if (v == null) keys.add(k); });
+        return keys;
+    }
+}
@@ -0,0 +1,180 @@
+// src/test/java/com/app/controller/QueryBudgetTest.java
+
+package com.app.controller;
+
+import com.app.metrics.SqlStatementCounter;
+import com.app.model.Invoice;
+import com.app.model.InvoiceLine;
+import com.app.model.Medicine;
+import com.app.model.Money;
+import com.app.model.Patient;
+import com.app.repository.InvoiceRepository;
+import com.app.repository.MedicineRepository;
+import com.app.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the SQL statements each read endpoint may prepare, whatever the page size or
+ * the number of lines on an invoice: a LAZY association touched during rendering or a
+ * query per row fails here instead of showing up as http.server.sql.statements in production.
+ * Runs against the embedded database with open-in-view off, as in application.properties,
+ * and outside a test transaction, so every request commits like a real one.
+ */
+@SpringBootTest(properties = "audit.journal.dir=target/query-budget-audit")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTest {
+
+    private static final int ROWS = 30;
+    private static final int LINES_PER_INVOICE = 5;
+
+    @SpringBootApplication(scanBasePackages = "com.app")
+    @EntityScan("com.app.model")
+    @EnableJpaRepositories("com.app.repository")
+    static class TestApplication {
+    }
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    private final List<Long> invoiceIds = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        List<Medicine> medicines = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Medicine m = new Medicine();
+            m.setName("Medicine " + i);
+            m.setPrice(1.25);
+            m.setStockQuantity(100 + i);
+            m.setExpiryDate(LocalDate.now().plusYears(1));
+            medicines.add(m);
+        }
+        medicineRepository.saveAll(medicines);
+
+        Money price = Money.parse("1.25", Money.BILLING_CURRENCY);
+        for (int i = 0; i < ROWS; i++) {
+            Patient p = new Patient();
+            p.setName("Patient " + i);
+            patientRepository.save(p);
+
+            Invoice invoice = new Invoice();
+            invoice.setPatient(p);
+            for (int k = 0; k < LINES_PER_INVOICE; k++) {
+                InvoiceLine line = new InvoiceLine();
+                line.setType(InvoiceLine.Type.MEDICINE);
+                line.setCode(medicines.get(k).getId().toString());
+                line.setQuantity(2);
+                line.setUnitPrice(price);
+                line.setLineTotal(price.times(2));
+                invoice.addLine(line);
+            }
+            invoice.setTotalAmount(price.times(2L * LINES_PER_INVOICE));
+            invoice.setInsuranceDiscount(Money.zero(Money.BILLING_CURRENCY));
+            invoice.setPaymentStatus("PENDING");
+            invoiceIds.add(invoiceRepository.save(invoice).getId());
+        }
+    }
+
+    @Test
+    void invoiceHistoryIsOneQuery() throws Exception {
+        perform(1, get("/api/billing").param("size", String.valueOf(ROWS)))
+                .andExpect(jsonPath("$.items.length()").value(ROWS))
+                .andExpect(jsonPath("$.items[0].patientName").exists());
+    }
+
+    @Test
+    void invoiceHistoryForOnePatientIsOneQuery() throws Exception {
+        Long patientId = invoiceRepository.findWithPatientAndLinesById(invoiceIds.get(0)).orElseThrow().getPatient().getId();
+        perform(1, get("/api/billing").param("patientId", patientId.toString()))
+                .andExpect(jsonPath("$.items.length()").value(1));
+    }
+
+    @Test
+    void invoiceWithPatientAndLinesIsOneQueryThenCached() throws Exception {
+        String uri = "/api/billing/" + invoiceIds.get(1);
+        perform(1, get(uri))
+                .andExpect(jsonPath("$.patient.name").value("Patient 1"))
+                .andExpect(jsonPath("$.lines.length()").value(LINES_PER_INVOICE));
+        perform(0, get(uri))
+                .andExpect(jsonPath("$.patient.name").value("Patient 1"));
+    }
+
+    // the updated invoice is rendered and cached with its patient loaded, not as a detached LAZY proxy
+    @Test
+    void statusChangeIsReadAndUpdateAndIsCachedWhole() throws Exception {
+        String uri = "/api/billing/" + invoiceIds.get(2);
+        perform(2, put(uri + "/status").param("value", "PAID"))
+                .andExpect(jsonPath("$.paymentStatus").value("PAID"))
+                .andExpect(jsonPath("$.patient.name").value("Patient 2"));
+        perform(0, get(uri))
+                .andExpect(jsonPath("$.paymentStatus").value("PAID"))
+                .andExpect(jsonPath("$.patient.name").value("Patient 2"))
+                .andExpect(jsonPath("$.lines.length()").value(LINES_PER_INVOICE));
+    }
+
+    // the created invoice is the request body with a stub patient; it must not be what GET serves
+    @Test
+    void createdInvoiceIsReadWithItsPatient() throws Exception {
+        Invoice existing = invoiceRepository.findWithPatientAndLinesById(invoiceIds.get(3)).orElseThrow();
+        String body = "{\"patient\":{\"id\":" + existing.getPatient().getId() + "},"
+                + "\"lines\":[{\"type\":\"MEDICINE\",\"code\":\"" + existing.getLines().get(0).getCode() + "\",\"quantity\":1}]}";
+        String created = mvc.perform(post("/api/billing/generate").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll("(?s)^\\{\"id\":(\\d+).*", "$1");
+        perform(1, get("/api/billing/" + created))
+                .andExpect(jsonPath("$.patient.name").value("Patient 3"))
+                .andExpect(jsonPath("$.lines.length()").value(1));
+    }
+
+    @Test
+    void medicinePagesAreOneQueryEach() throws Exception {
+        String cursor = perform(1, get("/api/medicines").param("size", "10"))
+                .andExpect(jsonPath("$.items.length()").value(10))
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll("(?s).*\"nextCursor\":\"([^\"]+)\".*", "$1");
+        perform(1, get("/api/medicines").param("size", "10").param("cursor", cursor))
+                .andExpect(jsonPath("$.items[0].name").value("Medicine 18"));
+    }
+
+    // SqlStatementFilter restarts the count for each request, so start from zero as well
+    private ResultActions perform(int maxStatements, RequestBuilder request) {
+        SqlStatementCounter.reset();
+        return SqlStatementCounter.expectAtMost(maxStatements, () -> {
+            try {
+                return mvc.perform(request).andExpect(status().isOk());
+            } catch (Exception ex) {
+                throw new AssertionError(ex);
+            }
+        });
+    }
+}
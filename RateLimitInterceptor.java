@@ -0,0 +1,45 @@
+// src/main/java/com/app/controller/RateLimitInterceptor.java
+
+package com.app.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Answers 429 with Retry-After when a client is over its token bucket, before the request
+// is read or reaches the database. Clients are told apart by the configured header
+// (e.g. a terminal id set by the ward app) or else by remote address.
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final TokenBucketLimiter limiter;
+    private final String clientHeader;
+    private final Counter rejected;
+
+    public RateLimitInterceptor(TokenBucketLimiter limiter, String clientHeader, MeterRegistry registry) {
+        this.limiter = limiter;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.rejected = Counter.builder("http.server.requests.throttled").register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long waitNanos = limiter.tryAcquire(clientOf(request));
+        if (waitNanos == 0) return true;
+        rejected.increment();
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        return false;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String id = clientHeader == null ? null : request.getHeader(clientHeader);
+        return id == null || id.isEmpty() ? request.getRemoteAddr() : id;
+    }
+}
@@ -0,0 +1,630 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Sales reports over every invoice issued on this terminal: top-selling medicines,
+ * revenue per doctor and daily tax totals, for any date range.
+ *
+ * Invoices are kept column by column in primitive arrays (day, medicine, doctor,
+ * quantity, amount), with medicine and doctor names dictionary-encoded as ints. A report
+ * is one pass over the few columns it needs: the rows are cut into slices that are
+ * scanned in parallel into dense per-id (or per-day) partial sums, which are then added
+ * up. Nothing is boxed and no invoice objects are read.
+ *
+ * Columns grow in fixed chunks that are never moved, and the row count is published
+ * last, so reports run on background threads while the FX thread keeps appending; a
+ * report sees every invoice recorded before it started.
+ *
+ * A voided invoice (e.g. one issued again with other lines) is not rewritten in place:
+ * its rows are appended again negated, the invoice row with a weight of -1, so every
+ * sum nets it out and the columns stay append-only. A restamp to another doctor is the
+ * same reversal of the invoice row plus a new row under the new doctor, so a report
+ * running meanwhile counts the invoice under one doctor or the other.
+ *
+ * Invoices are also appended to sales.log (len:int crc32:int payload, written behind on
+ * a background thread) and replayed into the columns on start.
+ * <pre>
+ *   INVOICE  type:byte no:utf day:int doctor:utf subtotal:long tax:long total:long
+ *            lines:int (name:utf qty:int amount:long)*
+ *   RESTAMP  type:byte no:utf doctor:utf           (patient details changed after issue)
+ *   VOID     type:byte no:utf                      (taken back out, e.g. before a reissue)
+ * </pre>
+ * Strings are length-prefixed (short) UTF-8; amounts in minor units of Money.BILLING_CURRENCY.
+ */
+public class SalesAnalytics implements Closeable {
+
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK = 1 << CHUNK_BITS;
+    static final int SLICE = 16_384; // rows per parallel scan task
+
+    private static final byte INVOICE = 1;
+    private static final byte RESTAMP = 2;
+    private static final byte VOID = 3;
+    static final String NO_DOCTOR = "(none)";
+
+    /* -------------------- Report rows -------------------- */
+    public static final class MedicineSales {
+        private final String name;
+        private final long units;
+        private final long revenueCents;
+
+        MedicineSales(String name, long units, long revenueCents) {
+            this.name = name;
+            this.units = units;
+            this.revenueCents = revenueCents;
+        }
+
+        public String getName() { return name; }
+        public long getUnits() { return units; }
+        public long getRevenueCents() { return revenueCents; }
+    }
+
+    public static final class DoctorRevenue {
+        private final String doctor;
+        private final long invoices;
+        private final long revenueCents; // before tax
+
+        DoctorRevenue(String doctor, long invoices, long revenueCents) {
+            this.doctor = doctor;
+            this.invoices = invoices;
+            this.revenueCents = revenueCents;
+        }
+
+        public String getDoctor() { return doctor; }
+        public long getInvoices() { return invoices; }
+        public long getRevenueCents() { return revenueCents; }
+    }
+
+    public static final class DailyTax {
+        private final LocalDate day;
+        private final long invoices;
+        private final long subtotalCents;
+        private final long taxCents;
+        private final long totalCents;
+
+        DailyTax(LocalDate day, long invoices, long subtotalCents, long taxCents, long totalCents) {
+            this.day = day;
+            this.invoices = invoices;
+            this.subtotalCents = subtotalCents;
+            this.taxCents = taxCents;
+            this.totalCents = totalCents;
+        }
+
+        public LocalDate getDay() { return day; }
+        public long getInvoices() { return invoices; }
+        public long getSubtotalCents() { return subtotalCents; }
+        public long getTaxCents() { return taxCents; }
+        public long getTotalCents() { return totalCents; }
+    }
+
+    /* -------------------- Columns -------------------- */
+    // line columns
+    private final IntColumn lineDay = new IntColumn();
+    private final IntColumn lineMedicine = new IntColumn();
+    private final IntColumn lineQty = new IntColumn();
+    private final LongColumn lineAmount = new LongColumn();
+    // invoice columns
+    private final IntColumn invDay = new IntColumn();
+    private final IntColumn invDoctor = new IntColumn();
+    private final LongColumn invSubtotal = new LongColumn();
+    private final LongColumn invTax = new LongColumn();
+    private final LongColumn invTotal = new LongColumn();
+    private final IntColumn invWeight = new IntColumn(); // 1, or -1 for a void's reversal
+    private final IntColumn invFirstLine = new IntColumn();
+    private final IntColumn invLineCount = new IntColumn();
+
+    private final Dictionary medicines = new Dictionary();
+    private final Dictionary doctors = new Dictionary();
+    private final Map<String, Integer> invoiceRow = new HashMap<>(); // latest invoice with each number; appender only
+    private volatile int lines;
+    private volatile int invoices; // rows, reversals included
+    private volatile int reversals; // each cancels one earlier row
+
+    private final Path logFile;
+    private FileChannel log;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> BackgroundTasks.daemon(r, "sales-log"));
+    private final Consumer<IOException> errorHandler;
+
+    /**
+     * Open (or create) the log in dir and load the history it holds.
+     *
+     * @param errorHandler called on the writer thread when appending to sales.log fails;
+     *                     the columns are kept up to date regardless
+     */
+    public SalesAnalytics(Path dir, Consumer<IOException> errorHandler) throws IOException {
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+        Files.createDirectories(dir);
+        this.logFile = dir.resolve("sales.log");
+        long good = replay();
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(good);
+        log.position(good);
+    }
+
+    /** Invoices in the history, voided ones left out. */
+    public int invoiceCount() {
+        return invoices - 2 * reversals;
+    }
+
+    public int lineCount() {
+        return lines;
+    }
+
+    /* -------------------- Appending (one thread, e.g. the FX thread) -------------------- */
+
+    /** Add an issued invoice. */
+    public void record(InvoiceSnapshot inv) {
+        int day = (int) inv.getIssuedAt().toLocalDate().toEpochDay();
+        append(inv.getInvoiceNo(), day, inv.getDoctor(), inv.getSubtotalCents(), inv.getTaxCents(), inv.getTotalCents(), inv.getLines());
+        ByteBuffer b = encodeInvoice(inv, day);
+        writeBehind(b);
+    }
+
+    /** The invoice's patient details were changed after it was recorded (its doctor may differ). */
+    public void restamp(InvoiceSnapshot inv) {
+        if (!applyRestamp(inv.getInvoiceNo(), inv.getDoctor())) return;
+        byte[] no = utf(inv.getInvoiceNo());
+        byte[] doctor = utf(inv.getDoctor());
+        ByteBuffer b = ByteBuffer.allocate(1 + 2 + no.length + 2 + doctor.length);
+        b.put(RESTAMP).putShort((short) no.length).put(no).putShort((short) doctor.length).put(doctor);
+        writeBehind(b);
+    }
+
+    /**
+     * Take an issued invoice back out of every report. Nothing happens if no invoice with
+     * that number was recorded, or it was voided already.
+     */
+    public void voidInvoice(String invoiceNo) {
+        if (!applyVoid(invoiceNo)) return;
+        byte[] no = utf(invoiceNo);
+        ByteBuffer b = ByteBuffer.allocate(1 + 2 + no.length);
+        b.put(VOID).putShort((short) no.length).put(no);
+        writeBehind(b);
+    }
+
+    /** The invoice was issued again under the same number (e.g. lines changed): it replaces the earlier copy. */
+    public void replace(InvoiceSnapshot inv) {
+        voidInvoice(inv.getInvoiceNo());
+        record(inv);
+    }
+
+    private void append(String invoiceNo, int day, String doctor, long subtotal, long tax, long total, List<InvoiceSnapshot.Line> items) {
+        int inv = invoices;
+        int first = lines;
+        int row = first;
+        for (InvoiceSnapshot.Line l : items) {
+            lineDay.set(row, day);
+            lineMedicine.set(row, medicines.idOf(l.getName()));
+            lineQty.set(row, l.getQuantity());
+            lineAmount.set(row, l.getTotalCents());
+            row++;
+        }
+        setInvoice(inv, day, doctors.idOf(doctorKey(doctor)), subtotal, tax, total, 1, first, row - first);
+        invoiceRow.put(invoiceNo, inv);
+        lines = row; // publish: reports starting after this see the whole invoice
+        invoices = inv + 1;
+    }
+
+    // appends the invoice's rows negated, so sums and invoice counts net it out
+    private boolean applyVoid(String invoiceNo) {
+        Integer inv = invoiceRow.remove(invoiceNo);
+        if (inv == null) return false;
+        int first = invFirstLine.get(inv);
+        int count = invLineCount.get(inv);
+        int row = lines;
+        for (int r = first; r < first + count; r++, row++) {
+            lineDay.set(row, lineDay.get(r));
+            lineMedicine.set(row, lineMedicine.get(r));
+            lineQty.set(row, -lineQty.get(r));
+            lineAmount.set(row, -lineAmount.get(r));
+        }
+        int at = invoices;
+        setInvoice(at, invDay.get(inv), invDoctor.get(inv),
+                -invSubtotal.get(inv), -invTax.get(inv), -invTotal.get(inv), -1, lines, count);
+        lines = row;
+        reversals++;
+        invoices = at + 1; // published last, as in append
+        return true;
+    }
+
+    private void setInvoice(int inv, int day, int doctor, long subtotal, long tax, long total, int weight, int firstLine, int lineCount) {
+        invDay.set(inv, day);
+        invDoctor.set(inv, doctor);
+        invSubtotal.set(inv, subtotal);
+        invTax.set(inv, tax);
+        invTotal.set(inv, total);
+        invWeight.set(inv, weight);
+        invFirstLine.set(inv, firstLine);
+        invLineCount.set(inv, lineCount);
+    }
+
+    // reverses the invoice row under its old doctor and appends it again under the new one; the
+    // lines are not copied, the new row points at the same ones. Both rows are published together
+    private boolean applyRestamp(String invoiceNo, String doctor) {
+        Integer inv = invoiceRow.get(invoiceNo);
+        if (inv == null) return false;
+        int doc = doctors.idOf(doctorKey(doctor));
+        int old = invDoctor.get(inv);
+        if (old == doc) return false;
+        int at = invoices;
+        int day = invDay.get(inv);
+        long subtotal = invSubtotal.get(inv);
+        long tax = invTax.get(inv);
+        long total = invTotal.get(inv);
+        setInvoice(at, day, old, -subtotal, -tax, -total, -1, lines, 0);
+        setInvoice(at + 1, day, doc, subtotal, tax, total, 1, invFirstLine.get(inv), invLineCount.get(inv));
+        invoiceRow.put(invoiceNo, at + 1);
+        reversals++;
+        invoices = at + 2;
+        return true;
+    }
+
+    private static String doctorKey(String doctor) {
+        return doctor == null || doctor.trim().isEmpty() ? NO_DOCTOR : doctor.trim();
+    }
+
+    /* -------------------- Reports (any thread) -------------------- */
+
+    /** The three reports for one date range, as shown together on the Reports tab. */
+    public static final class Report {
+        public final List<MedicineSales> topMedicines;
+        public final List<DoctorRevenue> revenueByDoctor;
+        public final List<DailyTax> dailyTax;
+
+        Report(List<MedicineSales> topMedicines, List<DoctorRevenue> revenueByDoctor, List<DailyTax> dailyTax) {
+            this.topMedicines = topMedicines;
+            this.revenueByDoctor = revenueByDoctor;
+            this.dailyTax = dailyTax;
+        }
+    }
+
+    public Report report(LocalDate from, LocalDate to, int topLimit) {
+        return new Report(topMedicines(from, to, topLimit), revenueByDoctor(from, to), dailyTax(from, to));
+    }
+
+    /** Medicines by units sold between from and to (inclusive), most first. */
+    public List<MedicineSales> topMedicines(LocalDate from, LocalDate to, int limit) {
+        int n = lines;
+        int groups = medicines.size();
+        int lo = (int) from.toEpochDay();
+        int hi = (int) to.toEpochDay();
+        // per slice: units[id] and revenue[id] side by side
+        long[] sums = IntStream.range(0, slices(n)).parallel().mapToObj(s -> {
+            long[] acc = new long[2 * groups];
+            int end = Math.min(n, (s + 1) * SLICE);
+            for (int row = s * SLICE; row < end; ) {
+                int c = row >>> CHUNK_BITS;
+                int[] day = lineDay.chunks[c];
+                int[] med = lineMedicine.chunks[c];
+                int[] qty = lineQty.chunks[c];
+                long[] amt = lineAmount.chunks[c];
+                int stop = Math.min(end, (c + 1) << CHUNK_BITS);
+                for (int i = row & (CHUNK - 1), last = i + (stop - row); i < last; i++) {
+                    int d = day[i];
+                    if (d < lo || d > hi) continue;
+                    int id = med[i];
+                    acc[2 * id] += qty[i];
+                    acc[2 * id + 1] += amt[i];
+                }
+                row = stop;
+            }
+            return acc;
+        }).reduce(SalesAnalytics::add).orElse(new long[2 * groups]);
+
+        String[] names = medicines.names();
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Long.compare(sums[2 * a], sums[2 * b]));
+        for (int id = 0; id < groups; id++) {
+            if (sums[2 * id] == 0 && sums[2 * id + 1] == 0) continue;
+            top.add(id);
+            if (top.size() > limit) top.poll();
+        }
+        List<MedicineSales> out = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int id = top.poll();
+            out.add(new MedicineSales(names[id], sums[2 * id], sums[2 * id + 1]));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    /** Invoices and revenue before tax per doctor between from and to (inclusive), highest revenue first. */
+    public List<DoctorRevenue> revenueByDoctor(LocalDate from, LocalDate to) {
+        int n = invoices;
+        int groups = doctors.size();
+        int lo = (int) from.toEpochDay();
+        int hi = (int) to.toEpochDay();
+        long[] sums = IntStream.range(0, slices(n)).parallel().mapToObj(s -> {
+            long[] acc = new long[2 * groups];
+            int end = Math.min(n, (s + 1) * SLICE);
+            for (int row = s * SLICE; row < end; ) {
+                int c = row >>> CHUNK_BITS;
+                int[] day = invDay.chunks[c];
+                int[] doc = invDoctor.chunks[c];
+                int[] weight = invWeight.chunks[c];
+                long[] sub = invSubtotal.chunks[c];
+                int stop = Math.min(end, (c + 1) << CHUNK_BITS);
+                for (int i = row & (CHUNK - 1), last = i + (stop - row); i < last; i++) {
+                    int d = day[i];
+                    if (d < lo || d > hi) continue;
+                    int id = doc[i];
+                    acc[2 * id] += weight[i];
+                    acc[2 * id + 1] += sub[i];
+                }
+                row = stop;
+            }
+            return acc;
+        }).reduce(SalesAnalytics::add).orElse(new long[2 * groups]);
+
+        String[] names = doctors.names();
+        List<DoctorRevenue> out = new ArrayList<>();
+        for (int id = 0; id < groups; id++) {
+            if (sums[2 * id] > 0) out.add(new DoctorRevenue(names[id], sums[2 * id], sums[2 * id + 1]));
+        }
+        out.sort((a, b) -> Long.compare(b.revenueCents, a.revenueCents));
+        return out;
+    }
+
+    /** Invoices, subtotal, tax and total per day between from and to (inclusive), days without sales left out. */
+    public List<DailyTax> dailyTax(LocalDate from, LocalDate to) {
+        int n = invoices;
+        int lo = (int) from.toEpochDay();
+        int hi = (int) to.toEpochDay();
+        if (hi < lo) return new ArrayList<>();
+        int days = Math.toIntExact((long) hi - lo + 1);
+        // per slice: [count, subtotal, tax, total] per day of the window
+        long[] sums = IntStream.range(0, slices(n)).parallel().mapToObj(s -> {
+            long[] acc = new long[4 * days];
+            int end = Math.min(n, (s + 1) * SLICE);
+            for (int row = s * SLICE; row < end; ) {
+                int c = row >>> CHUNK_BITS;
+                int[] day = invDay.chunks[c];
+                int[] weight = invWeight.chunks[c];
+                long[] sub = invSubtotal.chunks[c];
+                long[] tax = invTax.chunks[c];
+                long[] tot = invTotal.chunks[c];
+                int stop = Math.min(end, (c + 1) << CHUNK_BITS);
+                for (int i = row & (CHUNK - 1), last = i + (stop - row); i < last; i++) {
+                    int d = day[i];
+                    if (d < lo || d > hi) continue;
+                    int k = 4 * (d - lo);
+                    acc[k] += weight[i];
+                    acc[k + 1] += sub[i];
+                    acc[k + 2] += tax[i];
+                    acc[k + 3] += tot[i];
+                }
+                row = stop;
+            }
+            return acc;
+        }).reduce(SalesAnalytics::add).orElse(new long[4 * days]);
+
+        List<DailyTax> out = new ArrayList<>();
+        for (int d = 0; d < days; d++) {
+            int k = 4 * d;
+            if (sums[k] > 0) out.add(new DailyTax(LocalDate.ofEpochDay(lo + d), sums[k], sums[k + 1], sums[k + 2], sums[k + 3]));
+        }
+        return out;
+    }
+
+    /** The earliest day with an invoice, or null if there are none. */
+    public LocalDate firstDay() {
+        return invoices == 0 ? null : LocalDate.ofEpochDay(invDay.get(0));
+    }
+
+    private static int slices(int rows) {
+        return (rows + SLICE - 1) / SLICE;
+    }
+
+    // adds b into a; both are some slice's own partial sums, used once
+    private static long[] add(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+
+    /* -------------------- Log -------------------- */
+    private ByteBuffer encodeInvoice(InvoiceSnapshot inv, int day) {
+        byte[] no = utf(inv.getInvoiceNo());
+        byte[] doctor = utf(inv.getDoctor());
+        List<byte[]> names = new ArrayList<>(inv.getLines().size());
+        int len = 1 + 2 + no.length + 4 + 2 + doctor.length + 24 + 4;
+        for (InvoiceSnapshot.Line l : inv.getLines()) {
+            byte[] n = utf(l.getName());
+            names.add(n);
+            len += 2 + n.length + 4 + 8;
+        }
+        ByteBuffer b = ByteBuffer.allocate(len);
+        b.put(INVOICE).putShort((short) no.length).put(no).putInt(day).putShort((short) doctor.length).put(doctor)
+                .putLong(inv.getSubtotalCents()).putLong(inv.getTaxCents()).putLong(inv.getTotalCents())
+                .putInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            InvoiceSnapshot.Line l = inv.getLines().get(i);
+            b.putShort((short) names.get(i).length).put(names.get(i)).putInt(l.getQuantity()).putLong(l.getTotalCents());
+        }
+        return b;
+    }
+
+    private void writeBehind(ByteBuffer payload) {
+        payload.flip();
+        writer.execute(() -> {
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            ByteBuffer head = ByteBuffer.allocate(8).putInt(payload.remaining()).putInt((int) crc.getValue());
+            head.flip();
+            try {
+                long start = log.position();
+                try {
+                    while (head.hasRemaining() || payload.hasRemaining()) log.write(new ByteBuffer[]{head, payload});
+                } catch (IOException ex) {
+                    log.truncate(start); // no torn entry in the middle of the log
+                    log.position(start);
+                    throw ex;
+                }
+            } catch (IOException ex) {
+                errorHandler.accept(ex);
+            }
+        });
+    }
+
+    // returns the offset just past the last intact entry
+    private long replay() throws IOException {
+        if (!Files.exists(logFile)) return 0;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= 8) {
+            int pos = buf.position();
+            int len = buf.getInt();
+            int expected = buf.getInt();
+            if (len <= 0 || buf.remaining() < len) {
+                buf.position(pos);
+                break;
+            }
+            ByteBuffer p = buf.slice(buf.position(), len);
+            crc.reset();
+            crc.update(p.duplicate());
+            if ((int) crc.getValue() != expected) {
+                buf.position(pos);
+                break;
+            }
+            buf.position(buf.position() + len);
+            byte type = p.get();
+            if (type == INVOICE) {
+                String no = readUtf(p);
+                int day = p.getInt();
+                String doctor = readUtf(p);
+                long subtotal = p.getLong();
+                long tax = p.getLong();
+                long total = p.getLong();
+                int count = p.getInt();
+                List<InvoiceSnapshot.Line> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String name = readUtf(p);
+                    int qty = p.getInt();
+                    items.add(new InvoiceSnapshot.Line(name, qty, 0, p.getLong()));
+                }
+                append(no, day, doctor, subtotal, tax, total, items);
+            } else if (type == RESTAMP) {
+                applyRestamp(readUtf(p), readUtf(p));
+            } else if (type == VOID) {
+                applyVoid(readUtf(p));
+            }
+        }
+        return buf.position();
+    }
+
+    private static byte[] utf(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        return b.length <= Short.MAX_VALUE ? b : Arrays.copyOf(b, Short.MAX_VALUE);
+    }
+
+    private static String readUtf(ByteBuffer b) {
+        byte[] s = new byte[b.getShort()];
+        b.get(s);
+        return new String(s, StandardCharsets.UTF_8);
+    }
+
+    /** Write out what is queued and close the log. */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            log.force(false);
+        } finally {
+            log.close();
+        }
+    }
+
+    /* -------------------- Storage -------------------- */
+    // chunks are allocated once and never moved; the chunk table is replaced (not resized in place) when it grows
+    private static final class IntColumn {
+        volatile int[][] chunks = new int[0][];
+
+        void set(int row, int v) {
+            int c = row >>> CHUNK_BITS;
+            int[][] t = chunks;
+            if (c == t.length) {
+                t = Arrays.copyOf(t, c + 1);
+                t[c] = new int[CHUNK];
+                chunks = t;
+            }
+            t[c][row & (CHUNK - 1)] = v;
+        }
+
+        int get(int row) {
+            return chunks[row >>> CHUNK_BITS][row & (CHUNK - 1)];
+        }
+    }
+
+    private static final class LongColumn {
+        volatile long[][] chunks = new long[0][];
+
+        void set(int row, long v) {
+            int c = row >>> CHUNK_BITS;
+            long[][] t = chunks;
+            if (c == t.length) {
+                t = Arrays.copyOf(t, c + 1);
+                t[c] = new long[CHUNK];
+                chunks = t;
+            }
+            t[c][row & (CHUNK - 1)] = v;
+        }
+
+        long get(int row) {
+            return chunks[row >>> CHUNK_BITS][row & (CHUNK - 1)];
+        }
+    }
+
+    // names to dense ids (case-insensitive; the first spelling seen is shown)
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private volatile String[] names = new String[16];
+        private volatile int size;
+
+        int idOf(String name) {
+            String key = name.trim().toLowerCase(Locale.ROOT);
+            Integer id = ids.get(key);
+            if (id != null) return id;
+            int next = size;
+            String[] n = names;
+            if (next == n.length) n = Arrays.copyOf(n, next * 2);
+            n[next] = name.trim();
+            names = n;
+            ids.put(key, next);
+            size = next + 1;
+            return next;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String[] names() {
+            return names;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// src/main/java/com/app/model/ServiceFee.java
+
+package com.app.model;
+
+import jakarta.persistence.*;
+
+// Fee schedule entry for a billable service or procedure; priced by PriceCatalog
+@Entity
+@Table(name = "service_fees")
+public class ServiceFee {
+    @Id
+    private String code;
+
+    private String description;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "fee_minor")
+    private Money fee;
+
+    private boolean active = true; // inactive fees can no longer be billed
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Money getFee() { return fee; }
+    public void setFee(Money fee) { this.fee = fee; }
+
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+}
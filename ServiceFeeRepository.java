@@ -0,0 +1,9 @@
+// src/main/java/com/app/repository/ServiceFeeRepository.java
+
+package com.app.repository;
+
+import com.app.model.ServiceFee;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ServiceFeeRepository extends JpaRepository<ServiceFee, String> {
+}
@@ -0,0 +1,267 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Inventory sync over TCP on the shop LAN. Each frame is sent as len:int + bytes;
+ * every connection has a reader and a writer thread, so senders only enqueue.
+ * {@link Server} runs next to the {@link SyncHub} on the hub terminal.
+ *
+ * Terminals prove they know the pharmacy's shared secret before the hub accepts
+ * anything from them: the server sends a random challenge and the terminal's HELLO
+ * carries a MAC over it (see {@link SyncFrames}). Until then a connection may send
+ * only one HELLO-sized frame and must do so within the connect timeout. The secret is
+ * not sent and frames are not encrypted; bind the server to the shop LAN's address.
+ */
+public class SocketSyncTransport implements SyncTransport {
+
+    static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    static final int MAX_FRAME_BYTES = 64 << 20;
+
+    private final String host;
+    private final int port;
+    private final byte[] secret;
+
+    /** @param secret the pharmacy's shared secret, the same as the hub's */
+    public SocketSyncTransport(String host, int port, byte[] secret) {
+        this.host = host;
+        this.port = port;
+        this.secret = requireSecret(secret);
+    }
+
+    @Override
+    public Link connect(byte[] hello, Consumer<byte[]> receiver, Runnable onClosed) throws IOException {
+        Socket socket = new Socket();
+        byte[] nonce;
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            nonce = readChallenge(socket);
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+        Framed f = new Framed(socket, receiver, onClosed);
+        f.send(SyncFrames.signedHello(hello, nonce, secret));
+        f.start("sync-client");
+        return new Link() {
+            @Override
+            public void send(byte[] frame) {
+                f.send(frame);
+            }
+
+            @Override
+            public void close() {
+                f.close(false);
+            }
+        };
+    }
+
+    // the hub speaks first; read its challenge before the framed reader takes over the socket
+    private byte[] readChallenge(Socket socket) throws IOException {
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        DataInputStream in = new DataInputStream(socket.getInputStream()); // unbuffered: reads nothing past the frame
+        int len = in.readInt();
+        byte[] frame = new byte[SyncFrames.CHALLENGE_BYTES];
+        if (len != frame.length) throw new IOException("Not a sync hub: " + host + ":" + port);
+        in.readFully(frame);
+        if (SyncFrames.typeOf(frame) != SyncFrames.CHALLENGE) throw new IOException("Not a sync hub: " + host + ":" + port);
+        socket.setSoTimeout(0);
+        return SyncFrames.challengeNonce(frame);
+    }
+
+    private static byte[] requireSecret(byte[] secret) {
+        if (secret == null || secret.length == 0) throw new IllegalArgumentException("A shared sync secret is required");
+        return secret.clone();
+    }
+
+    /** Accepts terminal connections and hands their frames to the hub. */
+    public static class Server implements Closeable {
+        private final SyncHub hub;
+        private final byte[] secret;
+        private final SecureRandom random = new SecureRandom();
+        private final ServerSocket serverSocket;
+        private final Set<Framed> connections = ConcurrentHashMap.newKeySet();
+        private final Thread acceptor;
+
+        /**
+         * @param bindAddress local address to listen on; null listens on every interface
+         * @param secret      the pharmacy's shared secret; terminals without it are refused
+         */
+        public Server(SyncHub hub, InetAddress bindAddress, int port, byte[] secret) throws IOException {
+            this.hub = hub;
+            this.secret = requireSecret(secret);
+            this.serverSocket = new ServerSocket(port, 50, bindAddress);
+            this.acceptor = BackgroundTasks.daemon(this::acceptLoop, "sync-hub-accept");
+            acceptor.start();
+        }
+
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                Socket s;
+                try {
+                    s = serverSocket.accept();
+                } catch (IOException ex) {
+                    return; // closed
+                }
+                Framed[] self = new Framed[1];
+                SyncHub.Connection conn = new SyncHub.Connection() {
+                    @Override
+                    public void send(byte[] frame) {
+                        self[0].send(frame);
+                    }
+
+                    @Override
+                    public void close() {
+                        self[0].close(true);
+                    }
+                };
+                // the first frame is the terminal's signed HELLO, every later one a delta
+                byte[] nonce = new byte[SyncFrames.NONCE_BYTES];
+                random.nextBytes(nonce);
+                AtomicBoolean greeted = new AtomicBoolean();
+                try {
+                    self[0] = new Framed(s, frame -> {
+                        if (greeted.compareAndSet(false, true)) {
+                            byte[] hello = SyncFrames.verifiedHello(frame, nonce, secret);
+                            if (hello == null) throw new IllegalStateException("Sync terminal failed the challenge"); // drops the link
+                            self[0].trusted();
+                            hub.hello(conn, SyncFrames.helloVersion(hello));
+                        } else {
+                            hub.submit(conn, frame);
+                        }
+                    }, () -> {
+                        hub.disconnect(conn);
+                        connections.remove(self[0]);
+                    });
+                    self[0].untrusted(SyncFrames.SIGNED_HELLO_BYTES);
+                } catch (IOException ex) {
+                    closeQuietly(s); // the terminal retries
+                    continue;
+                }
+                connections.add(self[0]);
+                self[0].send(SyncFrames.challenge(nonce));
+                self[0].start("sync-hub-conn");
+            }
+        }
+
+        private static void closeQuietly(Socket s) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // already failed
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            for (Framed f : connections) f.close(true);
+        }
+    }
+
+    // one socket: a reader thread delivering frames, a writer thread draining the send queue
+    static final class Framed {
+        private static final byte[] EOF = new byte[0];
+
+        private final Socket socket;
+        private final Consumer<byte[]> receiver;
+        private final Runnable onClosed;
+        private final BlockingQueue<byte[]> out = new LinkedBlockingQueue<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile int maxFrameBytes = MAX_FRAME_BYTES;
+
+        Framed(Socket socket, Consumer<byte[]> receiver, Runnable onClosed) throws IOException {
+            this.socket = socket;
+            this.receiver = receiver;
+            this.onClosed = onClosed;
+            socket.setTcpNoDelay(true);
+        }
+
+        void start(String name) {
+            BackgroundTasks.daemon(this::readLoop, name + "-read").start();
+            BackgroundTasks.daemon(this::writeLoop, name + "-write").start();
+        }
+
+        void send(byte[] frame) {
+            if (!closed.get()) out.add(frame);
+        }
+
+        // a peer that has not authenticated: reads time out and frames are capped at maxFrame
+        void untrusted(int maxFrame) throws IOException {
+            socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            maxFrameBytes = maxFrame;
+        }
+
+        // called on the reader thread once the peer has authenticated
+        void trusted() {
+            try {
+                socket.setSoTimeout(0);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex); // drops the link
+            }
+            maxFrameBytes = MAX_FRAME_BYTES;
+        }
+
+        // dropped = the connection failed (run onClosed) rather than being closed by its owner
+        void close(boolean dropped) {
+            if (!closed.compareAndSet(false, true)) return;
+            out.add(EOF);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+            if (dropped) onClosed.run();
+        }
+
+        private void readLoop() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    int len = in.readInt();
+                    if (len <= 0 || len > maxFrameBytes) throw new IOException("Bad sync frame length " + len);
+                    byte[] frame = new byte[len];
+                    in.readFully(frame);
+                    receiver.accept(frame);
+                }
+            } catch (IOException | RuntimeException ex) {
+                close(true); // EOF, reset, or a frame the receiver could not take
+            }
+        }
+
+        private void writeLoop() {
+            try {
+                DataOutputStream o = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                while (true) {
+                    byte[] frame = out.take();
+                    if (frame == EOF) return;
+                    o.writeInt(frame.length);
+                    o.write(frame);
+                    if (out.isEmpty()) o.flush(); // one flush per burst
+                }
+            } catch (IOException ex) {
+                close(true);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
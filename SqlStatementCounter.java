@@ -0,0 +1,47 @@
+// src/main/java/com/app/metrics/SqlStatementCounter.java
+
+package com.app.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.function.Supplier;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ *
+ * Registered through hibernate.session_factory.statement_inspector, so Hibernate
+ * creates it and every session sees it. {@link SqlStatementFilter} resets the count
+ * per request and records it; tests wrap a call in {@link #expectAtMost} to pin a
+ * query budget, which fails the moment an N+1 creeps back in. A JDBC batch is
+ * prepared once, so a batched insert of 50 rows counts as one statement.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /** Statements prepared on this thread since the last {@link #reset}. */
+    public static int current() {
+        return COUNT.get()[0];
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /** Run work and throw AssertionError if it prepared more than max statements. */
+    public static <T> T expectAtMost(int max, Supplier<T> work) {
+        int before = current();
+        T result = work.get();
+        int used = current() - before;
+        if (used > max) {
+            throw new AssertionError("Expected at most " + max + " SQL statements, got " + used);
+        }
+        return result;
+    }
+}
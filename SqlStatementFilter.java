@@ -0,0 +1,47 @@
+// src/main/java/com/app/metrics/SqlStatementFilter.java
+
+package com.app.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Records the SQL statements each request prepared as http.server.sql.statements{method, uri},
+// uri being the route pattern (/api/billing/{id}), so a max that grows with page size is an N+1
+@Component
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+    private final Map<String, DistributionSummary> byRoute = new ConcurrentHashMap<>();
+
+    public SqlStatementFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = request.getMethod() + " " + (pattern == null ? "UNKNOWN" : pattern);
+            byRoute.computeIfAbsent(route, r -> DistributionSummary.builder("http.server.sql.statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .register(registry))
+                    .record(SqlStatementCounter.current());
+        }
+    }
+}
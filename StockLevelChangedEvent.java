@@ -0,0 +1,33 @@
+// src/main/java/com/app/alert/StockLevelChangedEvent.java
+
+package com.app.alert;
+
+// Published by InventoryAlertWatcher when a medicine moves between stock levels
+public class StockLevelChangedEvent {
+
+    public enum Level { OK, LOW, OUT_OF_STOCK }
+
+    private final Long medicineId;
+    private final String medicineName;
+    private final Level previous; // null the first time the medicine is seen
+    private final Level current;
+    private final int stockQuantity;
+    private final int reorderLevel;
+
+    public StockLevelChangedEvent(Long medicineId, String medicineName, Level previous, Level current,
+                                  int stockQuantity, int reorderLevel) {
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.previous = previous;
+        this.current = current;
+        this.stockQuantity = stockQuantity;
+        this.reorderLevel = reorderLevel;
+    }
+
+    public Long getMedicineId() { return medicineId; }
+    public String getMedicineName() { return medicineName; }
+    public Level getPrevious() { return previous; }
+    public Level getCurrent() { return current; }
+    public int getStockQuantity() { return stockQuantity; }
+    public int getReorderLevel() { return reorderLevel; }
+}
@@ -0,0 +1,147 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-SKU stock counters for billing: stock is reserved when a line is added to a
+ * bill, released when the line is removed and committed (taken off the shelf) when
+ * the invoice is issued. A committed line is remembered until its bill is settled, so
+ * taking it off an issued invoice (when the invoice is revised) puts its units back.
+ *
+ * Each medicine has one AtomicLong packing on-hand (high 32 bits) and reserved (low
+ * 32 bits), so every operation is a single compare-and-set on that SKU's counter and
+ * counters never contend with each other.
+ *
+ * The counters cover this terminal only. With inventory sync on, another terminal can
+ * sell the same units at the same moment; both sales stand and the shared stock goes
+ * negative (see InventoryDelta#applyTo), so the last unit can be sold twice.
+ */
+public class StockReservations {
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<PatientPharmacyApp.BillItem, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<PatientPharmacyApp.BillItem, Hold> sold = new ConcurrentHashMap<>(); // committed, bill not settled
+
+    /**
+     * Reserve qty of the medicine for the bill line.
+     *
+     * @return false (and reserve nothing) if fewer than qty units are available
+     * @throws IllegalArgumentException if qty is not positive
+     */
+    public boolean reserve(PatientPharmacyApp.BillItem item, PatientPharmacyApp.Medicine m, int qty) {
+        if (qty <= 0) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+        AtomicLong c = counterFor(m);
+        long v;
+        do {
+            v = c.get();
+            if (onHand(v) - reserved(v) < qty) return false;
+        } while (!c.compareAndSet(v, pack(onHand(v), reserved(v) + qty)));
+        holds.put(item, new Hold(m.getId(), qty));
+        return true;
+    }
+
+    /** Give the line's reservation back; no-op if it holds none (or was already committed). */
+    public void release(PatientPharmacyApp.BillItem item) {
+        Hold h = holds.remove(item);
+        if (h == null) return;
+        AtomicLong c = counters.get(h.medicineId);
+        if (c == null) return;
+        long v;
+        do {
+            v = c.get();
+        } while (!c.compareAndSet(v, pack(onHand(v), reserved(v) - h.qty)));
+    }
+
+    /**
+     * Turn the line's reservation into a sale.
+     *
+     * @return the medicine's new on-hand quantity, or -1 if the line held no reservation
+     */
+    public int commit(PatientPharmacyApp.BillItem item) {
+        Hold h = holds.remove(item);
+        if (h == null) return -1;
+        AtomicLong c = counters.get(h.medicineId);
+        if (c == null) return -1;
+        long v;
+        int newOnHand;
+        do {
+            v = c.get();
+            newOnHand = onHand(v) - h.qty;
+        } while (!c.compareAndSet(v, pack(newOnHand, reserved(v) - h.qty)));
+        sold.put(item, h);
+        return newOnHand;
+    }
+
+    /**
+     * Undo the commit of a line taken off an issued invoice: its units go back on the shelf.
+     *
+     * @return the medicine's new on-hand quantity, or -1 if the line was not committed
+     */
+    public int uncommit(PatientPharmacyApp.BillItem item) {
+        Hold h = sold.remove(item);
+        if (h == null) return -1;
+        AtomicLong c = counters.get(h.medicineId);
+        if (c == null) return -1;
+        long v;
+        int newOnHand;
+        do {
+            v = c.get();
+            newOnHand = onHand(v) + h.qty;
+        } while (!c.compareAndSet(v, pack(newOnHand, reserved(v))));
+        return newOnHand;
+    }
+
+    /** The line's bill is closed: its sale stands and can no longer be undone. */
+    public void settle(PatientPharmacyApp.BillItem item) {
+        sold.remove(item);
+    }
+
+    /** Pick up an edited on-hand quantity; outstanding reservations are kept. */
+    public void setOnHand(PatientPharmacyApp.Medicine m) {
+        AtomicLong c = counterFor(m);
+        long v;
+        do {
+            v = c.get();
+        } while (!c.compareAndSet(v, pack(m.getQuantity(), reserved(v))));
+    }
+
+    public void forget(PatientPharmacyApp.Medicine m) {
+        counters.remove(m.getId());
+    }
+
+    /** Units on hand and not reserved by any open bill. */
+    public int available(PatientPharmacyApp.Medicine m) {
+        long v = counterFor(m).get();
+        return onHand(v) - reserved(v);
+    }
+
+    public boolean isHeld(PatientPharmacyApp.BillItem item) {
+        return holds.containsKey(item);
+    }
+
+    private AtomicLong counterFor(PatientPharmacyApp.Medicine m) {
+        return counters.computeIfAbsent(m.getId(), id -> new AtomicLong(pack(m.getQuantity(), 0)));
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & 0xFFFF_FFFFL);
+    }
+
+    private static int onHand(long v) {
+        return (int) (v >> 32);
+    }
+
+    private static int reserved(long v) {
+        return (int) v;
+    }
+
+    private static final class Hold {
+        final long medicineId;
+        final int qty;
+
+        Hold(long medicineId, int qty) {
+            this.medicineId = medicineId;
+            this.qty = qty;
+        }
+    }
+}
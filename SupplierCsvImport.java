@@ -0,0 +1,413 @@
+import com.app.model.Money;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports a supplier price list (CSV) into the inventory.
+ *
+ * The file is streamed, never loaded whole: the calling thread cuts it into chunks
+ * of {@value #CHUNK_ROWS} records, worker threads parse and validate the chunks in
+ * parallel, and the validated rows go to the {@link Sink} chunk by chunk in file
+ * order, so a later row for the same medicine wins. At most a few chunks are in
+ * flight at once, whatever the file size.
+ *
+ * The first record is the header. Columns are found by name (case, blanks and
+ * punctuation ignored): SKU (sku, code, item code, product code), name (name,
+ * description, product, medicine, item), price (price, unit price, cost, net price)
+ * and an optional quantity received (quantity, qty, received). Commas and
+ * semicolons both work as separators; quoted fields may contain separators,
+ * quotes ("") and line breaks.
+ *
+ * Rows that fail validation here or are rejected by the sink go to an error report,
+ * {@code <file>.errors.csv} next to the file (line, error, record); it is only
+ * written when there are errors. A cancelled import keeps the chunks already applied.
+ */
+public class SupplierCsvImport {
+
+    static final int CHUNK_ROWS = 4096;
+    static final int MAX_NAME_LENGTH = 200;
+    static final int MAX_SKU_LENGTH = 64;
+
+    /** One validated price-list row. */
+    public static final class Row {
+        public final long line;      // first line of the record in the file
+        public final String sku;     // null if the file has no SKU for it
+        public final String name;    // null if only the SKU is given
+        public final Money price;
+        public final int quantity;   // units received, 0 if none
+        final String record;
+
+        Row(long line, String sku, String name, Money price, int quantity, String record) {
+            this.line = line;
+            this.sku = sku;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+            this.record = record;
+        }
+    }
+
+    /** A chunk of rows for the sink, and the tally of what the sink did with them. */
+    public static final class Batch {
+        public final List<Row> rows;
+        int added;
+        int updated;
+        final List<String[]> errors = new ArrayList<>(); // {line, error, record}
+
+        Batch(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        public void added(Row r) {
+            added++;
+        }
+
+        public void updated(Row r) {
+            updated++;
+        }
+
+        public void reject(Row r, String reason) {
+            errors.add(new String[]{String.valueOf(r.line), reason, r.record});
+        }
+    }
+
+    /** Applies validated rows to the inventory. Called on the importing thread, one batch at a time, in file order. */
+    public interface Sink {
+        void apply(Batch batch) throws Exception;
+    }
+
+    /** What an import did. */
+    public static final class Result {
+        public final long rows;
+        public final long added;
+        public final long updated;
+        public final long rejected;
+        public final Path errorReport; // null if there were no errors
+
+        Result(long rows, long added, long updated, long rejected, Path errorReport) {
+            this.rows = rows;
+            this.added = added;
+            this.updated = updated;
+            this.rejected = rejected;
+            this.errorReport = errorReport;
+        }
+
+        public long unchanged() {
+            return rows - added - updated - rejected;
+        }
+    }
+
+    private final int parallelism;
+
+    public SupplierCsvImport() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SupplierCsvImport(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Import the file; blocks until done. Progress is reported by bytes read. */
+    public Result run(Path csv, Sink sink, BackgroundTasks.Progress progress) throws Exception {
+        long size = Math.max(1, Files.size(csv));
+        Path reportFile = csv.resolveSibling(csv.getFileName() + ".errors.csv");
+        Files.deleteIfExists(reportFile); // a report from an earlier run would be misleading
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> BackgroundTasks.daemon(r, "csv-import"));
+        ArrayDeque<Future<Parsed>> inFlight = new ArrayDeque<>();
+        Counter counts = new Counter();
+        BufferedWriter report = null;
+        try (CountingStream in = new CountingStream(Files.newInputStream(csv));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            RecordReader records = new RecordReader(reader);
+            String header = records.next();
+            if (header == null) throw new IOException("The file is empty");
+            if (header.startsWith("\uFEFF")) header = header.substring(1);
+            Columns cols = Columns.of(header);
+
+            List<String> chunk = new ArrayList<>(CHUNK_ROWS);
+            List<Long> lines = new ArrayList<>(CHUNK_ROWS);
+            boolean eof = false;
+            while (!eof || !inFlight.isEmpty()) {
+                if (progress.isCancelled() || Thread.currentThread().isInterrupted()) throw new CancellationException();
+                // keep the workers busy, but never hold more than a few chunks in memory
+                while (!eof && inFlight.size() < parallelism * 2) {
+                    String rec = records.next();
+                    if (rec != null && !rec.trim().isEmpty()) {
+                        chunk.add(rec);
+                        lines.add(records.line);
+                    }
+                    if (rec == null) eof = true;
+                    if (chunk.size() == CHUNK_ROWS || (eof && !chunk.isEmpty())) {
+                        List<String> c = chunk;
+                        List<Long> l = lines;
+                        inFlight.add(workers.submit(() -> parse(cols, c, l)));
+                        chunk = new ArrayList<>(CHUNK_ROWS);
+                        lines = new ArrayList<>(CHUNK_ROWS);
+                    }
+                }
+                if (inFlight.isEmpty()) break;
+                Parsed p;
+                try {
+                    p = inFlight.removeFirst().get();
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+                Batch batch = new Batch(p.rows);
+                batch.errors.addAll(p.errors);
+                if (!p.rows.isEmpty()) sink.apply(batch);
+
+                counts.rows += p.rows.size() + p.errors.size();
+                counts.added += batch.added;
+                counts.updated += batch.updated;
+                counts.rejected += batch.errors.size();
+                if (!batch.errors.isEmpty()) {
+                    if (report == null) {
+                        report = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+                        report.write("line,error,record\n");
+                    }
+                    writeErrors(report, batch.errors);
+                }
+                progress.update(Math.min(1.0, (double) in.count / size),
+                        "Imported " + counts.rows + " rows (" + counts.rejected + " rejected)");
+            }
+        } finally {
+            workers.shutdownNow();
+            if (report != null) report.close();
+        }
+        return new Result(counts.rows, counts.added, counts.updated, counts.rejected, report == null ? null : reportFile);
+    }
+
+    /* -------------------- Parsing (worker threads) -------------------- */
+    private static final class Parsed {
+        final List<Row> rows = new ArrayList<>();
+        final List<String[]> errors = new ArrayList<>();
+    }
+
+    static Parsed parse(Columns cols, List<String> records, List<Long> lines) {
+        Parsed out = new Parsed();
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            String rec = records.get(i);
+            long line = lines.get(i);
+            String error;
+            try {
+                split(rec, cols.separator, fields);
+                Row r = validate(cols, fields, line, rec);
+                out.rows.add(r);
+                continue;
+            } catch (IllegalArgumentException ex) {
+                error = ex.getMessage();
+            }
+            out.errors.add(new String[]{String.valueOf(line), error, rec});
+        }
+        return out;
+    }
+
+    private static Row validate(Columns cols, List<String> f, long line, String rec) {
+        int needed = Math.max(Math.max(cols.sku, cols.name), Math.max(cols.price, cols.quantity)) + 1;
+        if (f.size() < needed) throw new IllegalArgumentException("Expected " + needed + " columns, found " + f.size());
+        String sku = cols.sku < 0 ? null : blankToNull(f.get(cols.sku));
+        String name = cols.name < 0 ? null : blankToNull(f.get(cols.name));
+        if (sku == null && name == null) throw new IllegalArgumentException("Name or SKU required");
+        if (sku != null && sku.length() > MAX_SKU_LENGTH) throw new IllegalArgumentException("SKU longer than " + MAX_SKU_LENGTH + " characters");
+        if (name != null && name.length() > MAX_NAME_LENGTH) throw new IllegalArgumentException("Name longer than " + MAX_NAME_LENGTH + " characters");
+
+        String priceText = f.get(cols.price).trim();
+        Money price;
+        try {
+            price = Money.parse(priceText, Money.BILLING_CURRENCY);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid price '" + priceText + "'");
+        }
+        if (price.signum() < 0) throw new IllegalArgumentException("Negative price");
+
+        int qty = 0;
+        String qtyText = cols.quantity < 0 ? "" : f.get(cols.quantity).trim();
+        if (!qtyText.isEmpty()) {
+            try {
+                qty = Integer.parseInt(qtyText);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid quantity '" + qtyText + "'");
+            }
+            if (qty < 0) throw new IllegalArgumentException("Negative quantity");
+        }
+        return new Row(line, sku, name, price, qty, rec);
+    }
+
+    private static String blankToNull(String s) {
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+
+    // RFC 4180 fields: "quoted, with ""escapes"" and line breaks" or bare
+    static void split(String rec, char sep, List<String> out) {
+        out.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < rec.length(); i++) {
+            char c = rec.charAt(i);
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (i + 1 < rec.length() && rec.charAt(i + 1) == '"') field.append(rec.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == sep) {
+                out.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        out.add(field.toString());
+    }
+
+    /* -------------------- Header -------------------- */
+    static final class Columns {
+        final char separator;
+        int sku = -1;
+        int name = -1;
+        int price = -1;
+        int quantity = -1;
+
+        private Columns(char separator) {
+            this.separator = separator;
+        }
+
+        static Columns of(String header) throws IOException {
+            char sep = count(header, ';') > count(header, ',') ? ';' : ',';
+            Columns c = new Columns(sep);
+            List<String> names = new ArrayList<>();
+            try {
+                split(header, sep, names);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Unreadable header: " + ex.getMessage());
+            }
+            for (int i = 0; i < names.size(); i++) {
+                String h = names.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+                switch (h) {
+                    case "sku": case "code": case "itemcode": case "productcode":
+                        if (c.sku < 0) c.sku = i;
+                        break;
+                    case "name": case "description": case "product": case "productname": case "medicine": case "item":
+                        if (c.name < 0) c.name = i;
+                        break;
+                    case "price": case "unitprice": case "cost": case "netprice":
+                        if (c.price < 0) c.price = i;
+                        break;
+                    case "quantity": case "qty": case "received":
+                        if (c.quantity < 0) c.quantity = i;
+                        break;
+                    default:
+                        break; // other supplier columns are ignored
+                }
+            }
+            if (c.price < 0) throw new IOException("The header has no price column");
+            if (c.sku < 0 && c.name < 0) throw new IOException("The header has no name or SKU column");
+            return c;
+        }
+
+        private static int count(String s, char ch) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) if (s.charAt(i) == ch) n++;
+            return n;
+        }
+    }
+
+    /* -------------------- Reading -------------------- */
+    // whole CSV records: lines are joined while a quoted field is still open
+    private static final class RecordReader {
+        private final BufferedReader in;
+        private long nextLine = 1;
+        long line; // first line of the record last returned
+
+        RecordReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        String next() throws IOException {
+            String first = in.readLine();
+            if (first == null) return null;
+            line = nextLine++;
+            if (quotes(first) % 2 == 0) return first;
+            StringBuilder rec = new StringBuilder(first);
+            int open = quotes(first);
+            String more;
+            while (open % 2 != 0 && (more = in.readLine()) != null) {
+                nextLine++;
+                rec.append('\n').append(more);
+                open += quotes(more);
+            }
+            return rec.toString(); // still open at end of file: reported as unterminated
+        }
+
+        private static int quotes(String s) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) if (s.charAt(i) == '"') n++;
+            return n;
+        }
+    }
+
+    private static final class CountingStream extends FilterInputStream {
+        long count; // read on the importing thread only
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    private static final class Counter {
+        long rows;
+        long added;
+        long updated;
+        long rejected;
+    }
+
+    private static void writeErrors(BufferedWriter w, List<String[]> errors) throws IOException {
+        errors.sort((a, b) -> Long.compare(Long.parseLong(a[0]), Long.parseLong(b[0]))); // parse and sink errors, in file order
+        for (String[] e : errors) {
+            w.write(e[0]);
+            w.write(',');
+            w.write(quote(e[1]));
+            w.write(',');
+            w.write(quote(e[2]));
+            w.write('\n');
+        }
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,397 @@
+import com.app.model.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A terminal's side of inventory sync.
+ *
+ * The client keeps the inventory as last confirmed by the {@link SyncHub} (at a
+ * version) plus the local ops the hub has not acknowledged yet. What the terminal
+ * shows is confirmed state with the pending ops replayed on top, so a local edit
+ * shows at once and is never lost when another terminal's delta arrives first: the
+ * remote delta is applied to the confirmed state and the pending ops are rebased
+ * onto it. Only the medicines a delta touches are recomputed.
+ *
+ * Local changes go out as deltas ({@link InventoryDelta}): stock changes as ADJUSTs,
+ * name and price changes as UPSERTs, so concurrent sales on different counters add
+ * up. After a dropped link the client reconnects with backoff, asks for everything
+ * after its confirmed version and resends its pending ops (the hub ignores the ones
+ * it already has). The confirmed state and pending ops are checkpointed to disk, so
+ * a restarted terminal catches up from where it stopped instead of from scratch.
+ *
+ * Medicines created here get ids with the terminal number in the high bits, so
+ * terminals never hand out the same id. Local-change methods and the {@link Listener}
+ * run on the UI thread (the executor passed in); network work runs on transport threads.
+ */
+public class SyncClient implements Closeable {
+
+    /** Medicines changed by other terminals (or by a catch-up). Called on the UI executor. */
+    public interface Listener {
+        void added(PatientPharmacyApp.Medicine m);
+
+        void changed(PatientPharmacyApp.Medicine m);
+
+        void removed(PatientPharmacyApp.Medicine m);
+
+        /** Saving the sync checkpoint failed; reported once until a checkpoint succeeds again. */
+        void checkpointFailed(IOException ex);
+    }
+
+    static final int TERMINAL_SHIFT = 40;
+    static final int CHECKPOINT_EVERY = 500;
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int MAGIC = 0x53594E54; // "SYNT"
+
+    private final int terminal;
+    private final Path checkpointFile;
+    private final SyncTransport transport;
+    private final Executor ui;
+    private final Listener listener;
+    private final long session = ThreadLocalRandom.current().nextLong();
+    private final ScheduledExecutorService background =
+            Executors.newSingleThreadScheduledExecutor(r -> BackgroundTasks.daemon(r, "sync-client"));
+
+    // UI thread only
+    private final Map<Long, InventoryDelta.Item> confirmed = new HashMap<>();
+    private final ArrayDeque<InventoryDelta> pending = new ArrayDeque<>();
+    private final Map<Long, InventoryDelta.Item> shown = new HashMap<>();
+    private final Map<Long, PatientPharmacyApp.Medicine> live = new LinkedHashMap<>();
+    private long confirmedVersion;
+    private long nextOpId = 1;
+    private long nextLocalId = 1;
+    private boolean fresh; // no checkpoint: the hub's inventory wins, or ours seeds an empty hub
+    private int sinceCheckpoint;
+    private SyncTransport.Link link;
+    private int generation; // frames and close events of older links are ignored
+    private long backoffMillis;
+    private boolean closed;
+    private boolean checkpointFailing; // background thread only
+
+    /**
+     * @param terminal this terminal's number, 1 to 8,388,607, unique in the pharmacy
+     * @param dir      where the checkpoint is kept
+     * @param ui       the UI thread (e.g. Platform::runLater)
+     */
+    public SyncClient(int terminal, Path dir, SyncTransport transport, Executor ui, Listener listener) throws IOException {
+        if (terminal <= 0 || terminal >= 1 << 23) throw new IllegalArgumentException("Terminal number out of range: " + terminal);
+        Files.createDirectories(dir);
+        this.terminal = terminal;
+        this.checkpointFile = dir.resolve("sync.checkpoint");
+        this.transport = transport;
+        this.ui = ui;
+        this.listener = listener;
+    }
+
+    /**
+     * Take over the terminal's inventory (as loaded from its store), reconcile it with the
+     * checkpoint and connect. Call once, on the UI thread.
+     */
+    public void start(List<PatientPharmacyApp.Medicine> inventory) throws IOException {
+        for (PatientPharmacyApp.Medicine m : inventory) {
+            live.put(m.getId(), m);
+            shown.put(m.getId(), itemOf(m));
+            noteId(m.getId());
+        }
+        fresh = !readCheckpoint();
+        if (!fresh) refresh(allIds());
+        connect();
+    }
+
+    public boolean isConnected() {
+        return link != null;
+    }
+
+    public long confirmedVersion() {
+        return confirmedVersion;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /* -------------------- Local changes (UI thread) -------------------- */
+
+    /** A medicine created on this terminal; gives it a pharmacy-wide id if it has none. */
+    public void added(PatientPharmacyApp.Medicine m) {
+        if (m.getId() == 0) m.setId(((long) terminal << TERMINAL_SHIFT) | nextLocalId++);
+        live.put(m.getId(), m);
+        submit(InventoryDelta.Op.UPSERT, m.getId(), m.getName(), m.getPrice().getMinorUnits(), m.getQuantity());
+    }
+
+    /** A medicine edited here (name, price or stock, e.g. a sale); only the difference is sent. */
+    public void changed(PatientPharmacyApp.Medicine m) {
+        InventoryDelta.Item before = shown.get(m.getId());
+        if (before == null) {
+            added(m);
+            return;
+        }
+        if (!before.name.equals(m.getName()) || before.priceMinor != m.getPrice().getMinorUnits()) {
+            submit(InventoryDelta.Op.UPSERT, m.getId(), m.getName(), m.getPrice().getMinorUnits(), m.getQuantity());
+        }
+        int delta = m.getQuantity() - before.quantity;
+        if (delta != 0) submit(InventoryDelta.Op.ADJUST, m.getId(), null, 0, delta);
+    }
+
+    public void deleted(PatientPharmacyApp.Medicine m) {
+        live.remove(m.getId());
+        submit(InventoryDelta.Op.DELETE, m.getId(), null, 0, 0);
+    }
+
+    private void submit(InventoryDelta.Op op, long id, String name, long price, int qty) {
+        InventoryDelta d = new InventoryDelta(0, session, nextOpId++, op, id, name, price, qty);
+        pending.addLast(d);
+        InventoryDelta.Item next = d.applyTo(shown.get(id));
+        if (next == null) shown.remove(id);
+        else shown.put(id, next);
+        if (link != null) link.send(d.encode());
+    }
+
+    /* -------------------- From the hub (UI thread) -------------------- */
+    private void receive(int gen, byte[] frame) {
+        if (gen != generation || closed) return;
+        backoffMillis = 0;
+        if (SyncFrames.typeOf(frame) == SyncFrames.SNAPSHOT) {
+            applySnapshot(SyncFrames.readSnapshot(frame));
+        } else {
+            applyDelta(InventoryDelta.decode(ByteBuffer.wrap(frame)));
+        }
+    }
+
+    private void applyDelta(InventoryDelta d) {
+        if (d.version <= confirmedVersion) return; // already have it
+        if (d.version != confirmedVersion + 1) {
+            // missed something: start over from what we have
+            reconnect(0);
+            return;
+        }
+        d.applyTo(confirmed);
+        confirmedVersion = d.version;
+        Set<Long> touched = new LinkedHashSet<>();
+        touched.add(d.id);
+        for (Iterator<InventoryDelta> it = pending.iterator(); it.hasNext(); ) {
+            InventoryDelta p = it.next();
+            if (p.origin == d.origin && p.opId <= d.opId) {
+                it.remove(); // our own op, now part of the confirmed state
+                touched.add(p.id);
+            }
+        }
+        refresh(touched);
+        if (++sinceCheckpoint >= CHECKPOINT_EVERY) checkpointLater();
+    }
+
+    private void applySnapshot(SyncFrames.Snapshot s) {
+        Set<Long> touched = allIds();
+        confirmed.clear();
+        confirmed.putAll(s.items);
+        confirmedVersion = s.version;
+        pending.removeIf(p -> {
+            Long acked = s.lastOpIds.get(p.origin);
+            return acked != null && p.opId <= acked;
+        });
+        if (fresh && s.version == 0) {
+            // first terminal on a new hub: its inventory becomes the pharmacy's
+            for (PatientPharmacyApp.Medicine m : live.values()) {
+                InventoryDelta d = new InventoryDelta(0, session, nextOpId++, InventoryDelta.Op.UPSERT,
+                        m.getId(), m.getName(), m.getPrice().getMinorUnits(), m.getQuantity());
+                pending.addLast(d);
+                if (link != null) link.send(d.encode());
+            }
+        }
+        fresh = false;
+        for (long id : s.items.keySet()) noteId(id);
+        touched.addAll(s.items.keySet());
+        refresh(touched);
+        checkpointLater();
+    }
+
+    // recompute what the terminal shows for these medicines: confirmed state + pending ops
+    private void refresh(Set<Long> ids) {
+        for (long id : ids) {
+            InventoryDelta.Item item = confirmed.get(id);
+            for (InventoryDelta p : pending) {
+                if (p.id == id) item = p.applyTo(item);
+            }
+            InventoryDelta.Item before = shown.get(id);
+            PatientPharmacyApp.Medicine m = live.get(id);
+            if (item == null) {
+                shown.remove(id);
+                if (m != null) {
+                    live.remove(id);
+                    listener.removed(m);
+                }
+            } else if (m == null) {
+                shown.put(id, item);
+                m = new PatientPharmacyApp.Medicine(item.name, Money.ofMinor(item.priceMinor, Money.BILLING_CURRENCY), item.quantity);
+                m.setId(id);
+                live.put(id, m);
+                listener.added(m);
+            } else if (!item.sameAs(before) || !item.sameAs(itemOf(m))) {
+                shown.put(id, item);
+                m.setName(item.name);
+                m.setPrice(Money.ofMinor(item.priceMinor, Money.BILLING_CURRENCY));
+                m.setQuantity(item.quantity);
+                listener.changed(m);
+            }
+        }
+    }
+
+    private Set<Long> allIds() {
+        Set<Long> ids = new LinkedHashSet<>(live.keySet());
+        ids.addAll(confirmed.keySet());
+        for (InventoryDelta p : pending) ids.add(p.id);
+        return ids;
+    }
+
+    private void noteId(long id) {
+        if (id >>> TERMINAL_SHIFT == terminal) nextLocalId = Math.max(nextLocalId, (id & ((1L << TERMINAL_SHIFT) - 1)) + 1);
+    }
+
+    private static InventoryDelta.Item itemOf(PatientPharmacyApp.Medicine m) {
+        return new InventoryDelta.Item(m.getName(), m.getPrice().getMinorUnits(), m.getQuantity());
+    }
+
+    /* -------------------- Connection -------------------- */
+    private void connect() {
+        int gen = ++generation;
+        byte[] hello = SyncFrames.hello(confirmedVersion);
+        background.execute(() -> {
+            SyncTransport.Link l;
+            try {
+                l = transport.connect(hello, frame -> ui.execute(() -> receive(gen, frame)),
+                        () -> ui.execute(() -> dropped(gen)));
+            } catch (IOException ex) {
+                ui.execute(() -> dropped(gen));
+                return;
+            }
+            ui.execute(() -> {
+                if (gen != generation || closed) {
+                    l.close();
+                    return;
+                }
+                link = l;
+                // the hub skips whatever it already applied
+                for (InventoryDelta p : pending) l.send(p.encode());
+            });
+        });
+    }
+
+    private void dropped(int gen) {
+        if (gen != generation || closed) return;
+        backoffMillis = backoffMillis == 0 ? 1_000 : Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+        reconnect(backoffMillis);
+    }
+
+    private void reconnect(long delayMillis) {
+        generation++;
+        if (link != null) {
+            link.close();
+            link = null;
+        }
+        background.schedule(() -> ui.execute(() -> { if (!closed) connect(); }), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Disconnect and write a final checkpoint. Call on the UI thread. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        generation++;
+        if (link != null) link.close();
+        link = null;
+        byte[] cp = encodeCheckpoint();
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS); // a checkpoint being written
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writeCheckpoint(cp);
+    }
+
+    /* -------------------- Checkpoint -------------------- */
+    //   magic:int snapLen:int snapshot-frame pendingCount:int (len:int delta-frame)* crc32:int
+
+    private void checkpointLater() {
+        sinceCheckpoint = 0;
+        byte[] cp = encodeCheckpoint();
+        background.execute(() -> {
+            try {
+                writeCheckpoint(cp);
+                checkpointFailing = false;
+            } catch (IOException ex) {
+                // the next checkpoint tries again; meanwhile a restart catches up from an older version
+                if (!checkpointFailing) ui.execute(() -> listener.checkpointFailed(ex));
+                checkpointFailing = true;
+            }
+        });
+    }
+
+    private byte[] encodeCheckpoint() {
+        byte[] snap = SyncFrames.snapshot(confirmedVersion, Map.of(), confirmed);
+        byte[][] ops = new byte[pending.size()][];
+        int len = 4 + 4 + snap.length + 4 + 4;
+        int i = 0;
+        for (InventoryDelta p : pending) {
+            ops[i] = p.encode();
+            len += 4 + ops[i++].length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(len);
+        b.putInt(MAGIC).putInt(snap.length).put(snap).putInt(ops.length);
+        for (byte[] op : ops) b.putInt(op.length).put(op);
+        CRC32 crc = new CRC32();
+        crc.update(b.array(), 0, len - 4);
+        b.putInt((int) crc.getValue());
+        return b.array();
+    }
+
+    private void writeCheckpoint(byte[] cp) throws IOException {
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(tmp, cp);
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // false if there is no usable checkpoint
+    private boolean readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) return false;
+        byte[] cp = Files.readAllBytes(checkpointFile);
+        ByteBuffer b = ByteBuffer.wrap(cp);
+        CRC32 crc = new CRC32();
+        if (cp.length < 16) return false;
+        crc.update(cp, 0, cp.length - 4);
+        if (b.getInt() != MAGIC || b.getInt(cp.length - 4) != (int) crc.getValue()) return false;
+        byte[] snap = new byte[b.getInt()];
+        b.get(snap);
+        SyncFrames.Snapshot s = SyncFrames.readSnapshot(snap);
+        confirmed.putAll(s.items);
+        confirmedVersion = s.version;
+        int n = b.getInt();
+        for (int i = 0; i < n; i++) {
+            byte[] op = new byte[b.getInt()];
+            b.get(op);
+            InventoryDelta d = InventoryDelta.decode(ByteBuffer.wrap(op));
+            pending.addLast(d);
+            noteId(d.id);
+        }
+        for (long id : confirmed.keySet()) noteId(id);
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The non-delta frames of the inventory sync protocol (deltas: {@link InventoryDelta}).
+ * <pre>
+ *   CHALLENGE type:byte nonce:16                              hub -> terminal, first frame on a LAN link
+ *   HELLO     type:byte fromVersion:long [mac:32]             terminal -> hub, first frame on a link
+ *   SNAPSHOT  type:byte version:long
+ *             sessions:int (origin:long lastOpId:long)*
+ *             items:int (id:long price:long qty:int nameLen:short name:utf8)*   hub -> terminal
+ * </pre>
+ * A terminal says which version it has; the hub answers with the deltas after it,
+ * or with a snapshot when it has none (fromVersion 0) or the hub no longer keeps the
+ * deltas it is missing. The snapshot's per-origin last op ids tell a terminal which of
+ * its unacknowledged ops are already in it.
+ *
+ * Over the LAN ({@link SocketSyncTransport}) the hub opens with a random challenge
+ * and the HELLO ends with HMAC-SHA256(secret, nonce + HELLO) under the pharmacy's
+ * shared secret; a link whose MAC does not match is dropped before the hub sees it.
+ */
+final class SyncFrames {
+
+    static final byte HELLO = 2;
+    static final byte SNAPSHOT = 3;
+    static final byte CHALLENGE = 4;
+    static final int NONCE_BYTES = 16;
+    static final int CHALLENGE_BYTES = 1 + NONCE_BYTES;
+    static final int SIGNED_HELLO_BYTES = 9 + 32;
+
+    private SyncFrames() {
+    }
+
+    static byte typeOf(byte[] frame) {
+        return frame[0];
+    }
+
+    static byte[] hello(long fromVersion) {
+        return ByteBuffer.allocate(9).put(HELLO).putLong(fromVersion).array();
+    }
+
+    static long helloVersion(byte[] frame) {
+        return ByteBuffer.wrap(frame, 1, 8).getLong();
+    }
+
+    static byte[] challenge(byte[] nonce) {
+        return ByteBuffer.allocate(CHALLENGE_BYTES).put(CHALLENGE).put(nonce).array();
+    }
+
+    static byte[] challengeNonce(byte[] frame) {
+        return Arrays.copyOfRange(frame, 1, CHALLENGE_BYTES);
+    }
+
+    static byte[] signedHello(byte[] hello, byte[] nonce, byte[] secret) {
+        return ByteBuffer.allocate(SIGNED_HELLO_BYTES).put(hello).put(mac(secret, nonce, hello)).array();
+    }
+
+    // the HELLO without its MAC, or null if the frame is not a HELLO signed with this secret and nonce
+    static byte[] verifiedHello(byte[] frame, byte[] nonce, byte[] secret) {
+        if (frame.length != SIGNED_HELLO_BYTES || typeOf(frame) != HELLO) return null;
+        byte[] hello = Arrays.copyOf(frame, 9);
+        boolean ok = MessageDigest.isEqual(mac(secret, nonce, hello), Arrays.copyOfRange(frame, 9, SIGNED_HELLO_BYTES));
+        return ok ? hello : null;
+    }
+
+    private static byte[] mac(byte[] secret, byte[] nonce, byte[] hello) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            mac.update(nonce);
+            return mac.doFinal(hello);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 unavailable", ex); // every JRE has it
+        }
+    }
+
+    static final class Snapshot {
+        final long version;
+        final Map<Long, Long> lastOpIds;
+        final Map<Long, InventoryDelta.Item> items;
+
+        Snapshot(long version, Map<Long, Long> lastOpIds, Map<Long, InventoryDelta.Item> items) {
+            this.version = version;
+            this.lastOpIds = lastOpIds;
+            this.items = items;
+        }
+    }
+
+    static byte[] snapshot(long version, Map<Long, Long> lastOpIds, Map<Long, InventoryDelta.Item> items) {
+        int len = 1 + 8 + 4 + lastOpIds.size() * 16 + 4;
+        Map<Long, byte[]> names = new HashMap<>(items.size() * 2);
+        for (Map.Entry<Long, InventoryDelta.Item> e : items.entrySet()) {
+            byte[] n = e.getValue().name.getBytes(StandardCharsets.UTF_8);
+            names.put(e.getKey(), n);
+            len += 8 + 8 + 4 + 2 + n.length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(len);
+        b.put(SNAPSHOT).putLong(version).putInt(lastOpIds.size());
+        lastOpIds.forEach((origin, opId) -> b.putLong(origin).putLong(opId));
+        b.putInt(items.size());
+        for (Map.Entry<Long, InventoryDelta.Item> e : items.entrySet()) {
+            InventoryDelta.Item it = e.getValue();
+            byte[] n = names.get(e.getKey());
+            b.putLong(e.getKey()).putLong(it.priceMinor).putInt(it.quantity).putShort((short) n.length).put(n);
+        }
+        return b.array();
+    }
+
+    static Snapshot readSnapshot(byte[] frame) {
+        ByteBuffer b = ByteBuffer.wrap(frame);
+        if (b.get() != SNAPSHOT) throw new IllegalArgumentException("Not a snapshot frame");
+        long version = b.getLong();
+        int sessions = b.getInt();
+        Map<Long, Long> lastOpIds = new HashMap<>(sessions * 2);
+        for (int i = 0; i < sessions; i++) lastOpIds.put(b.getLong(), b.getLong());
+        int count = b.getInt();
+        Map<Long, InventoryDelta.Item> items = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            long id = b.getLong();
+            long price = b.getLong();
+            int qty = b.getInt();
+            byte[] n = new byte[b.getShort() & 0xFFFF];
+            b.get(n);
+            items.put(id, new InventoryDelta.Item(new String(n, StandardCharsets.UTF_8), price, qty));
+        }
+        return new Snapshot(version, lastOpIds, items);
+    }
+}
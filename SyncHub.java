@@ -0,0 +1,244 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The pharmacy's authoritative inventory log for multi-terminal sync.
+ *
+ * Terminals submit {@link InventoryDelta}s; the hub numbers them (version 1, 2, ...),
+ * applies them to its copy of the inventory and broadcasts each one to every connected
+ * terminal, the sender included (that is its acknowledgement). A terminal that
+ * reconnects says which version it has and gets only what it missed: the retained
+ * deltas after it, or one snapshot when it is too far behind. Steady-state traffic is
+ * one small delta per change, whatever the size of the inventory.
+ *
+ * Accepted deltas are appended to hub.log and forced to disk before they are
+ * broadcast; every {@value #COMPACT_EVERY} deltas the state is written to hub.snap and
+ * the log emptied. A delta whose (origin, opId) the hub has already applied (a
+ * terminal resending after a reconnect) is ignored.
+ *
+ * Thread-safe; Connection.send is called with the hub locked, in version order, and
+ * must only enqueue.
+ */
+public class SyncHub implements Closeable {
+
+    /** The hub's side of one terminal link. */
+    public interface Connection {
+        void send(byte[] frame);
+
+        void close();
+    }
+
+    static final int COMPACT_EVERY = 10_000;
+    private static final int SNAP_MAGIC = 0x53594E43; // "SYNC"
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final int retain;
+    private final Map<Long, InventoryDelta.Item> state = new LinkedHashMap<>();
+    private final Map<Long, Long> lastOpIds = new HashMap<>();
+    private final ArrayDeque<byte[]> recent = new ArrayDeque<>(); // versions version-size+1 .. version
+    private final List<Connection> subscribers = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private long version;
+    private long logEntries;
+    private FileChannel log;
+    private final Consumer<IOException> errorHandler;
+
+    /**
+     * Open (or create) the hub's files in dir and rebuild its state.
+     *
+     * @param retain       deltas kept in memory for catch-up; terminals further behind get a snapshot
+     * @param errorHandler called when appending to the log fails; the delta is not applied and its sender is disconnected
+     */
+    public SyncHub(Path dir, int retain, Consumer<IOException> errorHandler) throws IOException {
+        this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+        Files.createDirectories(dir);
+        this.snapshotFile = dir.resolve("hub.snap");
+        this.logFile = dir.resolve("hub.log");
+        this.retain = Math.max(1, retain);
+        readSnapshot();
+        long good = replayLog();
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(good);
+        log.position(good);
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /** Bring a (re)connecting terminal up to date from fromVersion and subscribe it to new deltas. */
+    public synchronized void hello(Connection c, long fromVersion) {
+        long oldest = version - recent.size(); // the earliest version a terminal can catch up from
+        if (fromVersion <= 0 || fromVersion < oldest || fromVersion > version) {
+            c.send(SyncFrames.snapshot(version, lastOpIds, state));
+        } else {
+            long v = oldest;
+            for (byte[] frame : recent) {
+                if (++v > fromVersion) c.send(frame);
+            }
+        }
+        subscribers.add(c);
+    }
+
+    /** A delta from a terminal: number it, persist it, apply it and broadcast it. */
+    public synchronized void submit(Connection from, byte[] frame) {
+        InventoryDelta d = InventoryDelta.decode(ByteBuffer.wrap(frame));
+        Long last = lastOpIds.get(d.origin);
+        if (last != null && d.opId <= last) return; // resent after a reconnect; already applied
+
+        InventoryDelta numbered = d.withVersion(version + 1);
+        byte[] out = numbered.encode();
+        try {
+            append(out);
+        } catch (IOException ex) {
+            errorHandler.accept(ex);
+            // the sender keeps the op pending and resends it when it reconnects
+            subscribers.remove(from);
+            from.close();
+            return;
+        }
+        version++;
+        numbered.applyTo(state);
+        lastOpIds.put(d.origin, d.opId);
+        remember(out);
+        for (Connection c : subscribers) c.send(out);
+
+        if (logEntries >= COMPACT_EVERY) {
+            try {
+                compact();
+            } catch (IOException ex) {
+                errorHandler.accept(ex); // the log keeps growing until a compaction succeeds
+            }
+        }
+    }
+
+    public synchronized void disconnect(Connection c) {
+        subscribers.remove(c);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Connection c : subscribers) c.close();
+        subscribers.clear();
+        log.close();
+    }
+
+    private void remember(byte[] frame) {
+        recent.addLast(frame);
+        if (recent.size() > retain) recent.removeFirst();
+    }
+
+    /* -------------------- Persistence -------------------- */
+    private void append(byte[] frame) throws IOException {
+        crc.reset();
+        crc.update(frame);
+        ByteBuffer b = ByteBuffer.allocate(8 + frame.length);
+        b.putInt(frame.length).putInt((int) crc.getValue()).put(frame).flip();
+        long start = log.position();
+        try {
+            while (b.hasRemaining()) log.write(b);
+            log.force(false);
+        } catch (IOException ex) {
+            // don't leave a partial entry for the next append to follow
+            try {
+                log.truncate(start);
+                log.position(start);
+            } catch (IOException ignored) {
+                // the torn entry is cut off on the next start
+            }
+            throw ex;
+        }
+        logEntries++;
+    }
+
+    private void compact() throws IOException {
+        byte[] snap = SyncFrames.snapshot(version, lastOpIds, state);
+        crc.reset();
+        crc.update(snap);
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.allocate(12 + snap.length);
+            b.putInt(SNAP_MAGIC).putInt(snap.length).put(snap).putInt((int) crc.getValue()).flip();
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        logEntries = 0;
+    }
+
+    private void readSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) return;
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (b.remaining() < 12 || b.getInt() != SNAP_MAGIC) throw new IOException("Not a sync hub snapshot: " + snapshotFile);
+        byte[] snap = new byte[b.getInt()];
+        if (b.remaining() != snap.length + 4) throw new IOException("Truncated sync hub snapshot: " + snapshotFile);
+        b.get(snap);
+        crc.reset();
+        crc.update(snap);
+        if (b.getInt() != (int) crc.getValue()) throw new IOException("Corrupt sync hub snapshot: " + snapshotFile);
+        SyncFrames.Snapshot s = SyncFrames.readSnapshot(snap);
+        version = s.version;
+        lastOpIds.putAll(s.lastOpIds);
+        state.putAll(s.items);
+    }
+
+    // returns the offset just past the last intact entry
+    private long replayLog() throws IOException {
+        if (!Files.exists(logFile)) return 0;
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        while (b.remaining() >= 8) {
+            int pos = b.position();
+            int len = b.getInt();
+            int expected = b.getInt();
+            if (len <= 0 || b.remaining() < len) {
+                b.position(pos);
+                break;
+            }
+            byte[] frame = new byte[len];
+            b.get(frame);
+            crc.reset();
+            crc.update(frame);
+            if ((int) crc.getValue() != expected) {
+                b.position(pos);
+                break;
+            }
+            InventoryDelta d = InventoryDelta.decode(ByteBuffer.wrap(frame));
+            logEntries++;
+            if (d.version <= version) continue; // already in the snapshot (crash between snapshot and truncate)
+            version = d.version;
+            d.applyTo(state);
+            lastOpIds.put(d.origin, d.opId);
+            remember(frame);
+        }
+        return b.position();
+    }
+
+    // for tests and diagnostics: the hub's current view of one medicine
+    synchronized InventoryDelta.Item item(long id) {
+        return state.get(id);
+    }
+
+    synchronized int subscriberCount() {
+        return subscribers.size();
+    }
+}
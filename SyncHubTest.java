@@ -0,0 +1,341 @@
+import com.app.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Multi-terminal sync end to end: SyncClients on their own UI threads, talking to one
+ * SyncHub over loopback links, plus the hub's catch-up and dedupe rules driven directly.
+ */
+class SyncHubTest {
+
+    private static final long ASPIRIN = 1;
+    private static final long OTHER_TERMINAL = 99; // origin of deltas submitted straight to the hub
+
+    @TempDir
+    Path dir;
+
+    private final List<AutoCloseable> open = new ArrayList<>();
+    private long nextOpId = 1;
+
+    @AfterEach
+    void closeAll() throws Exception {
+        for (int i = open.size() - 1; i >= 0; i--) open.get(i).close();
+    }
+
+    // a sale made while the terminal is offline is rebased onto the sale another terminal
+    // made meanwhile, then resent; both count and both terminals agree
+    @Test
+    void offlineSaleIsRebasedOntoRemoteSaleAndResent() throws Exception {
+        SyncHub hub = hub(dir.resolve("hub"), 100);
+        Terminal a = terminal(1, dir.resolve("a"), new LoopbackSyncTransport(hub), aspirin(100));
+        awaitUntil("the first terminal seeds the hub", () -> hub.version() == 1);
+        LoopbackSyncTransport bLink = new LoopbackSyncTransport(hub);
+        Terminal b = terminal(2, dir.resolve("b"), bLink);
+        awaitUntil("the second terminal has the aspirin", () -> b.quantity(ASPIRIN) == 100);
+
+        bLink.dropAll();
+        awaitUntil("the second terminal is offline", () -> !b.onUi(b.client::isConnected));
+        b.sell(ASPIRIN, 3);
+        a.sell(ASPIRIN, 2);
+        awaitUntil("the hub has the first sale", () -> hub.item(ASPIRIN).quantity == 98);
+        assertEquals(97, b.quantity(ASPIRIN)); // its own sale shows at once, before the hub has it
+
+        awaitUntil("both sales reach every terminal", () -> hub.version() == 3
+                && a.quantity(ASPIRIN) == 95 && b.quantity(ASPIRIN) == 95 && b.onUi(b.client::pendingCount) == 0);
+        assertEquals(95, hub.item(ASPIRIN).quantity);
+    }
+
+    @Test
+    void resentDeltaIsAppliedOnce() throws Exception {
+        SyncHub hub = hub(dir, 100);
+        byte[] upsert = delta(InventoryDelta.Op.UPSERT, "Aspirin", 100);
+        byte[] sale = delta(InventoryDelta.Op.ADJUST, null, -2);
+        hub.submit(NO_LINK, upsert);
+        hub.submit(NO_LINK, sale);
+        hub.submit(NO_LINK, sale); // resent after a reconnect: the hub already has this opId
+        hub.submit(NO_LINK, upsert);
+
+        assertEquals(2, hub.version());
+        assertEquals(98, hub.item(ASPIRIN).quantity);
+    }
+
+    @Test
+    void terminalCatchesUpFromRetainedDeltasOrElseASnapshot() throws Exception {
+        SyncHub hub = hub(dir, 2);
+        hub.submit(NO_LINK, delta(InventoryDelta.Op.UPSERT, "Aspirin", 100));
+        for (int i = 0; i < 4; i++) hub.submit(NO_LINK, delta(InventoryDelta.Op.ADJUST, null, -1));
+
+        Recorder recent = new Recorder();
+        hub.hello(recent, 4); // v5 is retained
+        assertEquals(1, recent.frames.size());
+        assertEquals(InventoryDelta.FRAME, SyncFrames.typeOf(recent.frames.get(0)));
+        assertEquals(5, InventoryDelta.decode(java.nio.ByteBuffer.wrap(recent.frames.get(0))).version);
+
+        Recorder behind = new Recorder();
+        hub.hello(behind, 1); // v2 has been dropped from memory
+        assertEquals(1, behind.frames.size());
+        SyncFrames.Snapshot snapshot = SyncFrames.readSnapshot(behind.frames.get(0));
+        assertEquals(5, snapshot.version);
+        assertEquals(96, snapshot.items.get(ASPIRIN).quantity);
+        assertEquals(Map.of(OTHER_TERMINAL, nextOpId - 1), snapshot.lastOpIds);
+
+        assertEquals(2, hub.subscriberCount());
+        hub.submit(NO_LINK, delta(InventoryDelta.Op.DELETE, null, 0));
+        assertEquals(2, recent.frames.size()); // subscribers get every new delta
+        hub.disconnect(recent);
+        assertEquals(1, hub.subscriberCount());
+        assertNull(hub.item(ASPIRIN));
+    }
+
+    @Test
+    void hubRestartsFromItsLogAndSnapshot() throws Exception {
+        SyncHub hub = new SyncHub(dir, 100, SyncHubTest::unexpected);
+        hub.submit(NO_LINK, delta(InventoryDelta.Op.UPSERT, "Aspirin", 100));
+        byte[] sale = delta(InventoryDelta.Op.ADJUST, null, -7);
+        hub.submit(NO_LINK, sale);
+        hub.close();
+
+        SyncHub restarted = hub(dir, 100);
+        assertEquals(2, restarted.version());
+        assertEquals(93, restarted.item(ASPIRIN).quantity);
+        restarted.submit(NO_LINK, sale); // the restarted hub still knows it was applied
+        assertEquals(2, restarted.version());
+        assertEquals(93, restarted.item(ASPIRIN).quantity);
+    }
+
+    // a restarted terminal asks for what it missed after its checkpoint, not for everything
+    @Test
+    void restartedTerminalCatchesUpFromItsCheckpoint() throws Exception {
+        SyncHub hub = hub(dir.resolve("hub"), 100);
+        SyncClientListener seen = new SyncClientListener();
+        ExecutorService ui = uiThread();
+        SyncClient first = new SyncClient(1, dir.resolve("a"), new LoopbackSyncTransport(hub), ui, seen);
+        List<PatientPharmacyApp.Medicine> inventory = aspirin(100);
+        run(ui, () -> first.start(inventory));
+        awaitUntil("the terminal's stock is confirmed", () -> call(ui, () -> first.confirmedVersion() == 1 && first.pendingCount() == 0));
+        run(ui, first::close);
+
+        hub.submit(NO_LINK, delta(InventoryDelta.Op.ADJUST, null, -10)); // sold elsewhere while it was off
+
+        SyncClient restarted = new SyncClient(1, dir.resolve("a"), new LoopbackSyncTransport(hub), ui, seen);
+        open.add(() -> run(ui, restarted::close));
+        run(ui, () -> restarted.start(inventory));
+        awaitUntil("the missed sale arrives", () -> call(ui, () -> restarted.confirmedVersion() == 2));
+        assertEquals(90, call(ui, () -> inventory.get(0).getQuantity()));
+        assertEquals(1, call(ui, () -> seen.changed));
+        assertEquals(0, call(ui, () -> seen.added + seen.removed));
+    }
+
+    @Test
+    void failingCheckpointIsReportedOnceUntilOneSucceeds() throws Exception {
+        SyncHub hub = hub(dir.resolve("hub"), 100);
+        Path terminalDir = Files.createDirectories(dir.resolve("a"));
+        Path blocker = terminalDir.resolve("sync.checkpoint.tmp"); // a directory where the checkpoint is staged
+        Files.createDirectory(blocker);
+        Terminal a = terminal(1, terminalDir, new LoopbackSyncTransport(hub), aspirin(100_000));
+
+        awaitUntil("the first checkpoint fails", () -> a.onUi(() -> a.seen.checkpointFailures) == 1);
+        adjustElsewhere(hub, SyncClient.CHECKPOINT_EVERY); // another checkpoint, failing again
+        Files.delete(blocker);
+        adjustElsewhere(hub, SyncClient.CHECKPOINT_EVERY);
+        awaitUntil("a checkpoint succeeds", () -> Files.exists(terminalDir.resolve("sync.checkpoint")));
+        assertEquals(1, a.onUi(() -> a.seen.checkpointFailures));
+
+        Files.createDirectory(blocker);
+        adjustElsewhere(hub, SyncClient.CHECKPOINT_EVERY);
+        awaitUntil("the new failure is reported", () -> a.onUi(() -> a.seen.checkpointFailures) == 2);
+        Files.delete(blocker); // so the final checkpoint on close can be written
+    }
+
+    /* -------------------- Fixtures -------------------- */
+
+    private SyncHub hub(Path hubDir, int retain) throws IOException {
+        SyncHub hub = new SyncHub(hubDir, retain, SyncHubTest::unexpected);
+        open.add(hub);
+        return hub;
+    }
+
+    private Terminal terminal(int number, Path terminalDir, SyncTransport transport,
+                              PatientPharmacyApp.Medicine... stock) throws Exception {
+        return terminal(number, terminalDir, transport, List.of(stock));
+    }
+
+    private Terminal terminal(int number, Path terminalDir, SyncTransport transport,
+                              List<PatientPharmacyApp.Medicine> stock) throws Exception {
+        Terminal t = new Terminal(number, terminalDir, transport, stock);
+        open.add(t);
+        return t;
+    }
+
+    private static List<PatientPharmacyApp.Medicine> aspirin(int quantity) {
+        PatientPharmacyApp.Medicine m = new PatientPharmacyApp.Medicine("Aspirin", Money.parse("2.50", Money.BILLING_CURRENCY), quantity);
+        m.setId(ASPIRIN);
+        List<PatientPharmacyApp.Medicine> inventory = new ArrayList<>();
+        inventory.add(m);
+        return inventory;
+    }
+
+    private byte[] delta(InventoryDelta.Op op, String name, int quantity) {
+        return new InventoryDelta(0, OTHER_TERMINAL, nextOpId++, op, ASPIRIN, name, 250, quantity).encode();
+    }
+
+    private void adjustElsewhere(SyncHub hub, int sales) {
+        for (int i = 0; i < sales; i++) hub.submit(NO_LINK, delta(InventoryDelta.Op.ADJUST, null, -1));
+    }
+
+    private static void unexpected(IOException ex) {
+        throw new AssertionError("Hub I/O failed", ex);
+    }
+
+    private static final SyncHub.Connection NO_LINK = new SyncHub.Connection() {
+        @Override
+        public void send(byte[] frame) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // frames a terminal would have received, in order
+    private static final class Recorder implements SyncHub.Connection {
+        final List<byte[]> frames = new ArrayList<>();
+
+        @Override
+        public void send(byte[] frame) {
+            frames.add(frame);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // counts what the client reported; read on the UI thread
+    private static final class SyncClientListener implements SyncClient.Listener {
+        int added;
+        int changed;
+        int removed;
+        int checkpointFailures;
+        final List<PatientPharmacyApp.Medicine> arrived = new ArrayList<>();
+
+        @Override
+        public void added(PatientPharmacyApp.Medicine m) {
+            added++;
+            arrived.add(m);
+        }
+
+        @Override
+        public void changed(PatientPharmacyApp.Medicine m) {
+            changed++;
+        }
+
+        @Override
+        public void removed(PatientPharmacyApp.Medicine m) {
+            removed++;
+        }
+
+        @Override
+        public void checkpointFailed(IOException ex) {
+            checkpointFailures++;
+        }
+    }
+
+    // one terminal: its client, its UI thread and the medicines it shows
+    private static final class Terminal implements AutoCloseable {
+        final ExecutorService ui = uiThread();
+        final SyncClientListener seen = new SyncClientListener();
+        final List<PatientPharmacyApp.Medicine> inventory;
+        final SyncClient client;
+
+        Terminal(int number, Path dir, SyncTransport transport, List<PatientPharmacyApp.Medicine> stock) throws Exception {
+            inventory = new ArrayList<>(stock);
+            client = new SyncClient(number, dir, transport, ui, seen);
+            run(ui, () -> client.start(inventory));
+        }
+
+        <T> T onUi(Callable<T> work) {
+            return call(ui, work);
+        }
+
+        // what this terminal shows for the medicine, or -1 if it has none
+        int quantity(long id) {
+            return onUi(() -> {
+                PatientPharmacyApp.Medicine m = find(id);
+                return m == null ? -1 : m.getQuantity();
+            });
+        }
+
+        void sell(long id, int quantity) {
+            onUi(() -> {
+                PatientPharmacyApp.Medicine m = find(id);
+                m.setQuantity(m.getQuantity() - quantity);
+                client.changed(m);
+                return null;
+            });
+        }
+
+        private PatientPharmacyApp.Medicine find(long id) {
+            for (PatientPharmacyApp.Medicine m : inventory) if (m.getId() == id) return m;
+            for (PatientPharmacyApp.Medicine m : seen.arrived) if (m.getId() == id) return m;
+            return null;
+        }
+
+        @Override
+        public void close() throws Exception {
+            run(ui, client::close);
+            ui.shutdownNow();
+        }
+    }
+
+    private static ExecutorService uiThread() {
+        return Executors.newSingleThreadExecutor(r -> BackgroundTasks.daemon(r, "test-ui"));
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+
+    private static void run(ExecutorService ui, Work work) {
+        call(ui, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private static <T> T call(ExecutorService ui, Callable<T> work) {
+        try {
+            return ui.submit(work).get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            throw new AssertionError(ex.getCause());
+        } catch (Exception ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static void awaitUntil(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) fail("Timed out waiting until " + what);
+            Thread.sleep(10);
+        }
+    }
+}
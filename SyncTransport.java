@@ -0,0 +1,20 @@
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/** How a terminal's {@link SyncClient} reaches the {@link SyncHub}: in-process or over the shop LAN. */
+public interface SyncTransport {
+
+    /** The terminal's side of a connection. send only enqueues; frames go out in order. */
+    interface Link {
+        void send(byte[] frame);
+
+        void close();
+    }
+
+    /**
+     * Open a link and send hello as its first frame. Frames from the hub are passed to
+     * receiver and onClosed runs once when the link drops; both on a transport thread.
+     * Closing the link yourself does not run onClosed.
+     */
+    Link connect(byte[] hello, Consumer<byte[]> receiver, Runnable onClosed) throws IOException;
+}
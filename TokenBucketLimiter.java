@@ -0,0 +1,61 @@
+// src/main/java/com/app/controller/TokenBucketLimiter.java
+
+package com.app.controller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-client token buckets: a sustained rate with bursts up to a capacity.
+ *
+ * Implemented as GCRA (the generic cell rate algorithm): each bucket is a single long,
+ * the time at which it will be full again, so a request costs one read and one CAS and
+ * no refill bookkeeping. Clients are hashed onto a fixed array of stripes instead of
+ * getting a map entry each, so memory is bounded however many clients turn up and
+ * nothing ever needs evicting; clients sharing a stripe share its budget, which with
+ * thousands of stripes for a few hundred terminals is rare and only makes the limit stricter.
+ */
+public class TokenBucketLimiter {
+
+    private final long intervalNanos; // one token per interval
+    private final long toleranceNanos; // how far ahead of now a bucket may run: the burst
+    private final AtomicLongArray fullAt; // per stripe, in nanos since origin
+    private final int mask;
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param perSecond sustained requests per second per client
+     * @param burst     requests a client may make at once after being idle
+     * @param stripes   number of buckets, rounded up to a power of two
+     */
+    public TokenBucketLimiter(double perSecond, int burst, int stripes) {
+        if (perSecond <= 0 || burst < 1) throw new IllegalArgumentException("Rate and burst must be positive");
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.fullAt = new AtomicLongArray(n);
+        this.mask = n - 1;
+    }
+
+    /**
+     * Take a token for the client.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until it would be allowed
+     */
+    public long tryAcquire(Object client) {
+        int stripe = stripeOf(client);
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long tat = fullAt.get(stripe);
+            long start = Math.max(tat, now);
+            long wait = start - now - toleranceNanos;
+            if (wait > 0) return wait;
+            if (fullAt.compareAndSet(stripe, tat, start + intervalNanos)) return 0;
+        }
+    }
+
+    private int stripeOf(Object client) {
+        int h = client.hashCode() * 0x9E3779B9; // spread similar keys (e.g. neighbouring addresses)
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
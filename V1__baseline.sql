@@ -0,0 +1,27 @@
+-- src/main/resources/db/migration/V1__baseline.sql
+
+-- The schema Hibernate generated from the entities before the tree had migrations:
+-- patients, medicines and invoices with IDENTITY ids and DOUBLE amounts.
+-- A database created that way has no flyway_schema_history; Flyway marks it as this
+-- version (spring.flyway.baseline-on-migrate) and applies only the later scripts.
+
+CREATE TABLE patients (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255)
+);
+
+CREATE TABLE medicines (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name           VARCHAR(255),
+    price          DOUBLE PRECISION NOT NULL,
+    stock_quantity INTEGER NOT NULL,
+    expiry_date    DATE
+);
+
+CREATE TABLE invoices (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    patient_id         BIGINT REFERENCES patients (id),
+    total_amount       DOUBLE PRECISION NOT NULL,
+    insurance_discount DOUBLE PRECISION NOT NULL,
+    payment_status     VARCHAR(255)
+);
@@ -0,0 +1,10 @@
+-- src/main/resources/db/migration/V2__invoice_id_sequence.sql
+
+-- Invoice ids come from invoice_seq instead of IDENTITY, so Hibernate can batch invoice inserts.
+-- INCREMENT BY must equal Invoice's allocationSize (50). Hibernate's pooled optimizer hands out
+-- the 49 ids below each value it draws, so the first value is 50 above the highest id in use.
+
+CREATE SEQUENCE invoice_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE invoice_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM invoices);
+
+ALTER TABLE invoices ALTER COLUMN id DROP IDENTITY;
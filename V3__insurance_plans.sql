@@ -0,0 +1,16 @@
+-- src/main/resources/db/migration/V3__insurance_plans.sql
+
+-- Insurer plans evaluated by InsurancePolicyEngine, and each patient's plan (null if uninsured).
+
+CREATE TABLE insurance_plans (
+    plan_code        VARCHAR(255) PRIMARY KEY,
+    insurer          VARCHAR(255),
+    coverage_percent DOUBLE PRECISION NOT NULL,
+    deductible       DOUBLE PRECISION NOT NULL,
+    co_pay           DOUBLE PRECISION NOT NULL,
+    max_coverage     DOUBLE PRECISION NOT NULL,
+    active           BOOLEAN NOT NULL,
+    version          BIGINT
+);
+
+ALTER TABLE patients ADD COLUMN insurance_plan_code VARCHAR(255);
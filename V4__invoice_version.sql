@@ -0,0 +1,7 @@
+-- src/main/resources/db/migration/V4__invoice_version.sql
+
+-- Optimistic-lock version of an invoice (Invoice.version), also its ETag on GET /api/billing/{id}.
+-- Existing invoices start at 0 so their first update is versioned like any other.
+
+ALTER TABLE invoices ADD COLUMN version BIGINT;
+UPDATE invoices SET version = 0;
@@ -0,0 +1,9 @@
+-- src/main/resources/db/migration/V5__medicine_stock_alerts.sql
+
+-- Per-medicine reorder level and the indexes behind the low-stock and expiry queries
+-- (MedicineRepository, InventoryAlertWatcher). Existing medicines get the entity's default of 10.
+
+ALTER TABLE medicines ADD COLUMN reorder_level INTEGER DEFAULT 10 NOT NULL;
+
+CREATE INDEX idx_medicines_stock_quantity ON medicines (stock_quantity);
+CREATE INDEX idx_medicines_expiry_date ON medicines (expiry_date);
@@ -0,0 +1,20 @@
+-- src/main/resources/db/migration/V6__invoice_money_minor_units.sql
+
+-- Invoice amounts moved from DOUBLE columns to BIGINT minor units (Invoice, MoneyConverter).
+-- Backfills the new columns from the old ones, rounding half away from zero to the cent;
+-- the factor 100 assumes a two-decimal billing currency (-Dbilling.currency, default USD).
+-- The old columns are left in place for rollback, but nothing writes them any more, so they
+-- must accept NULL; drop them once no older build reads them.
+
+ALTER TABLE invoices ADD COLUMN total_amount_minor BIGINT;
+ALTER TABLE invoices ADD COLUMN insurance_discount_minor BIGINT;
+
+UPDATE invoices
+   SET total_amount_minor       = ROUND(total_amount * 100),
+       insurance_discount_minor = ROUND(insurance_discount * 100);
+
+ALTER TABLE invoices ALTER COLUMN total_amount DROP NOT NULL;
+ALTER TABLE invoices ALTER COLUMN insurance_discount DROP NOT NULL;
+
+-- ALTER TABLE invoices DROP COLUMN total_amount;
+-- ALTER TABLE invoices DROP COLUMN insurance_discount;
@@ -0,0 +1,26 @@
+-- src/main/resources/db/migration/V7__invoice_lines.sql
+
+-- Line items priced by LineCostEngine and the fee schedule PriceCatalog reads services from.
+-- invoice_line_seq's INCREMENT BY must equal InvoiceLine's allocationSize (50).
+
+CREATE TABLE service_fees (
+    code        VARCHAR(255) PRIMARY KEY,
+    description VARCHAR(255),
+    fee_minor   BIGINT,
+    active      BOOLEAN NOT NULL
+);
+
+CREATE SEQUENCE invoice_line_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE invoice_lines (
+    id                    BIGINT PRIMARY KEY,
+    invoice_id            BIGINT REFERENCES invoices (id),
+    type                  VARCHAR(255),
+    code                  VARCHAR(255),
+    quantity              INTEGER NOT NULL,
+    discount_basis_points INTEGER NOT NULL,
+    unit_price_minor      BIGINT,
+    line_total_minor      BIGINT
+);
+
+CREATE INDEX idx_invoice_lines_invoice_id ON invoice_lines (invoice_id);
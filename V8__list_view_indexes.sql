@@ -0,0 +1,7 @@
+-- src/main/resources/db/migration/V8__list_view_indexes.sql
+
+-- Keyset paging for the list views: a patient's invoice history (InvoiceRepository)
+-- and the medicine list by name (MedicineRepository).
+
+CREATE INDEX idx_invoices_patient_id_id ON invoices (patient_id, id);
+CREATE INDEX idx_medicines_name_id ON medicines (name, id);
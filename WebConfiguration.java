@@ -0,0 +1,42 @@
+// src/main/java/com/app/controller/WebConfiguration.java
+
+package com.app.controller;
+
+import com.app.cache.IdempotencyStore;
+import com.app.model.Invoice;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimit;
+
+    public WebConfiguration(@Value("${billing.rate-limit.per-second:5}") double perSecond,
+                            @Value("${billing.rate-limit.burst:20}") int burst,
+                            @Value("${billing.rate-limit.stripes:4096}") int stripes,
+                            @Value("${billing.rate-limit.client-header:}") String clientHeader,
+                            MeterRegistry registry) {
+        this.rateLimit = new RateLimitInterceptor(new TokenBucketLimiter(perSecond, burst, stripes), clientHeader, registry);
+    }
+
+    // invoice creation only; reads stay unlimited
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimit).addPathPatterns("/api/billing/generate", "/api/billing/generate/**");
+    }
+
+    // results of POST /api/billing/generate by Idempotency-Key
+    @Bean
+    public IdempotencyStore<Invoice> invoiceIdempotency(@Value("${billing.idempotency.max-keys:100000}") int maxKeys,
+                                                        @Value("${billing.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                                                        @Value("${billing.idempotency.wait-seconds:30}") long waitSeconds) {
+        return new IdempotencyStore<>(maxKeys, ttlSeconds, waitSeconds, TimeUnit.SECONDS);
+    }
+}